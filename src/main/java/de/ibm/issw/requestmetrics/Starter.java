@@ -4,6 +4,7 @@ import javax.swing.SwingUtilities;
 
 import de.ibm.issw.requestmetrics.engine.RmProcessor;
 import de.ibm.issw.requestmetrics.gui.RequestMetricsGui;
+import de.ibm.issw.requestmetrics.util.Storage;
 
 public class Starter {
 
@@ -20,6 +21,48 @@ public class Starter {
 						parametererror = true;
 						break;
 					}
+				} else if (param.startsWith("-THREADS=")) {
+					try {
+						processor.setParallelism(Integer.parseInt(param.substring(9)));
+					} catch (Exception e) {
+						parametererror = true;
+						break;
+					}
+				} else if (param.startsWith("-READAHEAD=")) {
+					try {
+						processor.setReadAhead(Integer.parseInt(param.substring(11)));
+					} catch (Exception e) {
+						parametererror = true;
+						break;
+					}
+				} else if (param.startsWith("-PARSERS=")) {
+					try {
+						processor.setParseThreads(Integer.parseInt(param.substring(9)));
+					} catch (Exception e) {
+						parametererror = true;
+						break;
+					}
+				} else if (param.startsWith("-STORAGE=")) {
+					try {
+						processor.setStorage(Storage.valueOf(param.substring(9).toUpperCase()));
+					} catch (Exception e) {
+						parametererror = true;
+						break;
+					}
+				} else if (param.startsWith("-SPILL=")) {
+					try {
+						processor.setSpillBudget(Long.parseLong(param.substring(7)) * 1024 * 1024);
+					} catch (Exception e) {
+						parametererror = true;
+						break;
+					}
+				} else if (param.startsWith("-CACHE=")) {
+					final String cache = param.substring(7);
+					if (!cache.equalsIgnoreCase("true") && !cache.equalsIgnoreCase("false")) {
+						parametererror = true;
+						break;
+					}
+					processor.setIngestionCache(Boolean.parseBoolean(cache));
 				}
 			}
 		}
@@ -41,6 +84,18 @@ public class Starter {
 			System.err.println("|------------|-----------|---------|------------------------------------------------------|");
 			System.err.println("| TIMEBORDER | No        | null	   | time in milliseconds for the requests that should be |");
 			System.err.println("|            |           |         | analyzed (null = all requests are analyzed)          |");
+			System.err.println("| THREADS    | No        | 1       | number of threads that parse the files and the       |");
+			System.err.println("|            |           |         | chunks of large files (1 = single thread)            |");
+			System.err.println("| READAHEAD  | No        | 4       | number of 1 MB blocks that are read ahead of the     |");
+			System.err.println("|            |           |         | parser (0 = no read-ahead)                           |");
+			System.err.println("| PARSERS    | No        | 0       | number of threads that parse the lines read by the   |");
+			System.err.println("|            |           |         | other threads (0 = parsed by the reading threads)    |");
+			System.err.println("| STORAGE    | No        | HEAP    | where the records are kept: HEAP, DIRECT (memory     |");
+			System.err.println("|            |           |         | outside of the heap) or MAPPED (temporary file)      |");
+			System.err.println("| SPILL      | No        | 0       | heap in MB the records may take before the complete  |");
+			System.err.println("|            |           |         | transactions are spilled to disk (0 = never)         |");
+			System.err.println("| CACHE      | No        | false   | keep the records of the loaded files, so a reload    |");
+			System.err.println("|            |           |         | only parses the new and changed files (true/false)   |");
 			System.err.println("|-----------------------------------------------------------------------------------------|");
 			System.exit(1);
 		}
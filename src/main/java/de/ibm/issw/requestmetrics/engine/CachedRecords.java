@@ -0,0 +1,84 @@
+package de.ibm.issw.requestmetrics.engine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+import de.ibm.issw.requestmetrics.util.IntArray;
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+
+/**
+ * The records that have been added to a dataset for a log in the order they have been added, so they can be
+ * added again without parsing the log. The records are kept in the stores of the parsers, only the stores and
+ * the rows of the records are recorded.<br>
+ * The records are added by a single thread.
+ */
+public class CachedRecords {
+	private final List<RecordStore> stores = new ArrayList<RecordStore>();
+	private final Map<RecordStore, Integer> storeIndexes = new IdentityHashMap<RecordStore, Integer>();
+	private final IntArray recordStores = IntArray.create(null);
+	private final IntArray recordRows = IntArray.create(null);
+	private RecordStore lastStore;
+	private int lastStoreIndex;
+	private int size;
+
+	/**
+	 * @param record a record that has been added to a dataset
+	 */
+	public void add(RMRecord record) {
+		final RecordStore store = record.getStore();
+		if (store != lastStore) {
+			Integer storeIndex = storeIndexes.get(store);
+			if (storeIndex == null) {
+				storeIndex = stores.size();
+				stores.add(store);
+				storeIndexes.put(store, storeIndex);
+			}
+			lastStore = store;
+			lastStoreIndex = storeIndex;
+		}
+		recordStores.ensureCapacity(size + 1);
+		recordRows.ensureCapacity(size + 1);
+		recordStores.set(size, lastStoreIndex);
+		recordRows.set(size, record.getRow());
+		size++;
+	}
+
+	/**
+	 * @param index the index of the record in the order the records have been added
+	 * @return a view of the record
+	 */
+	public RMRecord get(int index) {
+		return stores.get(recordStores.get(index)).get(recordRows.get(index));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the bytes of the order of the records to the footprint, the stores are counted with the dataset.
+	 */
+	public void addFootprint(MemoryFootprint footprint) {
+		recordStores.addFootprint(footprint, MemoryFootprint.CACHE);
+		recordRows.addFootprint(footprint, MemoryFootprint.CACHE);
+		footprint.add(MemoryFootprint.CACHE, MemoryFootprint.arrayBytes(stores.size(), MemoryFootprint.REFERENCE), 0);
+	}
+
+	/**
+	 * Releases the stores of the records, e.g. when the log is not cached anymore. The records must not be part
+	 * of a dataset that is still used.
+	 */
+	public void release() {
+		for (RecordStore store : stores) {
+			store.release();
+		}
+		stores.clear();
+		storeIndexes.clear();
+		lastStore = null;
+		size = 0;
+	}
+}
@@ -1,23 +1,48 @@
 package de.ibm.issw.requestmetrics.engine;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.LineNumberReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
-import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,90 +50,185 @@ import org.slf4j.LoggerFactory;
 import de.ibm.issw.requestmetrics.engine.events.ParsingAllFilesHasFinishedEvent;
 import de.ibm.issw.requestmetrics.engine.events.ParsingFileHasFinishedEvent;
 import de.ibm.issw.requestmetrics.engine.events.PercentageIncreasedEvent;
-import de.ibm.issw.requestmetrics.util.FileCleaner;
+import de.ibm.issw.requestmetrics.engine.io.BufferPool;
+import de.ibm.issw.requestmetrics.engine.io.CompressedInputSource;
+import de.ibm.issw.requestmetrics.engine.io.CountingInputStream;
+import de.ibm.issw.requestmetrics.engine.io.FileFingerprint;
+import de.ibm.issw.requestmetrics.engine.io.FileInputSource;
+import de.ibm.issw.requestmetrics.engine.io.InputSource;
+import de.ibm.issw.requestmetrics.engine.io.LineBatch;
+import de.ibm.issw.requestmetrics.engine.io.LineReader;
+import de.ibm.issw.requestmetrics.engine.io.MarkerLineReader;
+import de.ibm.issw.requestmetrics.engine.io.NestedEntryInputSource;
+import de.ibm.issw.requestmetrics.engine.io.ReadAheadInputStream;
+import de.ibm.issw.requestmetrics.engine.io.StreamLineReader;
+import de.ibm.issw.requestmetrics.engine.io.ZipEntryInputSource;
+import de.ibm.issw.requestmetrics.engine.parser.RecordParser;
+import de.ibm.issw.requestmetrics.engine.parser.RmLineTokenizer;
+import de.ibm.issw.requestmetrics.engine.pipeline.ParsingPipeline;
+import de.ibm.issw.requestmetrics.engine.pipeline.StageStatistics;
+import de.ibm.issw.requestmetrics.model.RMRecord;
 import de.ibm.issw.requestmetrics.util.FileDetector;
+import de.ibm.issw.requestmetrics.util.StringPool;
 
 public class FileHandler extends Observable {
 	public static final Logger LOG = LoggerFactory.getLogger(FileHandler.class);
+	// files are parsed in chunks of this size if multiple threads are used
+	private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+	// number of chunks per thread that may be parsed ahead of the graph assembly
+	private static final int PENDING_CHUNKS_PER_THREAD = 2;
+	// only lines containing one of the markers are passed to the processor
+	private static final String[] MARKERS = new String[] { RmLineTokenizer.MARKER_RM, RmLineTokenizer.MARKER_PLUGIN };
+	// the files are decoded with the platform charset
+	private static final Charset CHARSET = Charset.defaultCharset();
+	private static final boolean BYTE_LINES_SUPPORTED = MarkerLineReader.isSupported(CHARSET, MARKERS);
+	// number of lines at the beginning of a log that are passed to the processor to detect the layout
+	private static final int HEAD_LINES = 1000;
+	// interval in milliseconds in which a followed log is checked for appended lines
+	private static final long FOLLOW_INTERVAL = 1000;
+	// size of the blocks that are searched backwards for the last line break of a followed log
+	private static final int LINE_END_BLOCK_SIZE = 8 * 1024;
+	// interval in milliseconds a file in a watched folder must not change before it is parsed
+	private static final long WATCH_INTERVAL = 2000;
+	// number of lines that are read and handed over as a batch
+	private static final int BATCH_LINES = 1024;
+	// size of the blocks that are read ahead from streams
+	private static final int READ_AHEAD_BLOCK_SIZE = 1024 * 1024;
+	// the readers of the streams and the prefetching of mapped windows, the threads do not keep the application alive
+	private static final ExecutorService READ_AHEAD_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, "read-ahead");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
 	private Processor processor;
-	private List<File> allFiles;
-	private List<File> tmpExtractFolders;
-	private File currentFile;
+	private int parallelism = 1;
+	private int readAhead = 4;
+	private int parseThreads = 0;
+	private ParsingPipeline pipeline;
+	private BufferPool bufferPool;
+	private List<InputSource> allSources;
+	private List<ZipFile> openZipFiles;
+	private volatile boolean following;
+	private volatile boolean watching;
+	// size and modification time of the files when they have been parsed, the followed logs add their states
+	// while the other threads read them
+	private Map<String, FileState> parsedFiles;
+	// null if the records of the files are not cached
+	private IngestionCache cache;
+	// the entries of the cache for the sources of the current load
+	private Map<InputSource, IngestionCache.Entry> cachedSources = new IdentityHashMap<InputSource, IngestionCache.Entry>();
+	// the sources of the current load with the same content as a previous source, with the entry of that source
+	private Map<InputSource, IngestionCache.Entry> copiedSources = new IdentityHashMap<InputSource, IngestionCache.Entry>();
 
 	// statistic variables
-	private Map<String, Integer> fileLinesMap;
-	private Long totalLinesAmount;
-	private Long totalProcessedLines = 0l;
+	private Map<String, Long> fileSizeMap;
+	private Long totalBytesAmount;
+	private Long totalProcessedBytes = 0l;
 	private Integer processedFiles = 0;
+	private Map<String, Long> processedBytesMap;
+	private Map<String, Integer> lastPercentMap;
 
 	public FileHandler(Processor processor) {
 		this.processor = processor;
+		createBufferPool();
 	}
 
 	/**
-	 * Counts the number of lines for a file and saves them in a hash map
-	 * together with the filename. Adds the number of the lines for the current
-	 * file to the total number of lines.
+	 * Saves the size of a log in a hash map together with its path. 
+	 * Adds the size of the current log to the total size of all logs.
+	 * ZIP entries are measured by their uncompressed size.
 	 * 
-	 * @param file
+	 * @param source
 	 */
-	public void determineNumberOfLines(File file) {
-		try {
-			LineNumberReader lnr = new LineNumberReader(new FileReader(file));
-			lnr.skip(Long.MAX_VALUE);
-			Integer currentLinesAmount = lnr.getLineNumber();
-			lnr.close();
-			totalLinesAmount += currentLinesAmount;
-			fileLinesMap.put(file.getAbsolutePath(), currentLinesAmount);
-		} catch (Exception e) {
-			LOG.error("Exception while counting number of lines for file " + file.getAbsolutePath(), e);
-		}
+	public void determineFileSize(InputSource source) {
+		final long size = source.getSize();
+		totalBytesAmount += size;
+		fileSizeMap.put(source.getPath(), size);
 	}
 
 	/**
-	 * Calculates the percentage of processed lines (for the currently parsing
+	 * Calculates the percentage of processed bytes (for the currently parsing
 	 * file and for all parsing files) and notifies the observers if it has
 	 * increased (needed for progress bars by now)
 	 * 
-	 * @param processedLines
-	 *            the processed lines of the currently processed file
+	 * @param processedBytes
+	 *            the processed bytes of the currently processed file
 	 * @param fileName
-	 *            name of the currently processed file, needed to get its number
-	 *            of lines from the fileLinesMap
+	 *            name of the currently processed file, needed to get its size
+	 *            from the fileSizeMap
 	 */
-	public void checkProcessedLines(Integer processedLines, String fileName) {
-		// we need the factor 100 to avoid errors in calculating files with less
-		// than 100 lines
-		Integer percentCurrentFile = 100 * processedLines / fileLinesMap.get(fileName);
-		Integer percentAllFiles = (int) (100 * totalProcessedLines / totalLinesAmount);
+	public synchronized void checkProcessedBytes(long processedBytes, String fileName) {
+		// empty files are done right away
+		final long fileSize = fileSizeMap.get(fileName);
+		int percentCurrentFile = fileSize > 0 ? (int) (100 * processedBytes / fileSize) : 100;
+		int percentAllFiles = totalBytesAmount > 0 ? (int) (100 * totalProcessedBytes / totalBytesAmount) : 100;
 
 		// check if the percent-value changes in comparison to the last
-		// processed line; if it changed, notify the observers
-		if (percentCurrentFile != (100 * (processedLines - 1) / fileLinesMap.get(fileName))) {
+		// notification; chunks report their bytes in arbitrary order and
+		// amounts, so we cannot compare with the previous line
+		final Integer lastPercent = lastPercentMap.get(fileName);
+		if (percentCurrentFile != (lastPercent != null ? lastPercent : 0)) {
+			lastPercentMap.put(fileName, percentCurrentFile);
 			setChanged();
-			notifyObservers(new PercentageIncreasedEvent(this, currentFile.getAbsolutePath(), percentCurrentFile,
-					percentAllFiles, fileLinesMap.size(), processedFiles));
+			notifyObservers(new PercentageIncreasedEvent(this, fileName, percentCurrentFile,
+					percentAllFiles, fileSizeMap.size(), processedFiles));
 		}
 	}
+	
+	/**
+	 * Adds the bytes to the processed bytes of the current file and of all files
+	 * and updates the progress. The method may be called by the threads parsing 
+	 * the files and the chunks of a file.
+	 * 
+	 * @param bytes the number of bytes that have been processed
+	 * @param source the currently processed log
+	 */
+	private synchronized void addProcessedBytes(long bytes, InputSource source) {
+		final String fileName = source.getPath();
+		final Long processedBytes = processedBytesMap.get(fileName);
+		final long processedBytesCurrentFile = (processedBytes != null ? processedBytes : 0) + bytes;
+		processedBytesMap.put(fileName, processedBytesCurrentFile);
+		totalProcessedBytes += bytes;
+		checkProcessedBytes(processedBytesCurrentFile, fileName);
+	}
+	
+	/**
+	 * Counts the log as processed and notifies the observers. The bytes that have not 
+	 * been reported yet, e.g. the headers of archive entries, are added to the progress.
+	 * 
+	 * @param source the log that has been processed
+	 */
+	private synchronized void fileProcessed(InputSource source) {
+		final Long processedBytes = processedBytesMap.get(source.getPath());
+		final long remainingBytes = source.getSize() - (processedBytes != null ? processedBytes : 0);
+		if (remainingBytes > 0) addProcessedBytes(remainingBytes, source);
+		
+		processedFiles++;
+		setChanged();
+		notifyObservers(new ParsingFileHasFinishedEvent(this, source.getName()));
+	}
 
 	public void preProcessInputFiles(List<File> files) {
 		for (File element : files) {
 			if (element.isFile()) {
 				// case: element is a file
+				parsedFiles.put(element.getAbsolutePath(), new FileState(element, getFileKey(element)));
 				if (element.getName().toLowerCase().endsWith(".zip")) {
 					// case: element is a ZIP file
 					try {
 						LOG.debug("Pre-processing ZIP file " + element.getAbsolutePath());
-						File zipFolder = preProcessZipFile(element);
-						preProcessInputFiles(Arrays.asList(zipFolder));
+						preProcessZipFile(element);
 					} catch (Exception e) {
 						LOG.error("Exception while processing ZIP file " + element.getAbsolutePath(), e);
 					}
 				} else {
-					// case: element is no ZIP file
+					// case: element is no ZIP file, compressed files are decompressed while they are parsed
 					LOG.debug("Adding file " + element.getAbsolutePath());
-					determineNumberOfLines(element);
-					allFiles.add(element);
+					addSource(CompressedInputSource.decompressed(new FileInputSource(element)));
 				}
 			} else if (element.isDirectory()) {
 				// case: element is a directory
@@ -123,125 +243,922 @@ public class FileHandler extends Observable {
 			}
 		}
 	}
+	
+	private void addSource(InputSource source) {
+		determineFileSize(source);
+		allSources.add(source);
+	}
 
-	private File preProcessZipFile(File zipfile) throws ZipException, IOException {
-		// get path and create folder for extracting ZIP file
-		String absolutePath = zipfile.getAbsolutePath();
-		String outputFolder = absolutePath.substring(0, absolutePath.lastIndexOf(File.separator));
-		outputFolder = outputFolder.concat(File.separator).concat(UUID.randomUUID().toString());
-		File outDir = new File(outputFolder);
-		outDir.mkdir();
-		tmpExtractFolders.add(outDir);
+	/**
+	 * Adds the entries of the ZIP file as sources. The entries are read straight from the
+	 * ZIP file, so it stays open until all sources have been processed. Nested ZIP files
+	 * are added as a single source whose entries are read while it is processed.
+	 * 
+	 * @param zipfile the ZIP file
+	 */
+	private void preProcessZipFile(File zipfile) throws IOException {
+		final ZipFile zipFile = new ZipFile(zipfile);
+		openZipFiles.add(zipFile);
 		
-		// read ZIP & extract entries
-		ZipFile zipFile = new ZipFile(zipfile);
-		try {
-			final Enumeration<? extends ZipEntry> entries = zipFile.entries();
-			while (entries.hasMoreElements()) {
-				ZipEntry entry = entries.nextElement();
-				if(entry.isDirectory()) {
-					// case: entry is directory -> create new directory
-					String entryName = outputFolder.concat(File.separator).concat(entry.getName());
-		            entryName = entryName.replace('/', File.separatorChar);
-		            entryName = entryName.replace('\\', File.separatorChar);
-		            LOG.debug("Create directory " + entryName);
-		            File newFolder = new File(entryName);
-	                newFolder.mkdirs();
-				} else {
-					// case: entry is file -> extract
-					LOG.debug("Extract file " + entry.getName());
-					extractEntry(entry, zipFile.getInputStream(entry), outputFolder);
-				}
+		final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+		while (entries.hasMoreElements()) {
+			final ZipEntry entry = entries.nextElement();
+			if (!entry.isDirectory()) {
+				LOG.debug("Adding entry " + entry.getName());
+				addSource(CompressedInputSource.decompressed(new ZipEntryInputSource(zipFile, entry)));
 			}
-		} catch (Exception e) {
-			LOG.error("Exception while extracting ZIP file " + absolutePath, e);
-		} finally {
-			zipFile.close();
 		}
-		return outDir;
 	}
 
 	public void processInputFiles(File[] files) {
 		preProcessInputFiles(Arrays.asList(files));
+		if (cache != null) lookUpCachedSources();
 		
-		for (File file : allFiles) {
-			currentFile = file;
-			processInputFile(file);
+		final ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+		pipeline = parseThreads > 0 ? new ParsingPipeline(parallelism, parseThreads, BATCH_LINES) : null;
+		try {
+			if (pool != null && allSources.size() > 1) {
+				processInputFilesConcurrently(pool);
+			} else {
+				for (InputSource source : allSources) {
+					processCachedInputSource(source, processor, pool);
+				}
+			}
+		} catch (Exception e) {
+			LOG.error("Exception while processing the files concurrently", e);
+		} finally {
+			if (pool != null) pool.shutdownNow();
+			if (pipeline != null) {
+				for (StageStatistics stageStatistics : pipeline.getStatistics()) {
+					LOG.info("Pipeline stage " + stageStatistics);
+				}
+				pipeline.shutdown();
+				pipeline = null;
+			}
+			LOG.info("String pool: " + StringPool.getHits() + " hits, " + StringPool.getMisses() + " misses");
+			if (cache != null) {
+				cache.endLoad();
+				cachedSources.clear();
+				copiedSources.clear();
+			}
 		}
 		// tell the observers that processing all files has finished
 		setChanged();
-		notifyObservers(new ParsingAllFilesHasFinishedEvent(this, allFiles));
+		notifyObservers(new ParsingAllFilesHasFinishedEvent(this, allSources));
 		
 		// housekeeping
-		FileCleaner fileCleaner = new FileCleaner();
-		for (File folder : tmpExtractFolders) {
+		closeZipFiles();
+	}
+	
+	private void closeZipFiles() {
+		for (ZipFile zipFile : openZipFiles) {
 			try {
-				fileCleaner.removeFolder(folder.getAbsolutePath());
+				zipFile.close();
 			} catch (Exception e) {
-				LOG.error("Exception while removing folder " + folder.getAbsolutePath(), e);
+				LOG.error("Exception while closing ZIP file " + zipFile.getName(), e);
 			}
 		}
+		openZipFiles.clear();
 	}
 
-	public void processInputFile(File file) {
+	/**
+	 * Parses every source with its own processor on the pool. The processors are merged in 
+	 * the order of the sources while the following sources are still parsed.
+	 * 
+	 * @param pool the pool for parsing the sources and the chunks of the files
+	 */
+	private void processInputFilesConcurrently(final ForkJoinPool pool) throws InterruptedException, ExecutionException {
+		final List<ForkJoinTask<Processor>> sourceTasks = new ArrayList<ForkJoinTask<Processor>>();
+		for (final InputSource source : allSources) {
+			// a copy is processed once the source with the same content has been merged
+			if (copiedSources.containsKey(source)) {
+				sourceTasks.add(null);
+				continue;
+			}
+			sourceTasks.add(pool.submit(new Callable<Processor>() {
+				@Override
+				public Processor call() {
+					final Processor fileProcessor = processor.createFileProcessor();
+					processCachedInputSource(source, fileProcessor, pool);
+					return fileProcessor;
+				}
+			}));
+		}
+		
 		try {
-			final BufferedReader inputStream = new BufferedReader(new FileReader(file));
-			// call the before hook
-			processor.beforeSingleFileParsed(file);
-
-			Integer processedLines = 0;
-			String line = null;
-			while ((line = inputStream.readLine()) != null) {
-				// call the processor callback to process the line
-				processor.handleLine(line, file);
-
-				processedLines++;
-				totalProcessedLines++;
-
-				// TODO: should we do this calculation after each line?
-				checkProcessedLines(processedLines, file.getAbsolutePath());
+			for (int i = 0; i < sourceTasks.size(); i++) {
+				final InputSource source = allSources.get(i);
+				final Processor fileProcessor;
+				if (sourceTasks.get(i) != null) {
+					fileProcessor = sourceTasks.get(i).get();
+				} else {
+					fileProcessor = processor.createFileProcessor();
+					processCachedInputSource(source, fileProcessor, pool);
+				}
+				processor.mergeFileProcessor(fileProcessor, source);
 			}
-			inputStream.close();
+		} finally {
+			for (ForkJoinTask<Processor> sourceTask : sourceTasks) {
+				if (sourceTask != null) sourceTask.cancel(true);
+			}
+		}
+	}
 
-			LOG.info("Processed " + totalProcessedLines + " lines.");
+	/**
+	 * Looks up the sources in the cache. The sources with the same content as a previous source are skipped
+	 * once that source has been processed, unless it could not be processed.
+	 */
+	private void lookUpCachedSources() {
+		cache.beginLoad();
+		final Iterator<InputSource> sources = allSources.iterator();
+		while (sources.hasNext()) {
+			final InputSource source = sources.next();
+			try {
+				final IngestionCache.Entry entry = cache.lookUp(source);
+				if (entry.isCopy(source)) {
+					copiedSources.put(source, entry);
+				} else {
+					cachedSources.put(source, entry);
+				}
+			} catch (IOException e) {
+				LOG.warn("Could not compare the content of file " + source.getPath() + " with the cached files, it is not cached", e);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the cached records of a source to the processor. A source that is not cached yet is processed and its
+	 * records are cached unless processing fails. A copy of a previous source is skipped if that source has been
+	 * processed, so it must not be called for a copy before the previous source has been processed.
+	 * 
+	 * @param source the source to be processed
+	 * @param fileProcessor the processor for the records of the source
+	 * @param pool the pool for parsing the chunks or null if the source is parsed by the current thread
+	 */
+	private void processCachedInputSource(InputSource source, Processor fileProcessor, ForkJoinPool pool) {
+		final IngestionCache.Entry copiedEntry = copiedSources.get(source);
+		if (copiedEntry != null) {
+			if (copiedEntry.isComplete()) {
+				LOG.info("Skipping file " + source.getPath() + " since it has the same content as another file");
+				fileProcessed(source);
+			} else {
+				LOG.info("Processing file " + source.getPath() + " since the file with the same content could not be processed");
+				processInputSource(source, fileProcessor, pool);
+			}
+			return;
+		}
+		
+		final IngestionCache.Entry entry = cachedSources.get(source);
+		if (entry == null) {
+			processInputSource(source, fileProcessor, pool);
+		} else if (entry.isComplete()) {
+			try {
+				fileProcessor.addCachedRecords(entry.getRecords(), source);
+			} finally {
+				fileProcessed(source);
+			}
+		} else {
+			fileProcessor.collectRecords(entry.getRecords());
+			try {
+				if (processInputSource(source, fileProcessor, pool)) entry.complete();
+			} finally {
+				fileProcessor.collectRecords(null);
+			}
+		}
+	}
+	
+	/**
+	 * Processes a single source. Files larger than a chunk are parsed in chunks if a pool is supplied,
+	 * the entries of nested archives are parsed one after another.
+	 * 
+	 * @param source the source to be processed
+	 * @param fileProcessor the processor for the lines of the source
+	 * @param pool the pool for parsing the chunks or null if the source is parsed by the current thread
+	 * @return false if the source could not be processed completely
+	 */
+	public boolean processInputSource(InputSource source, Processor fileProcessor, ForkJoinPool pool) {
+		try {
+			final File file = source.getFile();
+			if (source.isArchive()) {
+				final CountingInputStream archiveStream = new CountingInputStream(source.openRawStream());
+				ZipInputStream zipStream = null;
+				try {
+					zipStream = new ZipInputStream(readAhead(source.decode(archiveStream)));
+					processArchive(source, zipStream, archiveStream, source, fileProcessor);
+				} finally {
+					if (zipStream != null) zipStream.close(); else archiveStream.close();
+				}
+			} else if (BYTE_LINES_SUPPORTED && file != null && pool != null && file.length() > CHUNK_SIZE) {
+				processInputFileInChunks(source, fileProcessor, pool);
+			} else if (BYTE_LINES_SUPPORTED && file != null) {
+				final MarkerLineReader reader = new MarkerLineReader(file, 0, file.length(), CHARSET, MARKERS);
+				if (readAhead > 0) reader.setPrefetchExecutor(READ_AHEAD_EXECUTOR);
+				processLines(source, reader, fileProcessor, source);
+			} else {
+				final CountingInputStream stream = new CountingInputStream(source.openRawStream());
+				LineReader reader = null;
+				try {
+					reader = new StreamLineReader(readAhead(source.decode(stream)), stream, CHARSET, MARKERS);
+				} finally {
+					if (reader == null) stream.close();
+				}
+				processLines(source, reader, fileProcessor, source);
+			}
 
-			// call the after hook
-			processor.afterSingleFileParsed(file);
+			LOG.info("Processed " + totalProcessedBytes + " bytes.");
+			return true;
 		} catch (Exception e) {
-			LOG.error("Exception while processing file " + file.getAbsolutePath(), e);
+			LOG.error("Exception while processing file " + source.getPath(), e);
+			return false;
 		} finally {
-			processedFiles++;
 			// when processed a file, notify the observers that we are done with the file
-			setChanged();
-			notifyObservers(new ParsingFileHasFinishedEvent(this, file.getName()));
+			fileProcessed(source);
 		}
 	}
-
-	private void extractEntry(ZipEntry entry, InputStream is, String targetDir) throws IOException {
-		String extractedFile = targetDir.concat(File.separator).concat(entry.getName());
-		FileOutputStream fos = null;
-
+	
+	/**
+	 * @param in a stream of a log or an archive
+	 * @return the stream that is read ahead by another thread or the stream itself if the read-ahead is disabled
+	 */
+	private InputStream readAhead(InputStream in) {
+		if (readAhead == 0) return in;
+		return new ReadAheadInputStream(in, bufferPool, readAhead, READ_AHEAD_EXECUTOR);
+	}
+	
+	/**
+	 * Parses the entries of an archive in the order of the archive. Archives within the archive
+	 * are parsed recursively, nothing is extracted to the disk.
+	 * 
+	 * @param archive the archive
+	 * @param archiveStream the stream of the archive
+	 * @param progress the stream whose consumed bytes are reported as progress
+	 * @param progressSource the source the progress is reported for
+	 * @param fileProcessor the processor for the lines of the entries
+	 */
+	private void processArchive(InputSource archive, ZipInputStream archiveStream, CountingInputStream progress, InputSource progressSource, Processor fileProcessor) throws IOException, InterruptedException, ExecutionException {
+		ZipEntry entry = null;
+		while ((entry = archiveStream.getNextEntry()) != null) {
+			if (entry.isDirectory()) continue;
+			
+			final InputSource source = CompressedInputSource.decompressed(new NestedEntryInputSource(archive, entry, archiveStream));
+			if (source.isArchive()) {
+				LOG.debug("Processing nested archive " + source.getPath());
+				processArchive(source, new ZipInputStream(source.openStream()), progress, progressSource, fileProcessor);
+			} else {
+				processLines(source, new StreamLineReader(source.openStream(), progress, CHARSET, MARKERS), fileProcessor, progressSource);
+			}
+		}
+	}
+	
+	/**
+	 * Passes the lines of a log to the processor, starting with the before hook and ending with the after hook.
+	 * 
+	 * @param source the log
+	 * @param reader the reader for the lines of the log, it is closed afterwards
+	 * @param fileProcessor the processor for the lines
+	 * @param progressSource the source the progress is reported for
+	 */
+	private void processLines(InputSource source, LineReader reader, Processor fileProcessor, InputSource progressSource) throws IOException, InterruptedException, ExecutionException {
+		try {
+			long reportedBytes = reader.getPosition();
+			
+			// call the before hook
+			final LineBatch headLines = readHeadLines(reader);
+			fileProcessor.beforeSingleFileParsed(source, headLines);
+			
+			if (pipeline != null) {
+				reportedBytes = processLinesInPipeline(source, reader, headLines, fileProcessor, progressSource, reportedBytes);
+			} else {
+				fileProcessor.handleLines(headLines, source);
+				final LineBatch batch = new LineBatch(BATCH_LINES);
+				while (reader.readLines(batch)) {
+					// call the processor callback to process the lines
+					fileProcessor.handleLines(batch, source);
+					
+					// the skipped lines are reported along with the next batch
+					addProcessedBytes(reader.getPosition() - reportedBytes, progressSource);
+					reportedBytes = reader.getPosition();
+				}
+			}
+			addProcessedBytes(reader.getPosition() - reportedBytes, progressSource);
+			
+			// call the after hook
+			fileProcessor.afterSingleFileParsed(source);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Reads the lines in batches that are parsed and handed over to the processor by the pipeline.
+	 * 
+	 * @param headLines the lines that have been read already
+	 * @param reportedBytes the position of the reader that has been reported as progress
+	 * @return the position of the reader that has been reported as progress
+	 */
+	private long processLinesInPipeline(InputSource source, LineReader reader, LineBatch headLines, Processor fileProcessor, InputSource progressSource, long reportedBytes) throws IOException, InterruptedException, ExecutionException {
+		final StageStatistics readStatistics = pipeline.getReadStatistics();
+		final ParsingPipeline.Run run = pipeline.start(source, fileProcessor);
 		try {
-			fos = new FileOutputStream(extractedFile);
+			if (!headLines.isEmpty()) run.submit(headLines);
+			
+			LineBatch batch = run.acquireBatch();
+			long batchStart = System.nanoTime();
+			while (reader.readLines(batch)) {
+				readStatistics.batchHandled(batch.size(), System.nanoTime() - batchStart);
+				run.submit(batch);
+				addProcessedBytes(reader.getPosition() - reportedBytes, progressSource);
+				reportedBytes = reader.getPosition();
+				
+				batch = run.acquireBatch();
+				batchStart = System.nanoTime();
+			}
+		} finally {
+			// wait for the records, the after hook may only be called afterwards
+			run.finish();
+		}
+		return reportedBytes;
+	}
+	
+	private LineBatch readHeadLines(LineReader reader) throws IOException {
+		final LineBatch headLines = new LineBatch(HEAD_LINES);
+		reader.readLines(headLines);
+		return headLines;
+	}
+	
+	/**
+	 * Cuts the file into chunks and parses them on the pool. The records are handed over
+	 * to the processor in the order of the chunks, regardless of the order the chunks finish in.
+	 * 
+	 * @param source the file to be processed
+	 * @param fileProcessor the processor for the records of the file
+	 * @param pool the pool for parsing the chunks
+	 */
+	private void processInputFileInChunks(InputSource source, Processor fileProcessor, ForkJoinPool pool) throws IOException, InterruptedException, ExecutionException {
+		final File file = source.getFile();
+		
+		// call the before hook, the head lines are parsed again as part of the first chunk
+		final LineReader headReader = new MarkerLineReader(file, 0, Math.min(file.length(), CHUNK_SIZE), CHARSET, MARKERS);
+		try {
+			fileProcessor.beforeSingleFileParsed(source, readHeadLines(headReader));
+		} finally {
+			headReader.close();
+		}
+		
+		final List<long[]> chunks = splitIntoChunks(file);
+		LOG.debug("Parsing file " + file.getAbsolutePath() + " in " + chunks.size() + " chunks");
+		
+		// only a limited number of chunks is parsed ahead, so the memory does not depend on the file size
+		final Deque<ForkJoinTask<List<RMRecord>>> pendingChunks = new ArrayDeque<ForkJoinTask<List<RMRecord>>>();
+		final int maxPendingChunks = PENDING_CHUNKS_PER_THREAD * parallelism;
+		int nextChunk = 0;
+		try {
+			while (nextChunk < chunks.size() || !pendingChunks.isEmpty()) {
+				while (nextChunk < chunks.size() && pendingChunks.size() < maxPendingChunks) {
+					final long[] chunk = chunks.get(nextChunk++);
+					pendingChunks.add(pool.submit(new ChunkParser(source, fileProcessor, chunk[0], chunk[1])));
+				}
+				fileProcessor.handleRecords(pendingChunks.poll().get(), source);
+			}
+		} finally {
+			for (ForkJoinTask<List<RMRecord>> pendingChunk : pendingChunks) {
+				pendingChunk.cancel(true);
+			}
+		}
+		
+		// call the after hook
+		fileProcessor.afterSingleFileParsed(source);
+	}
+	
+	/**
+	 * Cuts the file into byte ranges of about the chunk size. Every range ends behind 
+	 * a line break, so no line is split between two chunks.
+	 * 
+	 * @param file the file to be split
+	 * @return the start (inclusive) and end (exclusive) offsets of the chunks
+	 */
+	private List<long[]> splitIntoChunks(File file) throws IOException {
+		final List<long[]> chunks = new ArrayList<long[]>();
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final long length = raf.length();
 			final byte[] buf = new byte[8192];
-			int length;
+			long start = 0;
+			while (start < length) {
+				long end = Math.min(start + CHUNK_SIZE, length);
+				if (end < length) {
+					// move the end behind the next line break
+					raf.seek(end - 1);
+					long pos = end - 1;
+					end = length;
+					int read;
+					search: while ((read = raf.read(buf)) > 0) {
+						for (int i = 0; i < read; i++) {
+							if (buf[i] == '\n') {
+								end = pos + i + 1;
+								break search;
+							}
+						}
+						pos += read;
+					}
+				}
+				chunks.add(new long[] { start, end });
+				start = end;
+			}
+		} finally {
+			raf.close();
+		}
+		return chunks;
+	}
+	
+	/**
+	 * Parses the lines of a byte range of a file into records.
+	 */
+	private class ChunkParser implements Callable<List<RMRecord>> {
+		private final InputSource source;
+		private final Processor fileProcessor;
+		private final long start;
+		private final long end;
 
-			while ((length = is.read(buf, 0, buf.length)) >= 0)
-				fos.write(buf, 0, length);
+		private ChunkParser(InputSource source, Processor fileProcessor, long start, long end) {
+			this.source = source;
+			this.fileProcessor = fileProcessor;
+			this.start = start;
+			this.end = end;
+		}
 
+		@Override
+		public List<RMRecord> call() throws Exception {
+			final RecordParser parser = fileProcessor.createRecordParser(source);
+			final List<RMRecord> records = new ArrayList<RMRecord>();
+			final MarkerLineReader reader = new MarkerLineReader(source.getFile(), start, end, CHARSET, MARKERS);
+			try {
+				final LineBatch batch = new LineBatch(BATCH_LINES);
+				while (reader.readLines(batch)) {
+					parser.parseLines(batch, records);
+				}
+				parser.getStore().trimToSize();
+				addProcessedBytes(end - start, source);
+			} finally {
+				reader.close();
+			}
+			return records;
+		}
+	}
+
+	/**
+	 * Follows a growing log until {@link #stopFollowing()} is called. The existing lines are parsed first,
+	 * afterwards only the lines appended since the last check are parsed, so the cost of a check depends on
+	 * the appended bytes only. Incomplete lines at the end of the log are parsed as soon as they are complete.<br>
+	 * The log is rotated if it is replaced by another file (detected by the file key, e.g. the inode) or
+	 * truncated. The remaining lines of a replaced log are parsed before the new log is followed from its beginning.
+	 * 
+	 * @param file the log to be followed
+	 */
+	public void followInputFile(File file) {
+		if (!BYTE_LINES_SUPPORTED) {
+			LOG.error("Following a file is not supported for the charset " + CHARSET);
+			return;
+		}
+		
+		following = true;
+		final InputSource source = new FileInputSource(file);
+		FileChannel channel = null;
+		Object fileKey = null;
+		long position = 0;
+		try {
+			while (following) {
+				if (channel == null && file.isFile()) {
+					LOG.info("Following file " + file.getAbsolutePath());
+					channel = new FileInputStream(file).getChannel();
+					fileKey = getFileKey(file);
+					position = 0;
+				}
+				
+				if (channel != null) {
+					final long size = channel.size();
+					if (size < position) {
+						LOG.info("File " + file.getAbsolutePath() + " has been truncated, following it from the beginning");
+						position = 0;
+					}
+					final long lineEnd = findLineEnd(channel, position, size);
+					if (lineEnd > position) {
+						position = followLines(source, channel, position, lineEnd);
+						followedLinesParsed(file, fileKey, position);
+					}
+					
+					final Object currentFileKey = getFileKey(file);
+					if (currentFileKey == null || !currentFileKey.equals(fileKey)) {
+						// the log has been rotated, its last line is complete even without a line break
+						LOG.info("File " + file.getAbsolutePath() + " has been rotated");
+						if (channel.size() > position) followLines(source, channel, position, channel.size());
+						channel.close();
+						channel = null;
+						continue;
+					}
+				}
+				Thread.sleep(FOLLOW_INTERVAL);
+			}
+		} catch (InterruptedException e) {
+			LOG.info("Following file " + file.getAbsolutePath() + " has been interrupted");
 		} catch (Exception e) {
-			LOG.error("Exception while extracting entry " + entry.getName(), e);
+			LOG.error("Exception while following file " + file.getAbsolutePath(), e);
+		} finally {
+			following = false;
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					LOG.error("Exception while closing file " + file.getAbsolutePath(), e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Stops following the log, the lines that are currently parsed are finished.
+	 */
+	public void stopFollowing() {
+		following = false;
+	}
+	
+	/**
+	 * Counts a followed log as parsed up to the given length, so its fingerprint no longer matches once more
+	 * lines are appended or the log is rotated.
+	 */
+	private void followedLinesParsed(File file, Object fileKey, long length) {
+		parsedFiles.put(file.getAbsolutePath(), new FileState(length, file.lastModified(), fileKey));
+	}
+	
+	/**
+	 * Parses the lines of a range of a followed log. The layout of the log is detected when it is read from the beginning.
+	 * 
+	 * @return the end of the range
+	 */
+	private long followLines(InputSource source, FileChannel channel, long start, long end) throws IOException {
+		final LineReader reader = new MarkerLineReader(channel, start, end, CHARSET, MARKERS);
+		try {
+			if (start == 0) {
+				// call the before hook
+				final LineBatch headLines = readHeadLines(reader);
+				processor.beforeSingleFileParsed(source, headLines);
+				processor.handleLines(headLines, source);
+			}
+			final LineBatch batch = new LineBatch(BATCH_LINES);
+			while (reader.readLines(batch)) {
+				processor.handleLines(batch, source);
+			}
 		} finally {
-			fos.close();
+			reader.close();
+		}
+		processor.afterAppendedLinesParsed(source);
+		return end;
+	}
+	
+	/**
+	 * @return the offset after the last line break in the range or the start if there is no line break
+	 */
+	private static long findLineEnd(FileChannel channel, long start, long end) throws IOException {
+		final ByteBuffer block = ByteBuffer.allocate(LINE_END_BLOCK_SIZE);
+		long blockEnd = end;
+		while (blockEnd > start) {
+			final long blockStart = Math.max(start, blockEnd - LINE_END_BLOCK_SIZE);
+			block.clear();
+			block.limit((int) (blockEnd - blockStart));
+			while (block.hasRemaining() && channel.read(block, blockStart + block.position()) >= 0);
+			for (int i = block.position() - 1; i >= 0; i--) {
+				if (block.get(i) == '\n') return blockStart + i + 1;
+			}
+			blockEnd = blockStart;
+		}
+		return start;
+	}
+	
+	/**
+	 * @return the key that identifies the file, e.g. the inode, or null if the file does not exist
+	 */
+	private static Object getFileKey(File file) {
+		try {
+			final Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+			// file systems without file keys are detected by the file itself
+			return fileKey != null ? fileKey : file.getAbsoluteFile();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Watches the folders and their sub folders until {@link #stopWatching()} is called. Files that are created
+	 * or modified in the folders, e.g. rotated logs, are parsed once they have not changed for an interval, so
+	 * files that are still copied are not parsed too early. Their records are merged into the dataset of the
+	 * processor. Files that have been parsed before with the same size and modification time are skipped.<br>
+	 * A log that has grown since it has been parsed, or that has been renamed, e.g. the rotated copy of an active
+	 * log, is recognized by its file key, only the lines appended since then are parsed. A log that has been
+	 * truncated or replaced, e.g. by a copy, is parsed again from its beginning.
+	 * 
+	 * @param directories the folders to be watched
+	 */
+	public void watchDirectories(List<File> directories) {
+		watching = true;
+		WatchService watchService = null;
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			for (File directory : directories) {
+				LOG.info("Watching folder " + directory.getAbsolutePath());
+				registerDirectory(watchService, directory);
+			}
+			
+			// the created or modified files with their state at the last check
+			final Map<File, FileState> pendingFiles = new LinkedHashMap<File, FileState>();
+			while (watching) {
+				final WatchKey key = watchService.poll(WATCH_INTERVAL, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							LOG.warn("Events of the watched folder " + key.watchable() + " have been lost");
+							continue;
+						}
+						final File file = ((Path) key.watchable()).resolve((Path) event.context()).toFile();
+						if (file.isDirectory()) {
+							// files may have been added to the new folder before it was registered
+							registerDirectory(watchService, file);
+							for (File newFile : new FileDetector(file.getAbsolutePath()).getAllFiles()) {
+								pendingFiles.put(newFile, null);
+							}
+						} else {
+							pendingFiles.put(file, null);
+						}
+					}
+					key.reset();
+				}
+				processStableFiles(pendingFiles);
+			}
+		} catch (InterruptedException e) {
+			LOG.info("Watching the folders has been interrupted");
+		} catch (Exception e) {
+			LOG.error("Exception while watching the folders " + directories, e);
+		} finally {
+			watching = false;
+			if (watchService != null) {
+				try {
+					watchService.close();
+				} catch (IOException e) {
+					LOG.error("Exception while closing the watch service", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Stops watching the folders, the file that is currently parsed is finished and merged.
+	 */
+	public void stopWatching() {
+		watching = false;
+	}
+	
+	private void registerDirectory(final WatchService watchService, File directory) throws IOException {
+		Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+				dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
+	/**
+	 * Parses the pending files that have not changed since the last check, at least for the watch interval.
+	 * 
+	 * @param pendingFiles the created or modified files with their state at the last check
+	 */
+	private void processStableFiles(Map<File, FileState> pendingFiles) {
+		final long now = System.currentTimeMillis();
+		final Iterator<Map.Entry<File, FileState>> pendingIterator = pendingFiles.entrySet().iterator();
+		while (pendingIterator.hasNext() && watching) {
+			final Map.Entry<File, FileState> pendingFile = pendingIterator.next();
+			final File file = pendingFile.getKey();
+			if (!file.isFile()) {
+				// the file has been moved or deleted in the meantime
+				pendingIterator.remove();
+				continue;
+			}
+			
+			final FileState state = new FileState(file);
+			final FileState lastState = pendingFile.getValue();
+			if (!state.equals(lastState)) {
+				pendingFile.setValue(state);
+			} else if (now - lastState.checked >= WATCH_INTERVAL) {
+				pendingIterator.remove();
+				if (state.equals(parsedFiles.get(file.getAbsolutePath()))) {
+					LOG.debug("Skipping file " + file.getAbsolutePath() + " since it has been parsed before");
+					continue;
+				}
+				final Object fileKey = getFileKey(file);
+				final FileState parsedState = getParsedState(file, fileKey);
+				if (parsedState == null || parsedState.size > state.size || !isAppendable(file)) {
+					processWatchedFile(file);
+				} else if (parsedState.size == state.size) {
+					LOG.debug("Skipping file " + file.getAbsolutePath() + " since no lines have been appended since it has been parsed");
+					parsedFiles.put(file.getAbsolutePath(), new FileState(state.size, state.lastModified, fileKey));
+				} else {
+					processAppendedLines(file, fileKey, parsedState.size, state);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Parses the sources of a file from a watched folder one after another and merges them into the dataset of the processor.
+	 */
+	private void processWatchedFile(File file) {
+		LOG.info("Parsing file " + file.getAbsolutePath() + " of a watched folder");
+		final int firstSource = allSources.size();
+		preProcessInputFiles(Collections.singletonList(file));
+		try {
+			for (InputSource source : new ArrayList<InputSource>(allSources.subList(firstSource, allSources.size()))) {
+				final Processor fileProcessor = processor.createFileProcessor();
+				processInputSource(source, fileProcessor, null);
+				processor.mergeWatchedFileProcessor(fileProcessor, source);
+			}
+		} finally {
+			closeZipFiles();
+		}
+	}
+	
+	/**
+	 * @return the state of the file when it has been parsed, by its path or by its former path if it has been
+	 * renamed, or null if it has not been parsed with the given file key
+	 */
+	private FileState getParsedState(File file, Object fileKey) {
+		if (fileKey == null) return null;
+		final FileState state = parsedFiles.get(file.getAbsolutePath());
+		if (state != null && fileKey.equals(state.fileKey)) return state;
+		for (FileState parsedState : parsedFiles.values()) {
+			if (fileKey.equals(parsedState.fileKey)) return parsedState;
+		}
+		return null;
+	}
+	
+	/**
+	 * @return true if the lines appended to the file can be parsed on their own, i.e. it is a plain log
+	 */
+	private static boolean isAppendable(File file) {
+		final InputSource source = new FileInputSource(file);
+		return BYTE_LINES_SUPPORTED && !source.isArchive() && CompressedInputSource.decompressed(source) == source;
+	}
+	
+	/**
+	 * Parses the lines of a file from a watched folder that have been appended since it has been parsed up to
+	 * the given position and merges them into the dataset of the processor. The layout of the log is detected
+	 * from its first lines as usual.
+	 * 
+	 * @param start the position up to which the file has been parsed
+	 * @param state the state of the file that is parsed
+	 */
+	private void processAppendedLines(File file, Object fileKey, long start, FileState state) {
+		LOG.info("Parsing the lines appended to file " + file.getAbsolutePath() + " of a watched folder from byte " + start);
+		parsedFiles.put(file.getAbsolutePath(), new FileState(state.size, state.lastModified, fileKey));
+		final InputSource source = new FileInputSource(file);
+		final Processor fileProcessor = processor.createFileProcessor();
+		try {
+			// call the before hook, the head lines have been parsed before
+			final LineReader headReader = new MarkerLineReader(file, 0, state.size, CHARSET, MARKERS);
+			try {
+				fileProcessor.beforeSingleFileParsed(source, readHeadLines(headReader));
+			} finally {
+				headReader.close();
+			}
+			
+			final LineReader reader = new MarkerLineReader(file, start, state.size, CHARSET, MARKERS);
+			try {
+				final LineBatch batch = new LineBatch(BATCH_LINES);
+				while (reader.readLines(batch)) {
+					fileProcessor.handleLines(batch, source);
+				}
+			} finally {
+				reader.close();
+			}
+			fileProcessor.afterSingleFileParsed(source);
+			processor.mergeWatchedFileProcessor(fileProcessor, source);
+		} catch (Exception e) {
+			LOG.error("Exception while parsing the lines appended to file " + file.getAbsolutePath(), e);
+		}
+	}
+	
+	/**
+	 * The size and the modification time of a file, they change whenever the file is written.
+	 */
+	private static class FileState {
+		private final long size;
+		private final long lastModified;
+		// the key of the file that has been parsed, e.g. the inode, null if it is unknown, it is not compared
+		private final Object fileKey;
+		// time when the state has been determined, it is not compared
+		private final long checked;
+		
+		private FileState(File file) {
+			this(file, null);
+		}
+		
+		private FileState(File file, Object fileKey) {
+			this(file.length(), file.lastModified(), fileKey);
+		}
+		
+		private FileState(long size, long lastModified) {
+			this(size, lastModified, null);
+		}
+		
+		private FileState(long size, long lastModified, Object fileKey) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.fileKey = fileKey;
+			this.checked = System.currentTimeMillis();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FileState)) return false;
+			final FileState other = (FileState) obj;
+			return size == other.size && lastModified == other.lastModified;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (int) (size ^ lastModified);
+		}
+	}
+
+	/**
+	 * @return the fingerprints of the files that have been parsed, the files of folders and ZIP files included,
+	 * a followed log with the length that has been parsed
+	 */
+	public List<FileFingerprint> getParsedFiles() {
+		final List<FileFingerprint> fingerprints = new ArrayList<FileFingerprint>();
+		for (Map.Entry<String, FileState> parsedFile : parsedFiles.entrySet()) {
+			final FileState state = parsedFile.getValue();
+			fingerprints.add(new FileFingerprint(parsedFile.getKey(), state.size, state.lastModified));
+		}
+		return fingerprints;
+	}
+	
+	/**
+	 * Counts files as parsed whose records have been added otherwise, e.g. from a snapshot, so they are
+	 * skipped if they show up in a watched folder.
+	 * @param fingerprints the fingerprints of the files
+	 */
+	public void addParsedFiles(List<FileFingerprint> fingerprints) {
+		for (FileFingerprint fingerprint : fingerprints) {
+			parsedFiles.put(fingerprint.getPath(), new FileState(fingerprint.getSize(), fingerprint.getLastModified()));
 		}
 	}
 
 	public void reset() {
-		allFiles = new ArrayList<File>();
-		tmpExtractFolders = new ArrayList<File>();
-		fileLinesMap = new HashMap<String, Integer>();
-		totalLinesAmount = 0l;
-		totalProcessedLines = 0l;
+		allSources = new ArrayList<InputSource>();
+		openZipFiles = new ArrayList<ZipFile>();
+		parsedFiles = new ConcurrentHashMap<String, FileState>();
+		fileSizeMap = new HashMap<String, Long>();
+		processedBytesMap = new HashMap<String, Long>();
+		lastPercentMap = new HashMap<String, Integer>();
+		totalBytesAmount = 0l;
+		totalProcessedBytes = 0l;
 		processedFiles = 0;
 	}
+
+	/**
+	 * @param cache the cache of the records of the loaded files or null if the files are parsed whenever they are loaded
+	 */
+	public void setIngestionCache(IngestionCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @param parallelism the number of threads that parse the files and the chunks of large files,
+	 * 1 disables the parallel parsing
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		createBufferPool();
+	}
+
+	/**
+	 * @param readAhead the number of blocks that are read ahead of the parser from a stream,
+	 * 0 disables reading ahead. Mapped files prefetch the next window unless it is disabled.
+	 */
+	public void setReadAhead(int readAhead) {
+		this.readAhead = Math.max(0, readAhead);
+		createBufferPool();
+	}
+	
+	/**
+	 * @param parseThreads the number of threads that parse the lines of the logs read by the other threads,
+	 * 0 parses the lines on the threads reading them
+	 */
+	public void setParseThreads(int parseThreads) {
+		this.parseThreads = Math.max(0, parseThreads);
+	}
+	
+	private void createBufferPool() {
+		// every stream holds the blocks in the queue, the one that is parsed and the one that is read
+		bufferPool = new BufferPool(READ_AHEAD_BLOCK_SIZE, parallelism * (readAhead + 2));
+	}
 }
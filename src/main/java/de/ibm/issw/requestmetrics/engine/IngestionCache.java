@@ -0,0 +1,222 @@
+package de.ibm.issw.requestmetrics.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ibm.issw.requestmetrics.engine.io.FileFingerprint;
+import de.ibm.issw.requestmetrics.engine.io.InputSource;
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+
+/**
+ * Keeps the records of the logs that have been loaded, so a log that is loaded again is not parsed again, e.g. when
+ * a folder is reloaded after some logs have been added. A log is cached by its path, its size and its modification
+ * time. A log that has not been cached with the same fingerprint is compared with the logs of the same size that
+ * can still be read, i.e. the logs of the same load and the files that have not been changed since they were
+ * loaded: the contents are compared byte by byte, so a log is only taken as a copy of another log if it has
+ * exactly the same content, e.g. a log in a folder and the same log in a ZIP file or a copied log. Logs without a
+ * cached log of the same size are not read before they are parsed.<br>
+ * The cached records stay in the stores of the parsers, the datasets they are added to must share the symbol table
+ * and the allocator of the stores. The records of the logs that are not part of a load are dropped at its end.<br>
+ * A load is prepared by a single thread, the logs may be parsed and added concurrently. The methods are thread safe.
+ */
+public class IngestionCache {
+	public static final Logger LOG = LoggerFactory.getLogger(IngestionCache.class);
+
+	// the logs by their paths and by their sizes
+	private final Map<String, Entry> pathEntries = new HashMap<String, Entry>();
+	private final Map<Long, List<Entry>> sizeEntries = new HashMap<Long, List<Entry>>();
+	// the logs of the current load
+	private final Map<Entry, Boolean> loadedEntries = new IdentityHashMap<Entry, Boolean>();
+
+	/**
+	 * Starts a load, the logs of the previous load are not part of it.
+	 */
+	public synchronized void beginLoad() {
+		loadedEntries.clear();
+	}
+
+	/**
+	 * Looks up a log of the current load.
+	 * @param source the log
+	 * @return the entry of the log, its records are cached if it is complete, otherwise they are to be added to it
+	 * while the log is parsed. If a log with the same content is part of the load already its entry is returned,
+	 * see {@link Entry#isCopy(InputSource)}, the log only needs to be parsed if that log can not be parsed
+	 * @throws IOException if the content of the log could not be compared with the content of a cached log
+	 */
+	public Entry lookUp(InputSource source) throws IOException {
+		final FileFingerprint fingerprint = new FileFingerprint(source.getPath(), source.getSize(), source.getLastModified());
+		Entry entry = getEntry(fingerprint);
+		if (entry == null) {
+			// the contents are compared without holding the lock, the footprint may be taken meanwhile
+			for (Entry candidate : getCandidates(fingerprint.getSize())) {
+				if (source.hasSameContent(candidate.source)) {
+					entry = candidate;
+					break;
+				}
+			}
+		}
+		return load(entry, fingerprint, source);
+	}
+
+	/**
+	 * @return the complete entry of the log with the same fingerprint or null
+	 */
+	private synchronized Entry getEntry(FileFingerprint fingerprint) {
+		final Entry entry = pathEntries.get(fingerprint.getPath());
+		return entry != null && entry.complete && entry.fingerprint.equals(fingerprint) ? entry : null;
+	}
+
+	/**
+	 * @return the entries of the logs of the size whose contents can be read: the logs of the current load and the
+	 * complete logs whose files have not been changed since they were loaded
+	 */
+	private synchronized List<Entry> getCandidates(long size) {
+		final List<Entry> candidates = new ArrayList<Entry>();
+		final List<Entry> entries = sizeEntries.get(size);
+		if (entries == null) return candidates;
+		for (Entry entry : entries) {
+			// the entries of an archive of a previous load are not current, the archive has been closed
+			if (loadedEntries.containsKey(entry) || (entry.complete && entry.fingerprint.isCurrent())) {
+				candidates.add(entry);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Adds an entry to the current load.
+	 * @param entry the entry of the log with the same fingerprint or content or null if there is none
+	 * @return the entry, a new one if there was none, it is not changed if it is part of the current load already
+	 */
+	private synchronized Entry load(Entry entry, FileFingerprint fingerprint, InputSource source) {
+		if (entry == null) {
+			entry = new Entry(fingerprint.getSize());
+			List<Entry> entries = sizeEntries.get(entry.size);
+			if (entries == null) {
+				entries = new ArrayList<Entry>();
+				sizeEntries.put(entry.size, entries);
+			}
+			entries.add(entry);
+		}
+		// a copy of a log of the current load keeps the log the records are taken from
+		if (loadedEntries.put(entry, Boolean.TRUE) != null) return entry;
+		entry.fingerprint = fingerprint;
+		entry.source = source;
+		pathEntries.put(fingerprint.getPath(), entry);
+		return entry;
+	}
+
+	/**
+	 * Ends a load: the records of the logs that have not been part of it are released, the incomplete logs are dropped.
+	 */
+	public synchronized void endLoad() {
+		int released = 0;
+		final Iterator<List<Entry>> sizes = sizeEntries.values().iterator();
+		while (sizes.hasNext()) {
+			final List<Entry> entries = sizes.next();
+			final Iterator<Entry> logs = entries.iterator();
+			while (logs.hasNext()) {
+				final Entry entry = logs.next();
+				if (!loadedEntries.containsKey(entry)) {
+					// the records are not part of the dataset of the load
+					entry.records.release();
+					logs.remove();
+					released++;
+				} else if (!entry.complete) {
+					// the records that have been added before the failure are still part of the dataset
+					logs.remove();
+				}
+			}
+			if (entries.isEmpty()) sizes.remove();
+		}
+		final Iterator<Entry> paths = pathEntries.values().iterator();
+		while (paths.hasNext()) {
+			final Entry entry = paths.next();
+			if (!loadedEntries.containsKey(entry) || !entry.complete) paths.remove();
+		}
+		if (released > 0) LOG.info("Released the cached records of " + released + " logs that have not been loaded again");
+	}
+
+	/**
+	 * Drops the records of all logs, e.g. when the records are stored otherwise. The records may still be part of a
+	 * dataset, their stores are released along with its allocator when the dataset is cleared.
+	 */
+	public synchronized void clear() {
+		sizeEntries.clear();
+		pathEntries.clear();
+		loadedEntries.clear();
+	}
+
+	public synchronized boolean isEmpty() {
+		return sizeEntries.isEmpty();
+	}
+
+	/**
+	 * Adds the bytes of the order of the cached records to the footprint.
+	 */
+	public synchronized void addFootprint(MemoryFootprint footprint) {
+		for (List<Entry> entries : sizeEntries.values()) {
+			for (Entry entry : entries) {
+				entry.records.addFootprint(footprint);
+			}
+		}
+	}
+
+	/**
+	 * A cached log.
+	 */
+	public static final class Entry {
+		private final CachedRecords records = new CachedRecords();
+		// the size of the logs, it is the same for all logs of the entry
+		private final long size;
+		private FileFingerprint fingerprint;
+		// the log the content is compared with
+		private InputSource source;
+		private volatile boolean complete;
+
+		private Entry(long size) {
+			this.size = size;
+		}
+
+		/**
+		 * @return true if all records of the log have been added, otherwise the log needs to be parsed
+		 */
+		public boolean isComplete() {
+			return complete;
+		}
+
+		/**
+		 * @param log a log of the current load that has been looked up
+		 * @return true if the log is a copy of another log of the current load that the records are taken from
+		 */
+		public boolean isCopy(InputSource log) {
+			return source != log;
+		}
+
+		/**
+		 * Marks the log as parsed, its records are used by the next load.
+		 */
+		public void complete() {
+			complete = true;
+		}
+
+		public CachedRecords getRecords() {
+			return records;
+		}
+
+		/**
+		 * @return the fingerprint of the log the records have been parsed from
+		 */
+		public FileFingerprint getFingerprint() {
+			return fingerprint;
+		}
+	}
+}
@@ -1,34 +1,111 @@
 package de.ibm.issw.requestmetrics.engine;
 
 import java.io.File;
+import java.util.List;
+
+import de.ibm.issw.requestmetrics.engine.io.InputSource;
+import de.ibm.issw.requestmetrics.engine.io.LineBatch;
+import de.ibm.issw.requestmetrics.engine.parser.RecordParser;
+import de.ibm.issw.requestmetrics.model.RMRecord;
 
 public interface Processor {
 	/**
 	 * Delegator method to transfer workload to the filehandler.
 	 * The filehandler has to ensure to proper open and handle the file.
-	 * 
+	 *
 	 * @param files the files to be processed.
 	 */
 	public void processInputFiles(File[] files);
-	
-	/** 
-	 * The method is called before a single file is parsed.
-	 * @param file the file that is about to be parsed.
+
+	/**
+	 * The method is called before a single log is parsed.
+	 * @param source the log that is about to be parsed.
+	 * @param headLines the first lines of the log, e.g. to detect its layout.
+	 * They are passed to handleLines afterwards as well.
+	 */
+	public void beforeSingleFileParsed(InputSource source, LineBatch headLines);
+
+	/**
+	 * The method is called after a log has been parsed.
+	 * @param source the log that has been parsed.
 	 */
-	public void beforeSingleFileParsed(File file);
-	
+	public void afterSingleFileParsed(InputSource source);
+
 	/**
-	 * The method is called after a file has been parsed.
-	 * @param file the file that has been parsed.
+	 * The method is called with the next lines of a log that need to be parsed
+	 * by the processor. The batch is reused by the caller afterwards, so the
+	 * lines must not be kept beyond the call.
+	 *
+	 * @param lines the lines to be parsed in the order of the log.
+	 * @param source the log that is parsed.
 	 */
-	public void afterSingleFileParsed(File file);
-	
+	public void handleLines(LineBatch lines, InputSource source);
+
+	/**
+	 * The method is called when a log is followed, after the lines appended to the log
+	 * since the last call have been passed to handleLines.
+	 *
+	 * @param source the log that is followed.
+	 */
+	public void afterAppendedLinesParsed(InputSource source);
+
+	/**
+	 * Creates a parser for the lines of a file that is parsed in chunks by multiple threads.
+	 * The method is called after the before hook, so the parser knows the layout of the file.
+	 *
+	 * @param source the log that is parsed.
+	 * @return a new parser that is used by a single thread only.
+	 */
+	public RecordParser createRecordParser(InputSource source);
+
+	/**
+	 * The method is called with the records of a chunk of a file. The chunks are
+	 * handed over in the order they appear in the file.
+	 *
+	 * @param records the records of the chunk in the order of the lines.
+	 * @param source the log that is parsed.
+	 */
+	public void handleRecords(List<RMRecord> records, InputSource source);
+
+	/**
+	 * Collects the records the processor adds from now on, e.g. to cache the records of a log.
+	 *
+	 * @param records receives the records in the order they are added, null stops collecting.
+	 */
+	public void collectRecords(CachedRecords records);
+
+	/**
+	 * Adds the records of a log that have been collected when it was parsed before,
+	 * instead of parsing the log again. The hooks of the log are not called.
+	 *
+	 * @param records the records of the log in the order they have been added.
+	 * @param source the log.
+	 */
+	public void addCachedRecords(CachedRecords records, InputSource source);
+
+	/**
+	 * Creates a processor for a single log that collects the records in its own
+	 * dataset. The processors of different logs can be used concurrently.
+	 *
+	 * @return a new processor for a single log.
+	 */
+	public Processor createFileProcessor();
+
+	/**
+	 * Merges the records of a processor that was created for a single log.
+	 * The processors are merged in the order of the logs.
+	 *
+	 * @param fileProcessor the processor that has parsed the log.
+	 * @param source the log that has been parsed.
+	 */
+	public void mergeFileProcessor(Processor fileProcessor, InputSource source);
+
 	/**
-	 * The method is called when a single line needs to be parsed
-	 * by the processor.
-	 * 
-	 * @param line the line to be parsed.
-	 * @param file the file that is parsed.
+	 * Merges the records of a processor that has parsed a log of a watched folder
+	 * after all files have been processed.
+	 *
+	 * @param fileProcessor the processor that has parsed the log.
+	 * @param source the log that has been parsed.
 	 */
-	public void handleLine(String line, File file);
+	public void mergeWatchedFileProcessor(Processor fileProcessor, InputSource source);
 }
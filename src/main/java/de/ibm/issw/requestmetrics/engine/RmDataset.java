@@ -0,0 +1,730 @@
+package de.ibm.issw.requestmetrics.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ibm.issw.requestmetrics.model.NodeGraph;
+import de.ibm.issw.requestmetrics.model.RMNode;
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+import de.ibm.issw.requestmetrics.model.RmRootCase;
+import de.ibm.issw.requestmetrics.model.SymbolTable;
+import de.ibm.issw.requestmetrics.model.TreeSpill;
+import de.ibm.issw.requestmetrics.util.IntArray;
+import de.ibm.issw.requestmetrics.util.LongIntMap;
+import de.ibm.issw.requestmetrics.util.LongMap;
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+import de.ibm.issw.requestmetrics.util.PageAllocator;
+import de.ibm.issw.requestmetrics.util.Storage;
+import de.ibm.issw.requestmetrics.util.StringPool;
+
+/**
+ * The graph of the parsed records: all nodes by their request id, the root cases and the root case
+ * candidates, i.e. the dummy nodes of parents that have not been found in the logs (yet).<br>
+ * A dataset is filled by a single thread. The datasets of different files can be filled concurrently
+ * and merged afterwards in the order of the files. Datasets that are merged share their symbol table and their
+ * allocator.<br>
+ * The records are kept in the stores of the parsers that created them, only the dummy records are added to a
+ * store of the dataset. The nodes and their children are kept in a {@link NodeGraph} that is frozen once all
+ * records have been added, the index of the nodes only maps the request ids to the indexes of the nodes in the
+ * graph. The stores and the graph are kept outside of the heap if the dataset has an allocator.<br>
+ * With a spill budget the trees of complete root cases are written to a {@link TreeSpill} once the estimated heap
+ * of the dataset exceeds the budget, and their nodes are dropped. The request ids of the spilled nodes are kept, so
+ * a late record of a spilled tree moves the tree back into the graph.
+ */
+public class RmDataset {
+	public static final Logger LOG = LoggerFactory.getLogger(RmDataset.class);
+	// average size of the lines of the request metrics logs, the index of the nodes is sized for the input with it
+	private static final int BYTES_PER_RECORD = 300;
+	private static final int NONE = LongIntMap.NO_VALUE;
+	// number of records that are added between two checks of the spill budget
+	private static final int SPILL_CHECK_INTERVAL = 64 * 1024;
+	// a root case with the views of its node and its record
+	private static final long ROOT_CASE_BYTES = MemoryFootprint.objectBytes(MemoryFootprint.REFERENCE)
+			+ MemoryFootprint.objectBytes(2 * MemoryFootprint.REFERENCE + 4 + 8)
+			+ MemoryFootprint.objectBytes(MemoryFootprint.REFERENCE + 4);
+
+	private LongIntMap allNodes = new LongIntMap();
+	private final List<RmRootCase> rootCases = new ArrayList<RmRootCase>();
+	// the symbols of the types of the root cases, the candidates all have the type of the dummies
+	private final BitSet rootCaseTypes = new BitSet();
+	private final LongMap<RmRootCase> rootCaseCandidates = new LongMap<RmRootCase>();
+	private SymbolTable symbols;
+	private Storage storage;
+	// null if the dataset is kept on the heap
+	private PageAllocator allocator;
+	private RecordStore dummies;
+	private NodeGraph graph;
+	// the size of the inputs whose records have been added
+	private long inputBytes;
+	// the estimated heap bytes the trees are spilled at or 0 if they are kept in memory
+	private long spillBudget;
+	// created with the first spilled tree
+	private TreeSpill spill;
+	private RecordStore summaries;
+	// the spilled root cases and the indexes of their root cases by the request ids of the spilled nodes
+	private final List<RmRootCase> spilledRootCases = new ArrayList<RmRootCase>();
+	private final LongIntMap spilledNodes = new LongIntMap();
+	private int addedSinceSpillCheck;
+	// the root cases before this index have been complete for a whole check interval at the next check
+	private int rootCasesAtSpillCheck;
+	// number of times the nodes have been compacted
+	private int compactions;
+
+	public RmDataset() {
+		this(new SymbolTable(), null);
+	}
+
+	/**
+	 * @param symbols the symbol table of the dataset the records are merged into
+	 * @param allocator the allocator of the dataset the records are merged into or null if it is kept on the heap
+	 */
+	public RmDataset(SymbolTable symbols, PageAllocator allocator) {
+		this.symbols = symbols;
+		this.allocator = allocator;
+		this.dummies = new RecordStore(symbols, allocator);
+		this.graph = new NodeGraph(allocator);
+	}
+
+	/**
+	 * @return a new store for the records of a parser
+	 */
+	public RecordStore createStore() {
+		return new RecordStore(symbols, allocator);
+	}
+
+	/**
+	 * Adds the record to the graph unless a record with the same id was added before.
+	 * @param record the record to be added
+	 */
+	public void addRecord(RMRecord record) {
+		// perform checks
+		// check if a record with the current record id is already present in the dataset
+		// if that is the case we would end up in loops and deadlocks
+		//TODO: do not rely on IDs of the log data; instead use internally generated ones to ensure integrity
+		final long recId = record.getCurrentCmp().getReqid();
+		if (!spilledNodes.isEmpty()) {
+			restore(recId);
+			restore(record.getParentCmp().getReqid());
+		}
+		final int prevNode = allNodes.get(recId);
+		if(prevNode != NONE && !isDummy(prevNode)) {
+			warnDuplicate(record);
+		} else {
+			// process the record
+			addRmRecordToDataset(record);
+		}
+		if (spillBudget > 0 && ++addedSinceSpillCheck == SPILL_CHECK_INTERVAL) checkSpillBudget();
+	}
+
+	private void warnDuplicate(RMRecord record) {
+		LOG.warn("The record with the current id " + record.getCurrentCmp().getReqid() + " was previously added. This can create deadlocks/loops in the query engine!");
+		LOG.debug("Dumping the record: " + record);
+	}
+
+	private void addRmRecordToDataset(RMRecord rmRecord) {
+		// add the record to a node - we always create a node
+		final int node = graph.add(rmRecord.getStore(), rmRecord.getRow());
+		final long currentNodeId = rmRecord.getCurrentCmp().getReqid();
+
+		// remove the case from the candidates list if it was added before
+		rootCaseCandidates.remove(currentNodeId);
+
+		// if the current record-id is the same as the parent-id, then we have a root-record
+		if (rmRecord.isRootCase()) {
+			// we mark the record as root record and put it in the list of root-records
+			final RmRootCase rootCase = new RmRootCase(graph.getNode(node));
+			rootCases.add(rootCase);
+			// fill type for root case filter
+			rootCaseTypes.set(rmRecord.getTypeCmpSymbol());
+
+			// if we previously added a dummy record, we need to merge it with the real record
+			final int dummyNode = allNodes.get(currentNodeId);
+			if(dummyNode != NONE) {
+				graph.appendChildren(dummyNode, node);
+			}
+			allNodes.put(currentNodeId, node);
+		// otherwise the the current record is a child-record
+		}
+		else {
+			final long parentNodeId = rmRecord.getParentCmp().getReqid();
+			int parentNode = allNodes.get(parentNodeId);
+
+			// in case there is no log entry for the root record, we create a dummy record
+			if(parentNode == NONE) {
+				final RMRecord dummy = RMRecord.createDummy(dummies, parentNodeId);
+				parentNode = graph.add(dummies, dummy.getRow());
+				allNodes.put(parentNodeId, parentNode);
+
+				rootCaseCandidates.put(parentNodeId, new RmRootCase(graph.getNode(parentNode)));
+			}
+			graph.addChild(parentNode, node);
+
+			// If events are not in order, it can happen that we already have the current
+			// nodeId in the allNodes map. Then we need to merge with the previously created dummy.
+			final int dirtyCurrentNode = allNodes.get(currentNodeId);
+			if(dirtyCurrentNode != NONE) {
+				graph.appendChildren(dirtyCurrentNode, node);
+			}
+			allNodes.put(currentNodeId, node);
+		}
+	}
+
+	/**
+	 * Merges a dataset that was filled with the records of a later file. The result is the same as if
+	 * the records of the later file had been added to this dataset: dummy nodes are replaced by the real
+	 * records of the other file and vice versa, and records that are already present are dropped while
+	 * their children are kept.<br>
+	 * The other dataset must not be used afterwards.
+	 *
+	 * @param partial the dataset of the later file
+	 */
+	public void merge(RmDataset partial) {
+		// first detach the duplicates from their parents, then move their children,
+		// otherwise a duplicate could be moved along with the children of its duplicate parent
+		if (!spilledNodes.isEmpty()) {
+			final LongIntMap.Cursor spilled = partial.allNodes.cursor();
+			while (spilled.next()) {
+				restore(spilled.key());
+			}
+		}
+		// the nodes of the other dataset by their ids whose records are already present
+		final LongIntMap duplicates = new LongIntMap();
+		final LongIntMap.Cursor nodes = partial.allNodes.cursor();
+		while (nodes.next()) {
+			final int prevNode = allNodes.get(nodes.key());
+			if (!partial.isDummy(nodes.value()) && prevNode != NONE && !isDummy(prevNode)) {
+				warnDuplicate(partial.graph.getRecord(nodes.value()));
+				duplicates.put(nodes.key(), nodes.value());
+			}
+		}
+		// the duplicate root cases are removed in a single pass, they may be many if a file is loaded twice
+		final BitSet duplicateRoots = new BitSet();
+		final LongIntMap.Cursor detached = duplicates.cursor();
+		while (detached.next()) {
+			final int node = detached.value();
+			if (partial.isRoot(node)) {
+				duplicateRoots.set(node);
+			} else {
+				partial.detach(node);
+			}
+		}
+		if (!duplicateRoots.isEmpty()) partial.removeRootCases(duplicateRoots);
+		// the nodes of the other dataset get indexes of this one
+		final int offset = graph.merge(partial.graph);
+		for (RmRootCase rootCase : partial.rootCases) {
+			graph.adopt(rootCase.getRmNode(), offset);
+		}
+		for (RmRootCase candidate : partial.rootCaseCandidates.values()) {
+			graph.adopt(candidate.getRmNode(), offset);
+		}
+		final LongIntMap.Cursor moved = duplicates.cursor();
+		while (moved.next()) {
+			partial.allNodes.remove(moved.key());
+			graph.appendChildren(moved.value() + offset, allNodes.get(moved.key()));
+		}
+
+		allNodes.ensureCapacity(allNodes.size() + partial.allNodes.size());
+		final LongIntMap.Cursor partialNodes = partial.allNodes.cursor();
+		while (partialNodes.next()) {
+			final long nodeId = partialNodes.key();
+			final int node = partialNodes.value() + offset;
+			final int prevNode = allNodes.get(nodeId);
+			if (isDummy(node)) {
+				if (prevNode != NONE) {
+					// the parent is known from a previous file
+					graph.appendChildren(node, prevNode);
+				} else {
+					allNodes.put(nodeId, node);
+					rootCaseCandidates.put(nodeId, partial.rootCaseCandidates.get(nodeId));
+				}
+			} else {
+				if (prevNode != NONE) {
+					// a previous file created a dummy for the record, its children come first
+					graph.prependChildren(prevNode, node);
+					rootCaseCandidates.remove(nodeId);
+				}
+				allNodes.put(nodeId, node);
+			}
+		}
+
+		for (RmRootCase rootCase : partial.rootCases) {
+			rootCases.add(rootCase);
+			rootCaseTypes.set(rootCase.getRmNode().getData().getTypeCmpSymbol());
+		}
+		inputBytes += partial.inputBytes;
+		if (spillBudget > 0) checkSpillBudget();
+	}
+
+	/**
+	 * @return true if the record of the node is a root record, i.e. it is its own parent
+	 */
+	private boolean isRoot(int node) {
+		final RecordStore store = graph.getStore(node);
+		final int row = graph.getRow(node);
+		return store.getParentColumns().getReqid(row) == store.getCurrentColumns().getReqid(row);
+	}
+
+	/**
+	 * Removes the root cases of the nodes in a single pass over the root cases.
+	 * @param nodes the nodes of the root cases to be removed
+	 */
+	private void removeRootCases(BitSet nodes) {
+		final List<RmRootCase> kept = new ArrayList<RmRootCase>(rootCases.size());
+		for (RmRootCase rootCase : rootCases) {
+			final int node = graph.indexOf(rootCase.getRmNode());
+			if (node == NONE || !nodes.get(node)) kept.add(rootCase);
+		}
+		rootCases.clear();
+		rootCases.addAll(kept);
+	}
+
+	/**
+	 * Removes a node that is not a root from the children of its parent. A dummy parent that
+	 * was created only for this node is removed as well.
+	 */
+	private void detach(int node) {
+		final long parentNodeId = graph.getStore(node).getParentColumns().getReqid(graph.getRow(node));
+		final int parentNode = allNodes.get(parentNodeId);
+		if (parentNode != NONE) {
+			graph.removeChild(parentNode, node);
+			if (isDummy(parentNode) && graph.getChildCount(parentNode) == 0) {
+				allNodes.remove(parentNodeId);
+				rootCaseCandidates.remove(parentNodeId);
+			}
+		}
+	}
+
+	/**
+	 * Spills the complete trees once the estimated heap of the dataset exceeds the budget. A root case is only
+	 * spilled if it has been added before the previous check, so late children have had a check interval to arrive.
+	 */
+	private void checkSpillBudget() {
+		addedSinceSpillCheck = 0;
+		if (getMemoryFootprint().getTotalHeapBytes() > spillBudget) {
+			spillCompleteTrees(rootCasesAtSpillCheck);
+		}
+		rootCasesAtSpillCheck = rootCases.size();
+	}
+
+	/**
+	 * Writes the complete trees of the root cases to the spill file and drops their nodes from the graph and the
+	 * index. A tree is complete if the records of all its nodes have been found, i.e. it has no dummy nodes.
+	 * @param count the number of root cases from the start of the list that are checked
+	 */
+	private void spillCompleteTrees(int count) {
+		final List<RmRootCase> complete = new ArrayList<RmRootCase>();
+		final List<Integer> roots = new ArrayList<Integer>();
+		for (int i = 0; i < count && i < rootCases.size(); i++) {
+			final RmRootCase rootCase = rootCases.get(i);
+			if (rootCase.getRmNode().isSpilled()) continue;
+			final int root = allNodes.get(rootCase.getRmNode().getData().getCurrentCmp().getReqid());
+			if (root != NONE && graph.getNode(root).equals(rootCase.getRmNode()) && visitTree(root, null, NONE)) {
+				complete.add(rootCase);
+				roots.add(root);
+			}
+		}
+		if (complete.isEmpty()) return;
+		try {
+			if (spill == null) {
+				spill = new TreeSpill(new File(System.getProperty("java.io.tmpdir")), symbols);
+				summaries = createStore();
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not create the spill file, the trees are kept in memory", e);
+			spillBudget = 0;
+			return;
+		}
+		final BitSet removed = new BitSet(graph.size());
+		int spilledNodeCount = 0;
+		for (int i = 0; i < complete.size(); i++) {
+			visitTree(roots.get(i), removed, spilledRootCases.size());
+			spilledRootCases.add(complete.get(i));
+			spilledNodeCount += spill.spill(complete.get(i), summaries);
+		}
+		compact(removed);
+		LOG.info("Spilled " + complete.size() + " trees with " + spilledNodeCount + " nodes to " + spill.getFile()
+				+ " (" + spill.getBytes() / (1024 * 1024) + " MB), " + graph.size() + " nodes are kept in memory");
+	}
+
+	/**
+	 * Walks the nodes of a tree.
+	 * @param root the root of the tree
+	 * @param nodes receives the nodes of the tree or null if the tree is only checked
+	 * @param spilledRootCase the index of the spilled root case the request ids of the nodes are mapped to
+	 * @return false if the tree has a dummy node
+	 */
+	private boolean visitTree(int root, BitSet nodes, int spilledRootCase) {
+		final Deque<Integer> stack = new ArrayDeque<Integer>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			final int node = stack.pop();
+			if (isDummy(node)) return false;
+			if (nodes != null) {
+				nodes.set(node);
+				spilledNodes.put(graph.getStore(node).getCurrentColumns().getReqid(graph.getRow(node)), spilledRootCase);
+			}
+			for (int child : graph.getChildIndexes(node)) {
+				stack.push(child);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Moves a spilled tree back into the graph if one of its nodes has the request id, so a late record
+	 * is added to the tree as if it had never been spilled.
+	 */
+	private void restore(long nodeId) {
+		final int spilledRootCase = spilledNodes.get(nodeId);
+		if (spilledRootCase == NONE || allNodes.containsKey(nodeId)) return;
+		final RMNode root = spilledRootCases.get(spilledRootCase).getRmNode();
+		if (!root.isSpilled()) return;
+		final int offset = graph.restore(root);
+		for (int node = offset; node < graph.size(); node++) {
+			allNodes.put(graph.getStore(node).getCurrentColumns().getReqid(graph.getRow(node)), node);
+		}
+	}
+
+	/**
+	 * Drops the removed nodes from the graph and the index. The other nodes and their records are copied, so
+	 * the stores of the parsers are not referenced anymore.
+	 */
+	private void compact(BitSet removed) {
+		final IntArray newIndexes = IntArray.create(allocator);
+		final RecordStore store = createStore();
+		final NodeGraph compacted = graph.compact(removed, store, newIndexes);
+		for (RmRootCase rootCase : rootCases) {
+			if (!rootCase.getRmNode().isSpilled()) compacted.adopt(rootCase.getRmNode(), newIndexes);
+		}
+		for (RmRootCase candidate : rootCaseCandidates.values()) {
+			compacted.adopt(candidate.getRmNode(), newIndexes);
+		}
+		final LongIntMap nodes = new LongIntMap(allNodes.size());
+		final LongIntMap.Cursor cursor = allNodes.cursor();
+		while (cursor.next()) {
+			final int node = newIndexes.get(cursor.value());
+			if (node != NONE) nodes.put(cursor.key(), node);
+		}
+		newIndexes.release();
+		store.trimToSize();
+		allNodes = nodes;
+		graph = compacted;
+		dummies = createStore();
+		compactions++;
+	}
+
+	private int getTypeSymbol(int node) {
+		return graph.getStore(node).getTypeSymbol(graph.getRow(node));
+	}
+
+	private boolean isDummy(int node) {
+		return getTypeSymbol(node) == SymbolTable.UNKNOWN;
+	}
+
+	/**
+	 * Packs the children of the nodes, e.g. once all records have been added. The dataset may still be changed afterwards.
+	 */
+	public void freeze() {
+		graph.freeze();
+	}
+
+	/**
+	 * Counts an input whose records are about to be added and sizes the index of the nodes for them,
+	 * so it does not need to be grown while they are added.
+	 * @param inputBytes the size of the input
+	 */
+	public void addInput(long inputBytes) {
+		this.inputBytes += inputBytes;
+		final long expectedRecords = allNodes.size() + inputBytes / BYTES_PER_RECORD;
+		allNodes.ensureCapacity((int) Math.min(Integer.MAX_VALUE, expectedRecords));
+	}
+
+	/**
+	 * Estimates the memory held by the structures of the dataset. The footprint may be taken while records are
+	 * added, e.g. by the GUI, the records of the files that have not been merged yet are not part of it then.
+	 * @return the footprint of the records, the nodes, their children, the root cases, the indexes and the strings
+	 */
+	public MemoryFootprint getMemoryFootprint() {
+		final MemoryFootprint footprint = new MemoryFootprint(graph.size(), inputBytes);
+		graph.addFootprint(footprint);
+		// the candidates are part of the root cases once all records have been added, their views are counted twice then
+		footprint.add(MemoryFootprint.ROOT_CASES, MemoryFootprint.arrayBytes(rootCases.size(), MemoryFootprint.REFERENCE)
+				+ rootCases.size() * ROOT_CASE_BYTES, 0);
+		if (summaries != null) {
+			// the copies of the root records are counted with the records, the handles of the trees with the root cases
+			summaries.addFootprint(footprint);
+			footprint.add(MemoryFootprint.ROOT_CASES, spill.getTrees() * MemoryFootprint.objectBytes(MemoryFootprint.REFERENCE + 8 + 4 + MemoryFootprint.REFERENCE), 0);
+		}
+		footprint.add(MemoryFootprint.CANDIDATES, rootCaseCandidates.getHeapBytes() + rootCaseCandidates.size() * ROOT_CASE_BYTES, 0);
+		footprint.add(MemoryFootprint.INDEXES, allNodes.getHeapBytes() + spilledNodes.getHeapBytes()
+				+ MemoryFootprint.arrayBytes(spilledRootCases.size(), MemoryFootprint.REFERENCE)
+				+ MemoryFootprint.arrayBytes(rootCaseTypes.size() / 64, 8), 0);
+		symbols.addFootprint(footprint);
+		StringPool.addFootprint(footprint);
+		if (allocator != null) footprint.add(MemoryFootprint.FREE_PAGES, 0, allocator.getFreeBytes());
+		return footprint;
+	}
+
+	/**
+	 * Writes the symbols, the nodes, the index and the root cases to a snapshot. The spilled trees are read back
+	 * and written behind the nodes of the graph, so the snapshot does not depend on the spill file.
+	 */
+	void writeSnapshot(SessionSnapshot.Output out) throws IOException {
+		out.putLong(inputBytes);
+		final int symbolCount = symbols.size();
+		out.putInt(symbolCount);
+		for (int id = 0; id < symbolCount; id++) {
+			out.putString(symbols.get(id));
+		}
+
+		// the spilled trees and the indexes of their roots in the snapshot
+		final List<TreeSpill.SpilledTree> trees = new ArrayList<TreeSpill.SpilledTree>();
+		final Map<RMNode, Integer> spilledRoots = new IdentityHashMap<RMNode, Integer>();
+		int nodeCount = graph.size();
+		for (RmRootCase rootCase : spilledRootCases) {
+			final TreeSpill.SpilledTree tree = rootCase.getRmNode().getSpilledTree();
+			if (tree == null || spilledRoots.containsKey(rootCase.getRmNode())) continue;
+			trees.add(tree);
+			spilledRoots.put(rootCase.getRmNode(), nodeCount);
+			nodeCount += tree.getNodeCount();
+		}
+		out.putInt(nodeCount);
+		out.putInt(1 + trees.size());
+		writeNodes(out, graph, 0);
+		int offset = graph.size();
+		for (TreeSpill.SpilledTree tree : trees) {
+			writeNodes(out, tree.load(), offset);
+			offset += tree.getNodeCount();
+		}
+
+		// the request ids of the spilled nodes are taken from their records when the snapshot is read
+		out.putInt(allNodes.size());
+		final LongIntMap.Cursor nodes = allNodes.cursor();
+		while (nodes.next()) {
+			out.putLong(nodes.key());
+			out.putInt(nodes.value());
+		}
+
+		final Map<RmRootCase, Integer> rootCaseIndexes = new IdentityHashMap<RmRootCase, Integer>();
+		out.putInt(rootCases.size());
+		for (RmRootCase rootCase : rootCases) {
+			rootCaseIndexes.put(rootCase, rootCaseIndexes.size());
+			out.putInt(getSnapshotIndex(rootCase.getRmNode(), spilledRoots));
+			out.putLong(rootCase.getRmNode().getExecutionTime());
+		}
+		// the candidates are part of the root cases once all records have been added
+		out.putInt(rootCaseCandidates.size());
+		final LongMap<RmRootCase>.Cursor candidates = rootCaseCandidates.cursor();
+		while (candidates.next()) {
+			final Integer rootCaseIndex = rootCaseIndexes.get(candidates.value());
+			out.putLong(candidates.key());
+			out.putInt(getSnapshotIndex(candidates.value().getRmNode(), spilledRoots));
+			out.putInt(rootCaseIndex != null ? rootCaseIndex : NONE);
+		}
+		out.putInt(rootCaseTypes.cardinality());
+		for (int type = rootCaseTypes.nextSetBit(0); type >= 0; type = rootCaseTypes.nextSetBit(type + 1)) {
+			out.putInt(type);
+		}
+	}
+
+	/**
+	 * Writes the number of nodes of a graph, their records and their children.
+	 * @param offset the index of the first node of the graph in the snapshot
+	 */
+	private static void writeNodes(SessionSnapshot.Output out, NodeGraph nodes, int offset) throws IOException {
+		out.putInt(nodes.size());
+		for (int node = 0; node < nodes.size(); node++) {
+			out.putRecord(nodes.getStore(node), nodes.getRow(node));
+		}
+		for (int node = 0; node < nodes.size(); node++) {
+			final int[] children = nodes.getChildIndexes(node);
+			out.putInt(children.length);
+			for (int child : children) {
+				out.putInt(child + offset);
+			}
+		}
+	}
+
+	private int getSnapshotIndex(RMNode node, Map<RMNode, Integer> spilledRoots) throws IOException {
+		final Integer spilledRoot = spilledRoots.get(node);
+		final int index = spilledRoot != null ? spilledRoot : graph.indexOf(node);
+		if (index == NONE) throw new IOException("The root case " + node.getData().getCurrentCmp().getReqid() + " is not part of the dataset");
+		return index;
+	}
+
+	/**
+	 * Reads a snapshot that has been written with {@link #writeSnapshot(SessionSnapshot.Output)} into this dataset,
+	 * which must have been cleared. The records are copied into a single store, the spilled trees of the snapshot
+	 * are part of the graph again.
+	 */
+	void readSnapshot(SessionSnapshot.Input in) throws IOException {
+		inputBytes = in.getLong();
+		final int symbolCount = in.getCount();
+		for (int id = 0; id < symbolCount; id++) {
+			if (symbols.add(in.getString()) != id) throw new IOException("The symbols of the snapshot are not unique");
+		}
+
+		final int nodeCount = in.getCount();
+		final RecordStore store = allocator != null ? createStore() : new RecordStore(symbols, nodeCount);
+		final int graphCount = in.getCount();
+		// the nodes from this index on are the nodes of the spilled trees
+		int spilledNodes = 0;
+		for (int i = 0; i < graphCount; i++) {
+			final int offset = graph.size();
+			final int count = in.getCount();
+			if (offset + count > nodeCount) throw new IOException("The snapshot is corrupt, it has more than " + nodeCount + " nodes");
+			for (int node = 0; node < count; node++) {
+				graph.add(store, in.getRecord(store));
+			}
+			for (int node = offset; node < offset + count; node++) {
+				final int childCount = in.getCount();
+				for (int child = 0; child < childCount; child++) {
+					graph.addChild(node, in.getInt());
+				}
+			}
+			if (i == 0) spilledNodes = graph.size();
+		}
+		graph.freeze();
+
+		final int indexCount = in.getCount();
+		allNodes.ensureCapacity(indexCount + graph.size() - spilledNodes);
+		for (int i = 0; i < indexCount; i++) {
+			allNodes.put(in.getLong(), in.getInt());
+		}
+		for (int node = spilledNodes; node < graph.size(); node++) {
+			final long nodeId = store.getCurrentColumns().getReqid(graph.getRow(node));
+			if (!allNodes.containsKey(nodeId)) allNodes.put(nodeId, node);
+		}
+
+		final int rootCaseCount = in.getCount();
+		for (int i = 0; i < rootCaseCount; i++) {
+			rootCases.add(new RmRootCase(graph.getNode(in.getInt()), in.getLong()));
+		}
+		final int candidateCount = in.getCount();
+		rootCaseCandidates.ensureCapacity(candidateCount);
+		for (int i = 0; i < candidateCount; i++) {
+			final long nodeId = in.getLong();
+			final int node = in.getInt();
+			final int rootCaseIndex = in.getInt();
+			rootCaseCandidates.put(nodeId, rootCaseIndex != NONE ? rootCases.get(rootCaseIndex) : new RmRootCase(graph.getNode(node)));
+		}
+		final int typeCount = in.getCount();
+		for (int i = 0; i < typeCount; i++) {
+			rootCaseTypes.set(in.getInt());
+		}
+		store.trimToSize();
+	}
+
+	/**
+	 * @param nodeId the id of the rm record
+	 * @return the node or null if there is no node with the id
+	 */
+	public RMNode getNode(long nodeId) {
+		final int node = allNodes.get(nodeId);
+		return node != NONE ? graph.getNode(node) : null;
+	}
+
+	public int getNumberOfNodes() {
+		return allNodes.size();
+	}
+
+	public List<RmRootCase> getRootCases() {
+		return rootCases;
+	}
+
+	/**
+	 * @return the sorted types of the root cases and the type of the dummies if there are candidates left, the
+	 * dummies that have been replaced by their records do not count, no matter in which file the records were found
+	 */
+	public Set<String> getRootCaseTypes() {
+		final Set<String> types = new TreeSet<String>();
+		for (int type = rootCaseTypes.nextSetBit(0); type >= 0; type = rootCaseTypes.nextSetBit(type + 1)) {
+			types.add(symbols.get(type));
+		}
+		if (!rootCaseCandidates.isEmpty()) types.add(symbols.get(SymbolTable.UNKNOWN));
+		return types;
+	}
+
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	public Collection<RmRootCase> getRootCaseCandidates() {
+		return rootCaseCandidates.values();
+	}
+
+	/**
+	 * @return the allocator of the stores and the graph or null if the dataset is kept on the heap
+	 */
+	public PageAllocator getAllocator() {
+		return allocator;
+	}
+
+	/**
+	 * @param storage where the records of the dataset are kept after the next {@link #clear()}
+	 */
+	public void setStorage(Storage storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * @return the number of times the spilled nodes have been dropped, the records that are kept are copied then
+	 */
+	public int getCompactions() {
+		return compactions;
+	}
+
+	/**
+	 * @param spillBudget the estimated heap bytes of the dataset the complete trees are spilled at, 0 keeps them in memory
+	 */
+	public void setSpillBudget(long spillBudget) {
+		this.spillBudget = spillBudget;
+	}
+
+	/**
+	 * Removes all records. The dataset gets a new symbol table and a new allocator, the records that have been
+	 * removed keep the old symbol table. The buffers of the old allocator should not be used anymore.<br>
+	 * The stores of the records that have been added may be kept, e.g. when they are cached to be added again. The
+	 * dataset keeps its symbol table and its allocator then and only releases the pages of its own structures.
+	 * @param keepStores true if the stores of the added records are still used
+	 */
+	public void clear(boolean keepStores) {
+		rootCases.clear();
+		rootCaseTypes.clear();
+		rootCaseCandidates.clear();
+		allNodes.clear();
+		inputBytes = 0;
+		if (spill != null) spill.release();
+		spill = null;
+		if (summaries != null && keepStores) summaries.release();
+		summaries = null;
+		spilledRootCases.clear();
+		spilledNodes.clear();
+		addedSinceSpillCheck = 0;
+		rootCasesAtSpillCheck = 0;
+		if (keepStores) {
+			graph.release();
+			dummies.release();
+		} else {
+			if (allocator != null) allocator.release();
+			allocator = storage != null ? storage.createAllocator() : null;
+			symbols = new SymbolTable();
+		}
+		graph = new NodeGraph(allocator);
+		dummies = new RecordStore(symbols, allocator);
+	}
+}
@@ -1,263 +1,320 @@
 package de.ibm.issw.requestmetrics.engine;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.ibm.issw.requestmetrics.engine.events.LogParsingTypeEvent;
+import de.ibm.issw.requestmetrics.engine.events.RootCasesAddedEvent;
 import de.ibm.issw.requestmetrics.engine.events.UnsupportedFileEvent;
-import de.ibm.issw.requestmetrics.model.RMComponent;
+import de.ibm.issw.requestmetrics.engine.events.WatchedFileMergedEvent;
+import de.ibm.issw.requestmetrics.engine.io.InputSource;
+import de.ibm.issw.requestmetrics.engine.io.LineBatch;
+import de.ibm.issw.requestmetrics.engine.parser.RecordParser;
 import de.ibm.issw.requestmetrics.model.RMNode;
 import de.ibm.issw.requestmetrics.model.RMRecord;
 import de.ibm.issw.requestmetrics.model.RmRootCase;
 import de.ibm.issw.requestmetrics.util.DateParser;
-import de.ibm.issw.requestmetrics.util.StringPool;
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+import de.ibm.issw.requestmetrics.util.Storage;
 
 public class RmProcessor extends Observable implements Processor{
 	// Logging and utilities
 	public static final Logger LOG = LoggerFactory.getLogger(RmProcessor.class);
-
-	// Parsing 
-	private static final String REGEX_GREPPED = "([^:]*):\\[([^\\]]*)\\] (\\w+) PmiRmArmWrapp I\\s+(?:PMRM0003I|CWPRM0003I):\\s+parent:ver=(\\d),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(\\w+)\\s-\\scurrent:ver=([^,]+),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(.*) type=(.*) detail=(.*) elapsed=(\\w+)";	
-	private static final Pattern PATTERN_GREPPED = Pattern.compile(REGEX_GREPPED);
-
-	private static final String REGEX_RAW = "\\[([^\\]\\*]*)\\] (\\w{8}) PmiRmArmWrapp I\\s+(?:PMRM0003I|CWPRM0003I):\\s+parent:ver=(\\d),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(\\w+)\\s-\\scurrent:ver=([^,]+),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(.*) type=(.*) detail=(.*) elapsed=(\\w+)";	
-	private static final Pattern PATTERN_RAW = Pattern.compile(REGEX_RAW);
 	
-	private static final String PLUGIN_REGEX_GREPPED = "([^:]*):\\[([^\\]]*)\\] (\\w+) \\w+ - PLUGIN:  parent:ver=(\\d),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(\\w+)\\s-\\scurrent:ver=([^,]+),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(.*) type=(.*) detail=(.*) elapsed=(\\w+) bytesIn=(\\w+) bytesOut=(\\w+)";
-	private static final Pattern PATTERN_PLUGIN_REGEX_GREPPED = Pattern.compile(PLUGIN_REGEX_GREPPED);
+	// Parsing
+	private final DateParser dateParser = new DateParser();
+	private RecordParser recordParser;
+	// the compactions of the dataset when the store of the parser was created
+	private int parserCompactions;
+	private String detectedParsingType;
 	
-	private String lastParsingType = LogParsingTypeEvent.TYPE_UNKNOWN;
-
 	// Internal data structures
-	private final Map<Long, RMNode> allNodes = new HashMap<Long, RMNode>();
-	private final List<RmRootCase> rootCases = new ArrayList<RmRootCase>();
-	private final Set<String> rootCaseTypes = new TreeSet<String>();
-	
-	private final Map<Long, RmRootCase> rootCaseCandidates = new HashMap<Long, RmRootCase>();
+	private final RmDataset dataset;
+	private final RmProcessor parent;
 	private FileHandler fileHandler;
+	// null unless the records of the loaded files are cached
+	private IngestionCache cache;
+	// receives the added records while a log is cached
+	private CachedRecords collectedRecords;
+	// number of root cases that have been published while following a log
+	private int publishedRootCases;
+	// true until the records of a followed log have been added completely
+	private volatile boolean following;
 	
 	public RmProcessor() {
+		this.parent = null;
+		this.dataset = new RmDataset();
 		fileHandler = new FileHandler(this);
 	}
 	
+	/**
+	 * Creates a processor for a single file that fills its own dataset and passes its events to the parent.
+	 * The dataset shares the symbol table of the parent, so it can be merged without translating the symbols,
+	 * and the allocator of the parent, so the pages of its graph are reused once it has been merged.
+	 * @param parent the processor the dataset is merged into
+	 */
+	private RmProcessor(RmProcessor parent) {
+		this.parent = parent;
+		this.dataset = new RmDataset(parent.dataset.getSymbols(), parent.dataset.getAllocator());
+	}
+	
 	public void processInputFiles(File[] files) {
 		// delegate to the file handler
 		fileHandler.processInputFiles(files);
-	
-		LOG.info("Found " + rootCases.size() + " root cases");
-		LOG.info("Found " + rootCaseCandidates.size() + " dirty cases");
+		
+		LOG.info("Found " + dataset.getRootCases().size() + " root cases");
+		LOG.info("Found " + dataset.getRootCaseCandidates().size() + " dirty cases");
 		
 		// combine root cases and dirty cases
-		rootCases.addAll(rootCaseCandidates.values());
+		dataset.getRootCases().addAll(dataset.getRootCaseCandidates());
+		dataset.freeze();
+		LOG.info(dataset.getMemoryFootprint().toString());
 	}
 	
-	@Override
-	public void beforeSingleFileParsed(File file) {
-		this.lastParsingType = LogParsingTypeEvent.TYPE_UNKNOWN;
-		LOG.info("About to parse file " + file.getName());
-	}
-
-	@Override
-	public void afterSingleFileParsed(File file) {
-		LOG.info("Finished to parse file " + file.getName());
-		if (rootCases.size() == 0 && allNodes.size() == 0){
-			//notify observers that the file can not be processed because no metrics data was found
-			setChanged();
-			notifyObservers(new UnsupportedFileEvent(this, file.getName()));
+	/**
+	 * Follows a growing log until {@link #stopFollowing()} is called. The records of appended lines are added to
+	 * the existing graph and the root cases are published with a {@link RootCasesAddedEvent} as soon as their
+	 * root record has been found. The trees without a root record are published when following stops.
+	 * 
+	 * @param file the log to be followed
+	 */
+	public void followInputFile(File file) {
+		following = true;
+		try {
+			// delegate to the file handler
+			fileHandler.followInputFile(file);
+		} finally {
+			synchronized (this) {
+				LOG.info("Found " + dataset.getRootCases().size() + " root cases");
+				LOG.info("Found " + dataset.getRootCaseCandidates().size() + " dirty cases");
+				
+				// combine root cases and dirty cases
+				dataset.getRootCases().addAll(dataset.getRootCaseCandidates());
+				dataset.freeze();
+				following = false;
+			}
 		}
+		publishRootCases();
 	}
 	
-	@Override
-	public void handleLine(String line, File file) {
-		final RMRecord record = processSingleLine(line, file);
-		if(record != null) {
-			// perform checks
-			// check if a record with the current record id is already present in the dataset
-			// if that is the case we would end up in loops and deadlocks
-			//TODO: do not rely on IDs of the log data; instead use internally generated ones to ensure integrity
-			Long recId = record.getCurrentCmp().getReqid();
-			RMNode prevRevord = allNodes.get(recId);
-			if(prevRevord != null && !prevRevord.getData().isDummy()) {
-				LOG.warn("The record with the current id " + recId + " was previously added. This can create deadlocks/loops in the query engine!");
-				LOG.debug("Dumping the record: " + record);
-			} else {
-				// process the record 
-				addRmRecordToDataset(record);
-			}
-		}
+	/**
+	 * Saves the processed records to a snapshot, along with the fingerprints of the files they have been parsed from.
+	 * The files of a watched folder that are merged in the meantime are saved afterwards.
+	 * 
+	 * @param file the snapshot file, it is overwritten
+	 * @throws IOException if the snapshot can not be written or a log is followed, the records of the log are still
+	 * added then and its length is not known
+	 */
+	public synchronized void saveSnapshot(File file) throws IOException {
+		if (following) throw new IOException("A snapshot can not be saved while a log is followed, stop following it first");
+		SessionSnapshot.save(dataset, fileHandler.getParsedFiles(), file);
 	}
 	
 	/**
-	 * processes a single line and creates the java record representation out of it
-	 * @param line the currently processing line
-	 * @return RMRecord the record that has been generated or null if the line is not a valid log statement
+	 * Replaces the processed records by the records of a snapshot, the files are not parsed again. The files of
+	 * the snapshot are counted as parsed, so they are skipped if their folders are watched afterwards.
 	 * 
+	 * @param file the snapshot file
+	 * @throws IOException if the snapshot can not be read, has another version or one of its files has been changed,
+	 * the processor is reset then, or if a log is followed, its records would be added to the dataset that is replaced
 	 */
-	private RMRecord processSingleLine(String line, File file) {
-		RMRecord record = null;
-		
-		// parse the log using a REGEX, Strings are processed by a string pool
-		final Matcher logMatcherGrepped = PATTERN_GREPPED.matcher(line);
-		final Matcher logMatcherRaw = PATTERN_RAW.matcher(line);
-		final Matcher logMatcherPluginGrepped = PATTERN_PLUGIN_REGEX_GREPPED.matcher(line);
-		
-		String currentParsingType = LogParsingTypeEvent.TYPE_UNKNOWN;
-		int groupNr = 1;
-		String logFileName = null;
-		Matcher currentMatcher = null;
-				
-		//check, which type of file was loaded and by that, which logMatcher, Pattern & Regex has to be used
-		if(logMatcherGrepped.matches()) {
-			currentParsingType = LogParsingTypeEvent.TYPE_GREPPED;
-			currentMatcher = logMatcherGrepped;
-			logFileName = StringPool.intern(logMatcherGrepped.group(groupNr++));
-		} 
-		else if (logMatcherRaw.matches()) {
-			currentParsingType = LogParsingTypeEvent.TYPE_RAW;
-			currentMatcher = logMatcherRaw;
-			logFileName = file.getName();
-		} else if(logMatcherPluginGrepped.matches()) {
-			currentParsingType = LogParsingTypeEvent.TYPE_PLUGIN_GREPPED;
-			currentMatcher = logMatcherPluginGrepped;
-			logFileName = StringPool.intern(logMatcherPluginGrepped.group(groupNr++));
-		}
-		
-		//check if the parsing type changed and notify observers if it has
-		if (parsingTypeHasChanged(currentParsingType, lastParsingType)) {
-			setChanged();
-			notifyObservers(new LogParsingTypeEvent(this, file.getName(), currentParsingType));
+	public void openSnapshot(File file) throws IOException {
+		if (following) throw new IOException("A snapshot can not be opened while a log is followed, stop following it first");
+		// the records of the snapshot get a new symbol table
+		if (cache != null) cache.clear();
+		reset();
+		try {
+			fileHandler.addParsedFiles(SessionSnapshot.open(dataset, file));
+		} catch (IOException e) {
+			reset();
+			throw e;
 		}
-		
-		if(!currentParsingType.equals(LogParsingTypeEvent.TYPE_UNKNOWN)) lastParsingType = currentParsingType;
-		
-		if (currentMatcher != null) {
-			final String timestamp = StringPool.intern(currentMatcher.group(groupNr++));
-			final String threadId = StringPool.intern(currentMatcher.group(groupNr++));
-			
-			final Integer parentVersion = Integer.parseInt(currentMatcher.group(groupNr++));
-			final String parentIp = StringPool.intern(currentMatcher.group(groupNr++));
-			final Long parentTimestamp = Long.parseLong(currentMatcher.group(groupNr++));
-			final Long parentPid = Long.parseLong(currentMatcher.group(groupNr++));
-			final Long parentRequestId = Long.parseLong(currentMatcher.group(groupNr++));
-			final String parentEvent = StringPool.intern(currentMatcher.group(groupNr++));
-			
-			final Integer currentVersion = Integer.parseInt(currentMatcher.group(groupNr++));
-			final String currentIp = StringPool.intern(currentMatcher.group(groupNr++));
-			final Long currentTimestamp = Long.parseLong(currentMatcher.group(groupNr++));
-			final Long currentPid = Long.parseLong(currentMatcher.group(groupNr++));
-			final Long currentRequestId = Long.parseLong(currentMatcher.group(groupNr++));
-			final String currentEvent = StringPool.intern(currentMatcher.group(groupNr++));
-			final String type = StringPool.intern(currentMatcher.group(groupNr++));
-			final String detail = StringPool.intern(currentMatcher.group(groupNr++));
-			final Long currentElapsed = Long.parseLong(currentMatcher.group(groupNr++));
-			
-			Date recordDate = DateParser.parseTimestamp(timestamp);
-			
-			final RMComponent currentCmp = new RMComponent(currentVersion, currentIp, currentTimestamp, currentPid, currentRequestId, currentEvent);
-			final RMComponent parentCmp = new RMComponent(parentVersion, parentIp, parentTimestamp, parentPid, parentRequestId, parentEvent);
-			
-			// create the record from the log line
-			record = new RMRecord(logFileName, recordDate, threadId, 
-									currentCmp, parentCmp, 
-									type, detail, 
-									currentElapsed);
+	}
 	
-		}
-		return record;
+	public void stopFollowing() {
+		fileHandler.stopFollowing();
 	}
 	
 	/**
-	 * Checks if the parsing type has changed.
-	 * Parsing type is considered to be changed when the last parsing type is 
-	 * not unknown and if the current parsing type does not equal the last parsing type.
-	 * @param currentParsingType
-	 * @param lastParsingType
-	 * @return true if the parsing type has changed
+	 * Watches the folders for new or rotated files until {@link #stopWatching()} is called. Their records are merged
+	 * into the processed records and the observers are notified with a {@link WatchedFileMergedEvent}.
+	 * 
+	 * @param directories the folders to be watched
 	 */
-	private boolean parsingTypeHasChanged(String currentParsingType, String lastParsingType) {
-		return !currentParsingType.equals(LogParsingTypeEvent.TYPE_UNKNOWN) && !currentParsingType.equals(lastParsingType);
+	public void watchDirectories(List<File> directories) {
+		// delegate to the file handler
+		fileHandler.watchDirectories(directories);
 	}
-
-	private void addRmRecordToDataset(RMRecord rmRecord) {
-		// add the record to a node - we always create a node
-		final RMNode rmNode = new RMNode(rmRecord);
-		
-		// remove the case from the candidates list if it was added before
-		rootCaseCandidates.remove(rmRecord.getCurrentCmp().getReqid());
-					
-		// if the current record-id is the same as the parent-id, then we have a root-record
-		if (rmRecord.isRootCase()) {
-			// we mark the record as root record and put it in the list of root-records
-			final RmRootCase rootCase = new RmRootCase(rmNode);
-			rootCases.add(rootCase);
-			// fill type for root case filter
-			rootCaseTypes.add(rmRecord.getTypeCmp());
+	
+	public void stopWatching() {
+		fileHandler.stopWatching();
+	}
+	
+	@Override
+	public void afterAppendedLinesParsed(InputSource source) {
+		publishRootCases();
+	}
+	
+	/**
+	 * Notifies the observers about the root cases that have been added since the last call.
+	 */
+	private void publishRootCases() {
+		final List<RmRootCase> rootCases = dataset.getRootCases();
+		if(rootCases.size() > publishedRootCases) {
+			fireEvent(new RootCasesAddedEvent(this, new ArrayList<RmRootCase>(rootCases.subList(publishedRootCases, rootCases.size()))));
+			publishedRootCases = rootCases.size();
+		}
+	}
+	
+	@Override
+	public void beforeSingleFileParsed(InputSource source, LineBatch headLines) {
+		LOG.info("About to parse file " + source.getPath());
+		this.dateParser.reset();
+		this.dataset.addInput(source.getSize());
+		this.recordParser = new RecordParser(dateParser, dataset.createStore(), source.getName());
+		this.parserCompactions = dataset.getCompactions();
 		
-			// if we previously added a dummy record, we need to merge it with the real record
-			RMNode dummyNode = allNodes.get(rmRecord.getCurrentCmp().getReqid());
-			if(dummyNode != null) {
-				rmNode.getChildren().addAll(dummyNode.getChildren());
-			}
-			allNodes.put(rmRecord.getCurrentCmp().getReqid(), rmNode);
-		// otherwise the the current record is a child-record
-		} 
-		else {
-			final Long parentNodeId = rmRecord.getParentCmp().getReqid();
-			RMNode parentNode = allNodes.get(parentNodeId);
-			
-			// in case there is no log entry for the root record, we create a dummy record
-			if(parentNode == null) {
-				parentNode = new RMNode(RMRecord.createDummy(parentNodeId));
-				allNodes.put(parentNodeId, parentNode);
-				
-				rootCaseCandidates.put(parentNodeId, new RmRootCase(parentNode));
-				rootCaseTypes.add(parentNode.getData().getTypeCmp());
+		// fix the parser for the whole file based on the first matching lines
+		this.detectedParsingType = recordParser.detectParsingType(headLines);
+		if(detectedParsingType != null) {
+			fireEvent(new LogParsingTypeEvent(this, source.getName(), detectedParsingType));
+		}
+	}
+	
+	/**
+	 * Notifies the observers. Processors of single files pass the event to their parent,
+	 * so the observers only need to register with the main processor.
+	 * @param event the event to be sent
+	 */
+	private void fireEvent(Object event) {
+		if(parent != null) {
+			parent.fireEvent(event);
+		} else {
+			synchronized (this) {
+				setChanged();
+				notifyObservers(event);
 			}
-			parentNode.getChildren().add(rmNode);
-
-			// If events are not in order, it can happen that we already have the current
-			// nodeId in the allNodes map. Then we need to merge with the previously created dummy.
-			final Long currentNodeId = rmRecord.getCurrentCmp().getReqid();
-			RMNode dirtyCurrentNode = allNodes.get(currentNodeId);
-			if(dirtyCurrentNode != null) {
-				rmNode.getChildren().addAll(dirtyCurrentNode.getChildren());
+		}
+	}
+	
+	@Override
+	public void afterSingleFileParsed(InputSource source) {
+		LOG.info("Finished to parse file " + source.getPath());
+		recordParser.getStore().trimToSize();
+		if (dataset.getRootCases().size() == 0 && dataset.getNumberOfNodes() == 0){
+			//notify observers that the file can not be processed because no metrics data was found
+			fireEvent(new UnsupportedFileEvent(this, source.getName()));
+		}
+	}
+	
+	@Override
+	public void handleLines(LineBatch lines, InputSource source) {
+		for (int i = 0; i < lines.size(); i++) {
+			final String previousParsingType = recordParser.getParsingType();
+			final RMRecord record = recordParser.parseLine(lines.get(i));
+			if(record != null) {
+				if(!recordParser.getParsingType().equals(previousParsingType)) {
+					fireEvent(new LogParsingTypeEvent(this, source.getName(), recordParser.getParsingType()));
+				}
+				addRecord(record);
 			}
-			allNodes.put(rmRecord.getCurrentCmp().getReqid(), rmNode);
+		}
+		if(dataset.getCompactions() != parserCompactions) {
+			// the spilled records have been dropped, a new store lets the old one go once its records are dropped too
+			final String parsingType = recordParser.getParsingType();
+			recordParser.getStore().trimToSize();
+			recordParser = new RecordParser(dateParser, dataset.createStore(), source.getName());
+			recordParser.setParsingType(parsingType);
+			parserCompactions = dataset.getCompactions();
 		}
 	}
-
+	
+	@Override
+	public RecordParser createRecordParser(InputSource source) {
+		final RecordParser parser = new RecordParser(dateParser, dataset.createStore(), source.getName());
+		parser.setParsingType(detectedParsingType);
+		return parser;
+	}
+	
+	@Override
+	public void handleRecords(List<RMRecord> records, InputSource source) {
+		for (RMRecord record : records) {
+			addRecord(record);
+		}
+	}
+	
+	private void addRecord(RMRecord record) {
+		dataset.addRecord(record);
+		if(collectedRecords != null) collectedRecords.add(record);
+	}
+	
+	@Override
+	public void collectRecords(CachedRecords records) {
+		this.collectedRecords = records;
+	}
+	
+	@Override
+	public void addCachedRecords(CachedRecords records, InputSource source) {
+		LOG.info("Adding the " + records.size() + " cached records of file " + source.getPath());
+		dataset.addInput(source.getSize());
+		for (int i = 0; i < records.size(); i++) {
+			dataset.addRecord(records.get(i));
+		}
+		if (dataset.getRootCases().size() == 0 && dataset.getNumberOfNodes() == 0){
+			fireEvent(new UnsupportedFileEvent(this, source.getName()));
+		}
+	}
+	
+	@Override
+	public Processor createFileProcessor() {
+		return new RmProcessor(this);
+	}
+	
+	@Override
+	public void mergeFileProcessor(Processor fileProcessor, InputSource source) {
+		LOG.debug("Merging the records of file " + source.getPath());
+		dataset.merge(((RmProcessor) fileProcessor).dataset);
+	}
+	
+	@Override
+	public synchronized void mergeWatchedFileProcessor(Processor fileProcessor, InputSource source) {
+		// the dirty cases have been combined with the root cases, the merge may find their roots
+		dataset.getRootCases().removeAll(new HashSet<RmRootCase>(dataset.getRootCaseCandidates()));
+		mergeFileProcessor(fileProcessor, source);
+		dataset.getRootCases().addAll(dataset.getRootCaseCandidates());
+		dataset.freeze();
+		
+		fireEvent(new WatchedFileMergedEvent(this, source.getName(), new ArrayList<RmRootCase>(dataset.getRootCases()), dataset.getRootCaseTypes()));
+	}
+	
 	/**
 	 * Find all nodes by the rm record id. The method looks in the parent node index.
-	 *  
+	 *
 	 * @param nodeId the id of the rm record
 	 * @return a list of RMNodes that have a reference to the supplied node id
-	 * 
+	 *
 	 */
 	@SuppressWarnings("unchecked")
 	public List<RMNode> findByRmRecId(long nodeId) {
 		if(LOG.isInfoEnabled()) {
 			LOG.info("findByNodeId with record id " + nodeId);
 		}
-		final RMNode node = allNodes.get(nodeId);
+		final RMNode node = dataset.getNode(nodeId);
 		List<RMNode> result = Collections.EMPTY_LIST;
 		if(node == null) {
 			LOG.warn("findByRmRecId was called with an invalid node id");
 		} else {
-			result = allNodes.get(nodeId).getChildren();
+			result = node.getChildren();
 		}
 		return result;
 	}
@@ -265,22 +322,89 @@ public class RmProcessor extends Observable implements Processor{
 	public void setElapsedTimeBorder(Long elapsedTimeBorder) {
 		//TODO: remove method
 	}
-
+	
+	/**
+	 * @param parallelism the number of threads that parse the files and the chunks of large files,
+	 * 1 disables the parallel parsing
+	 */
+	public void setParallelism(int parallelism) {
+		fileHandler.setParallelism(parallelism);
+	}
+	
+	/**
+	 * @param readAhead the number of blocks that are read ahead of the parser, 0 disables reading ahead
+	 */
+	public void setReadAhead(int readAhead) {
+		fileHandler.setReadAhead(readAhead);
+	}
+	
+	/**
+	 * @param parseThreads the number of threads that parse the lines in a pipeline stage of their own,
+	 * 0 parses the lines on the threads reading them
+	 */
+	public void setParseThreads(int parseThreads) {
+		fileHandler.setParseThreads(parseThreads);
+	}
+	
+	/**
+	 * @param storage where the records are kept, it is used from the next {@link #reset()} on
+	 */
+	public void setStorage(Storage storage) {
+		// the cached records are kept in the storage of the dataset
+		if (cache != null) cache.clear();
+		dataset.setStorage(storage);
+	}
+	
+	/**
+	 * Bounds the memory of the processed records: once their estimated heap exceeds the budget, the trees of the
+	 * complete root cases are spilled to a temporary file and read back when they are selected.
+	 * @param spillBudget the budget in bytes, 0 keeps all trees in memory
+	 */
+	public void setSpillBudget(long spillBudget) {
+		dataset.setSpillBudget(spillBudget);
+	}
+	
+	/**
+	 * @return the estimated memory held by the processed records, it can be taken while the files are processed
+	 */
+	public MemoryFootprint getMemoryFootprint() {
+		final MemoryFootprint footprint = dataset.getMemoryFootprint();
+		if (cache != null) cache.addFootprint(footprint);
+		return footprint;
+	}
+	
+	/**
+	 * Caches the records of the loaded files, so the files that are loaded again are only parsed if they have changed
+	 * and the files with the same content as another loaded file are skipped. The cached records are kept until the
+	 * files are not loaded anymore, they stay in memory even if their trees are spilled.
+	 * 
+	 * @param enabled true if the records are cached, false drops the cached records, their memory is freed with the next {@link #reset()}
+	 */
+	public void setIngestionCache(boolean enabled) {
+		if (enabled && cache == null) {
+			cache = new IngestionCache();
+		} else if (!enabled && cache != null) {
+			cache.clear();
+			cache = null;
+		}
+		fileHandler.setIngestionCache(cache);
+	}
+	
 	public List<RmRootCase> getRootCases() {
-		return rootCases;
+		return dataset.getRootCases();
 	}
 	
 	public Set<String> getRootCaseTypes() {
-		return rootCaseTypes;
+		return dataset.getRootCaseTypes();
 	}
-
+	
 	/**
 	 * resets the processor in order to be able to process a new file
 	 */
 	public void reset() {
-		rootCases.clear();
-		rootCaseCandidates.clear();
-		allNodes.clear();
+		// the cached records keep the symbol table and the allocator of the dataset
+		dataset.clear(cache != null && !cache.isEmpty());
+		publishedRootCases = 0;
 		fileHandler.reset();
 	}
 	
@@ -0,0 +1,218 @@
+package de.ibm.issw.requestmetrics.engine;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ibm.issw.requestmetrics.engine.io.FileFingerprint;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+
+/**
+ * A binary file of the processed records, so a session can be opened again without parsing its files. The
+ * snapshot starts with a format version and the fingerprints of the parsed files, followed by the symbol table,
+ * the records, the children and the index of the nodes and the root cases with their execution times.<br>
+ * A snapshot is only opened if it has the current version and none of its files has been changed or removed
+ * since it was saved. It is read through windows that are mapped into memory, the records are copied from the
+ * windows into the stores of the dataset.
+ */
+public class SessionSnapshot {
+	public static final Logger LOG = LoggerFactory.getLogger(SessionSnapshot.class);
+	/** the extension of the snapshot files */
+	public static final String EXTENSION = ".rmsnap";
+	/** the version of the format, snapshots of other versions are not opened */
+	public static final int VERSION = 1;
+	// "RMSN"
+	private static final int MAGIC = 0x524D534E;
+
+	private SessionSnapshot() {
+	}
+
+	/**
+	 * Writes a snapshot, an existing file is overwritten.
+	 * @param dataset the dataset whose records have been added completely
+	 * @param files the fingerprints of the files the records have been parsed from
+	 * @param file the snapshot file
+	 */
+	public static void save(RmDataset dataset, List<FileFingerprint> files, File file) throws IOException {
+		final RandomAccessFile snapshot = new RandomAccessFile(file, "rw");
+		try {
+			snapshot.setLength(0);
+			final Output out = new Output(snapshot.getChannel());
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(files.size());
+			for (FileFingerprint fingerprint : files) {
+				out.putString(fingerprint.getPath());
+				out.putLong(fingerprint.getSize());
+				out.putLong(fingerprint.getLastModified());
+			}
+			dataset.writeSnapshot(out);
+			out.flush();
+		} finally {
+			snapshot.close();
+		}
+		LOG.info("Saved a snapshot of " + dataset.getRootCases().size() + " root cases to " + file + " ("
+				+ file.length() / (1024 * 1024) + " MB)");
+	}
+
+	/**
+	 * Reads a snapshot into an empty dataset.
+	 * @param dataset the dataset that has been cleared, it is partly filled if the snapshot can not be read
+	 * @param file the snapshot file
+	 * @return the fingerprints of the files the records have been parsed from
+	 * @throws IOException if the file is not a snapshot of the current version or one of its files has changed
+	 */
+	public static List<FileFingerprint> open(RmDataset dataset, File file) throws IOException {
+		final RandomAccessFile snapshot = new RandomAccessFile(file, "r");
+		try {
+			final Input in = new Input(snapshot.getChannel());
+			if (in.getInt() != MAGIC) throw new IOException(file + " is not a snapshot");
+			final int version = in.getInt();
+			if (version != VERSION) {
+				throw new IOException("The snapshot " + file + " has the version " + version + ", only version " + VERSION + " can be opened");
+			}
+			final int fileCount = in.getCount();
+			final List<FileFingerprint> files = new ArrayList<FileFingerprint>(fileCount);
+			for (int i = 0; i < fileCount; i++) {
+				final FileFingerprint fingerprint = new FileFingerprint(in.getString(), in.getLong(), in.getLong());
+				if (!fingerprint.isCurrent()) {
+					throw new IOException("The snapshot " + file + " is stale, " + fingerprint.getPath() + " has been changed or removed since it was saved");
+				}
+				files.add(fingerprint);
+			}
+			dataset.readSnapshot(in);
+			LOG.info("Opened the snapshot " + file + " with " + dataset.getRootCases().size() + " root cases of " + fileCount + " files");
+			return files;
+		} finally {
+			snapshot.close();
+		}
+	}
+
+	/**
+	 * Writes the values of a snapshot through a buffer.
+	 */
+	static final class Output {
+		private static final int BUFFER_BYTES = 1024 * 1024;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+		private Output(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void putString(String value) throws IOException {
+			putInt(value.length());
+			for (int i = 0; i < value.length(); i++) {
+				ensure(2);
+				buffer.putChar(value.charAt(i));
+			}
+		}
+
+		/**
+		 * Writes a record with {@link RecordStore#write(int, java.nio.ByteBuffer)}.
+		 */
+		void putRecord(RecordStore store, int row) throws IOException {
+			ensure(RecordStore.ROW_BYTES);
+			store.write(row, buffer);
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) flush();
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Reads the values of a snapshot from the mapped window at the current position. The next window is mapped
+	 * when a value crosses the end of the current one, so files of any size can be read.
+	 */
+	static final class Input {
+		private static final long WINDOW_BYTES = 64 * 1024 * 1024;
+		private final FileChannel channel;
+		private final long size;
+		private long windowStart;
+		private MappedByteBuffer window;
+
+		private Input(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			map(0);
+		}
+
+		int getInt() throws IOException {
+			ensure(4);
+			return window.getInt();
+		}
+
+		/**
+		 * @return a number of elements that follow
+		 * @throws IOException if the number is negative, i.e. the file is corrupt
+		 */
+		int getCount() throws IOException {
+			final int count = getInt();
+			if (count < 0) throw new IOException("The snapshot is corrupt, it has a negative count at " + (windowStart + window.position() - 4));
+			return count;
+		}
+
+		long getLong() throws IOException {
+			ensure(8);
+			return window.getLong();
+		}
+
+		String getString() throws IOException {
+			final char[] chars = new char[getCount()];
+			for (int i = 0; i < chars.length; i++) {
+				ensure(2);
+				chars[i] = window.getChar();
+			}
+			return new String(chars);
+		}
+
+		/**
+		 * Appends a record to a store with {@link RecordStore#read(java.nio.ByteBuffer)}.
+		 * @return the row of the record
+		 */
+		int getRecord(RecordStore store) throws IOException {
+			ensure(RecordStore.ROW_BYTES);
+			return store.read(window);
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (window.remaining() >= bytes) return;
+			final long position = windowStart + window.position();
+			if (position + bytes > size) throw new EOFException("Unexpected end of the snapshot at " + position);
+			map(position);
+		}
+
+		private void map(long position) throws IOException {
+			windowStart = position;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+		}
+	}
+}
@@ -1,19 +1,20 @@
 package de.ibm.issw.requestmetrics.engine.events;
 
-import java.io.File;
 import java.util.EventObject;
 import java.util.List;
 
+import de.ibm.issw.requestmetrics.engine.io.InputSource;
+
 @SuppressWarnings("serial")
 public class ParsingAllFilesHasFinishedEvent extends EventObject {
-	private List<File> files;
+	private List<InputSource> files;
 	
-	public ParsingAllFilesHasFinishedEvent(Object source, List<File> files) {
+	public ParsingAllFilesHasFinishedEvent(Object source, List<InputSource> files) {
 		super(source);
 		this.files = files;
 	}
 
-	public List<File> getFiles() {
+	public List<InputSource> getFiles() {
 		return files;
 	}
 }
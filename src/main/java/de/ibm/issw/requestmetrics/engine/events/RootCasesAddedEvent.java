@@ -0,0 +1,22 @@
+package de.ibm.issw.requestmetrics.engine.events;
+
+import java.util.EventObject;
+import java.util.List;
+
+import de.ibm.issw.requestmetrics.model.RmRootCase;
+
+//give feedback about the root cases that have been found while following a log
+
+@SuppressWarnings("serial")
+public class RootCasesAddedEvent extends EventObject {
+	private List<RmRootCase> rootCases;
+
+	public RootCasesAddedEvent(Object source, List<RmRootCase> rootCases) {
+		super(source);
+		this.rootCases = rootCases;
+	}
+
+	public List<RmRootCase> getRootCases() {
+		return rootCases;
+	}
+}
@@ -0,0 +1,35 @@
+package de.ibm.issw.requestmetrics.engine.events;
+
+import java.util.EventObject;
+import java.util.List;
+import java.util.Set;
+
+import de.ibm.issw.requestmetrics.model.RmRootCase;
+
+//give feedback about the root cases after a file of a watched folder has been merged
+
+@SuppressWarnings("serial")
+public class WatchedFileMergedEvent extends EventObject {
+	private String fileName;
+	private List<RmRootCase> rootCases;
+	private Set<String> rootCaseTypes;
+
+	public WatchedFileMergedEvent(Object source, String fileName, List<RmRootCase> rootCases, Set<String> rootCaseTypes) {
+		super(source);
+		this.fileName = fileName;
+		this.rootCases = rootCases;
+		this.rootCaseTypes = rootCaseTypes;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public List<RmRootCase> getRootCases() {
+		return rootCases;
+	}
+
+	public Set<String> getRootCaseTypes() {
+		return rootCaseTypes;
+	}
+}
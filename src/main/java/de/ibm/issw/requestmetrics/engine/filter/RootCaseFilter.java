@@ -1,17 +1,21 @@
 package de.ibm.issw.requestmetrics.engine.filter;
 
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.swing.JTable;
 import javax.swing.RowFilter;
-import javax.swing.RowFilter.ComparisonType;
 import javax.swing.table.TableRowSorter;
 
 import de.ibm.issw.requestmetrics.gui.CheckComboBox;
 import de.ibm.issw.requestmetrics.gui.RequestMetricsGui;
 import de.ibm.issw.requestmetrics.gui.RootCaseTableModel;
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
 
 public class RootCaseFilter{
 
@@ -24,10 +28,7 @@ public class RootCaseFilter{
 	private JTable rootCaseTable;
 	private RequestMetricsGui gui;
 	
-	private final int TIMESTAMP_COLUMN = 1;
 	private final int ELAPSED_TIME_COLUMN = 2;
-	private final int TYPE_COLUMN = 3;
-	private final int DETAIL_COLUMN = 5;
 	
 	public RootCaseFilter(JTable rootCaseTable, RequestMetricsGui gui) {
 		this.rootCaseTable = rootCaseTable;
@@ -68,7 +69,7 @@ public class RootCaseFilter{
 	}
 	
 	/**
-	 * uses a regex filter in the detail column. whenever the input changes,
+	 * uses a regex filter on the details. whenever the input changes,
 	 * the old filter is removed to ensure that filter is only applied for
 	 * the current input
 	 * @param userInput the input we want to filter for
@@ -79,7 +80,18 @@ public class RootCaseFilter{
 		
 		try {
 			// perform case insensitive filtering
-			detailFilter = RowFilter.regexFilter("(?i)" + userInput, DETAIL_COLUMN);
+			final Pattern pattern = Pattern.compile("(?i)" + userInput);
+			detailFilter = new SymbolFilter() {
+				@Override
+				protected int getSymbol(RMRecord record) {
+					return record.getDetailCmpSymbol();
+				}
+
+				@Override
+				protected boolean include(String detail) {
+					return pattern.matcher(detail).find();
+				}
+			};
 		} catch (Exception e) {
 			//TODO: define exception handling
 		}
@@ -90,39 +102,49 @@ public class RootCaseFilter{
 	}
 	
 	/**
-	 * 
-	 * @param startDate
+	 * uses a timestamp filter on the root cases. whenever the input changes,
+	 * the old filter is removed to ensure that filter is only applied for
+	 * the current input
+	 * @param startTimestamp the epoch milliseconds the root cases must have occurred after
 	 */
-	public void filterStartDate(final Date startDate) {
+	public void filterStartDate(final long startTimestamp) {
 		if (dateTimeStartFilter != null && filters.contains(dateTimeStartFilter))
 			filters.remove(dateTimeStartFilter);
 		
-		dateTimeStartFilter = RowFilter.dateFilter(ComparisonType.AFTER, startDate, TIMESTAMP_COLUMN);
+		dateTimeStartFilter = new TimestampFilter() {
+			@Override
+			protected boolean include(long timestamp) {
+				return timestamp > startTimestamp;
+			}
+		};
 		
-		if (dateTimeStartFilter != null)
-			filters.add(dateTimeStartFilter);
+		filters.add(dateTimeStartFilter);
 		buildCompoundFilter();
 	}
 	
 	/**
-	 * uses a date filter in the timestamp column. whenever the input changes,
+	 * uses a timestamp filter on the root cases. whenever the input changes,
 	 * the old filter is removed to ensure that filter is only applied for
 	 * the current input
-	 * @param endDate
+	 * @param endTimestamp the epoch milliseconds the root cases must have occurred before
 	 */
-	public void filterEndDate(final Date endDate) {
+	public void filterEndDate(final long endTimestamp) {
 		if (dateTimeEndFilter != null && filters.contains(dateTimeEndFilter))
 			filters.remove(dateTimeEndFilter);
 		
-		dateTimeEndFilter = RowFilter.dateFilter(ComparisonType.BEFORE, endDate, TIMESTAMP_COLUMN);
+		dateTimeEndFilter = new TimestampFilter() {
+			@Override
+			protected boolean include(long timestamp) {
+				return timestamp < endTimestamp;
+			}
+		};
 		
-		if (dateTimeEndFilter != null)
-			filters.add(dateTimeEndFilter);
+		filters.add(dateTimeEndFilter);
 		buildCompoundFilter();
 	}
 	
 	/**
-	 * uses a date filter in the timestamp column. whenever the input changes,
+	 * filters the types that are selected in the combo box. whenever the selection changes,
 	 * the old filter is removed to ensure that filter is only applied for
 	 * the current input
 	 * @param comboBox
@@ -131,13 +153,22 @@ public class RootCaseFilter{
 		if (typeFilter != null && filters.contains(typeFilter))
 			filters.remove(typeFilter);
 		
-		List<RowFilter<RootCaseTableModel, Object>> typeFilterList = new ArrayList<RowFilter<RootCaseTableModel, Object>>();
 		if (comboBox.getSelectedItems() != null) {
+			final Set<String> selectedTypes = new HashSet<String>();
 			for (Object type : comboBox.getSelectedItems()) {
-				RowFilter<RootCaseTableModel, Object> rowFilter = RowFilter.regexFilter(type.toString(), TYPE_COLUMN);
-				typeFilterList.add(rowFilter);
+				selectedTypes.add(type.toString());
 			}
-			typeFilter = RowFilter.orFilter(typeFilterList);
+			typeFilter = new SymbolFilter() {
+				@Override
+				protected int getSymbol(RMRecord record) {
+					return record.getTypeCmpSymbol();
+				}
+
+				@Override
+				protected boolean include(String type) {
+					return selectedTypes.contains(type);
+				}
+			};
 			filters.add(typeFilter);
 		} else {
 			filters.remove(typeFilter);
@@ -174,4 +205,42 @@ public class RootCaseFilter{
 		// update the number of root cases in the frame title
 		gui.setTitleRootCaseFrame(rootCaseTable.getRowCount() + " Transactions");
 	}
+	
+	/**
+	 * Filters the root cases by the epoch milliseconds of the log timestamps of their records. The root cases
+	 * without a timestamp are compared as {@link RecordStore#NO_TIMESTAMP}, i.e. they are before any date.
+	 */
+	private abstract static class TimestampFilter extends RowFilter<RootCaseTableModel, Object> {
+		@Override
+		public boolean include(Entry<? extends RootCaseTableModel, ? extends Object> entry) {
+			return include(entry.getModel().getRecord((Integer) entry.getIdentifier()).getLogTimestamp());
+		}
+
+		protected abstract boolean include(long timestamp);
+	}
+	
+	/**
+	 * Filters the root cases by a symbol of their records. A symbol is only checked the first time it 
+	 * occurs, the other rows are decided by comparing the id of their symbol. The records of a table 
+	 * share their symbol table.
+	 */
+	private abstract static class SymbolFilter extends RowFilter<RootCaseTableModel, Object> {
+		private final BitSet checkedSymbols = new BitSet();
+		private final BitSet includedSymbols = new BitSet();
+
+		@Override
+		public boolean include(Entry<? extends RootCaseTableModel, ? extends Object> entry) {
+			final RMRecord record = entry.getModel().getRecord((Integer) entry.getIdentifier());
+			final int symbol = getSymbol(record);
+			if (!checkedSymbols.get(symbol)) {
+				checkedSymbols.set(symbol);
+				if (include(record.getSymbols().get(symbol))) includedSymbols.set(symbol);
+			}
+			return includedSymbols.get(symbol);
+		}
+
+		protected abstract int getSymbol(RMRecord record);
+
+		protected abstract boolean include(String symbol);
+	}
 }
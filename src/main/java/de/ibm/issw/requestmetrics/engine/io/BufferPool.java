@@ -0,0 +1,52 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of byte buffers of the same size. The buffers of the read-ahead streams are reused,
+ * so prefetching large blocks does not create garbage for every block. The pool is thread safe.
+ */
+public class BufferPool {
+	private final int bufferSize;
+	private final int maxPooledBuffers;
+	private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+	private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+	/**
+	 * @param bufferSize the size of the buffers
+	 * @param maxPooledBuffers the maximum number of buffers that are kept for reuse
+	 */
+	public BufferPool(int bufferSize, int maxPooledBuffers) {
+		this.bufferSize = bufferSize;
+		this.maxPooledBuffers = maxPooledBuffers;
+	}
+
+	/**
+	 * @return a pooled buffer or a new one if the pool is empty
+	 */
+	public byte[] acquire() {
+		final byte[] buffer = buffers.poll();
+		if (buffer == null) return new byte[bufferSize];
+
+		pooledBuffers.decrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * Returns the buffer to the pool, it must not be used afterwards.
+	 * @param buffer a buffer acquired from the pool
+	 */
+	public void release(byte[] buffer) {
+		if (pooledBuffers.incrementAndGet() <= maxPooledBuffers) {
+			buffers.offer(buffer);
+		} else {
+			pooledBuffers.decrementAndGet();
+		}
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+}
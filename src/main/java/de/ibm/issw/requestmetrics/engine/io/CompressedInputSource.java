@@ -0,0 +1,74 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A log that is compressed, e.g. a rotated log. It is decompressed while it is read, the decompressed
+ * content never touches the disk. The progress is measured in compressed bytes, since the size of the
+ * decompressed content is not known up front.
+ */
+public class CompressedInputSource extends InputSource {
+	private final InputSource compressed;
+	private final Compression compression;
+
+	/**
+	 * @param compressed the compressed log
+	 * @param compression the compression of the log
+	 */
+	public CompressedInputSource(InputSource compressed, Compression compression) {
+		this.compressed = compressed;
+		this.compression = compression;
+	}
+
+	/**
+	 * @param source a log
+	 * @return a source decompressing the log if its name has the extension of a compression, otherwise the log itself
+	 */
+	public static InputSource decompressed(InputSource source) {
+		final Compression compression = Compression.forName(source.getName());
+		return compression != null ? new CompressedInputSource(source, compression) : source;
+	}
+
+	/**
+	 * @return the name of the log without the extension of the compression, e.g. <code>SystemOut.log</code>
+	 */
+	@Override
+	public String getName() {
+		final String name = compressed.getName();
+		return name.substring(0, name.length() - compression.getExtension().length());
+	}
+
+	@Override
+	public String getPath() {
+		return compressed.getPath();
+	}
+
+	/**
+	 * @return the compressed size of the log
+	 */
+	@Override
+	public long getSize() {
+		return compressed.getSize();
+	}
+
+	@Override
+	public long getLastModified() {
+		return compressed.getLastModified();
+	}
+
+	@Override
+	public InputStream openStream() throws IOException {
+		return decode(openRawStream());
+	}
+
+	@Override
+	public InputStream openRawStream() throws IOException {
+		return compressed.openStream();
+	}
+
+	@Override
+	public InputStream decode(InputStream rawStream) throws IOException {
+		return compression.decompress(rawStream);
+	}
+}
@@ -0,0 +1,61 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * The compression formats of logs that are decompressed while they are parsed, e.g. rotated logs like
+ * <code>SystemOut_17.10.26_10.15.00.log.gz</code>. The format is detected by the extension of the file.
+ */
+public enum Compression {
+	GZIP(".gz") {
+		@Override
+		public InputStream decompress(InputStream in) throws IOException {
+			// concatenated members are read as well
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		}
+	},
+	BZIP2(".bz2") {
+		@Override
+		public InputStream decompress(InputStream in) throws IOException {
+			return new BZip2CompressorInputStream(new BufferedInputStream(in, BUFFER_SIZE), true);
+		}
+	};
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String extension;
+
+	private Compression(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * @param in the compressed stream
+	 * @return the stream of the decompressed content, closing it closes the compressed stream
+	 */
+	public abstract InputStream decompress(InputStream in) throws IOException;
+
+	/**
+	 * @return the extension of the compressed files including the dot
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * @param name the name of a file
+	 * @return the compression of the file or null if the file is not compressed
+	 */
+	public static Compression forName(String name) {
+		final String lowerCaseName = name.toLowerCase();
+		for (Compression compression : values()) {
+			if (lowerCaseName.endsWith(compression.extension)) return compression;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,50 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes that have been read from the stream.
+ */
+public class CountingInputStream extends FilterInputStream {
+	// the count is read by other threads if the stream is read ahead
+	private volatile long count;
+
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = super.read();
+		if (b >= 0) count++;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		final int read = super.read(b, off, len);
+		if (read > 0) count += read;
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		final long skipped = super.skip(n);
+		count += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * @return the number of bytes that have been read so far
+	 */
+	public long getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,63 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.File;
+
+/**
+ * The path, the size and the modification time of a file that has been parsed, e.g. to tell whether the records
+ * that have been kept from it are still up to date.
+ */
+public class FileFingerprint {
+	private final String path;
+	private final long size;
+	private final long lastModified;
+
+	public FileFingerprint(String path, long size, long lastModified) {
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * @param file the file whose current state is taken
+	 * @return the fingerprint of the file with its absolute path
+	 */
+	public static FileFingerprint of(File file) {
+		return new FileFingerprint(file.getAbsolutePath(), file.length(), file.lastModified());
+	}
+
+	/**
+	 * @return true if the file still exists with the same size and modification time
+	 */
+	public boolean isCurrent() {
+		return equals(of(new File(path)));
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof FileFingerprint)) return false;
+		final FileFingerprint other = (FileFingerprint) obj;
+		return path.equals(other.path) && size == other.size && lastModified == other.lastModified;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * path.hashCode() + (int) (size ^ lastModified);
+	}
+
+	@Override
+	public String toString() {
+		return path + " (" + size + " bytes, modified " + lastModified + ")";
+	}
+}
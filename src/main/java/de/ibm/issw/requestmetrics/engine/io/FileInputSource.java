@@ -0,0 +1,42 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A log that is a plain file.
+ */
+public class FileInputSource extends InputSource {
+	private final File file;
+
+	public FileInputSource(File file) {
+		this.file = file;
+	}
+
+	@Override
+	public String getName() {
+		return file.getName();
+	}
+
+	@Override
+	public String getPath() {
+		return file.getAbsolutePath();
+	}
+
+	@Override
+	public long getSize() {
+		return file.length();
+	}
+
+	@Override
+	public InputStream openStream() throws IOException {
+		return new FileInputStream(file);
+	}
+
+	@Override
+	public File getFile() {
+		return file;
+	}
+}
@@ -0,0 +1,127 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A log that can be parsed: a plain file or an entry of a (nested) ZIP archive, each of them may be
+ * compressed. Entries are read straight from the archive and compressed logs are decompressed while they
+ * are read, nothing is extracted to the disk.
+ */
+public abstract class InputSource {
+	private static final int CONTENT_BUFFER_BYTES = 64 * 1024;
+
+	/**
+	 * @return the name of the log without the path, it is used as log source of the records
+	 */
+	public abstract String getName();
+
+	/**
+	 * @return the path that identifies the log among all sources, e.g. <code>/tmp/logs.zip!/node1/SystemOut.log</code>
+	 */
+	public abstract String getPath();
+
+	/**
+	 * @return the size of the log in bytes as it is read from the raw stream
+	 */
+	public abstract long getSize();
+
+	/**
+	 * @return a new stream of the uncompressed content of the log
+	 */
+	public abstract InputStream openStream() throws IOException;
+
+	/**
+	 * The raw stream is the one whose bytes are measured by the size, e.g. to report the progress.
+	 * @return a new raw stream of the log, its content is passed through {@link #decode(InputStream)}
+	 */
+	public InputStream openRawStream() throws IOException {
+		return openStream();
+	}
+
+	/**
+	 * @param rawStream a raw stream of the log
+	 * @return the stream of the content of the log
+	 */
+	public InputStream decode(InputStream rawStream) throws IOException {
+		return rawStream;
+	}
+
+	/**
+	 * @return the file if the source is a plain file, otherwise null
+	 */
+	public File getFile() {
+		return null;
+	}
+
+	/**
+	 * @return the modification time of the file of the log, the archive for an entry, or 0 if it is not known
+	 */
+	public long getLastModified() {
+		final File file = getFile();
+		return file != null ? file.lastModified() : 0;
+	}
+
+	/**
+	 * Compares the uncompressed contents of two logs byte by byte, so equal logs are found regardless of their path
+	 * and compression, e.g. a log in a folder and the same log in a ZIP file. The logs are read up to their first
+	 * difference only.
+	 * @param other the other log
+	 * @return true if the logs have exactly the same content
+	 */
+	public boolean hasSameContent(InputSource other) throws IOException {
+		final InputStream in = openStream();
+		try {
+			final InputStream otherIn = other.openStream();
+			try {
+				final byte[] buffer = new byte[CONTENT_BUFFER_BYTES];
+				final byte[] otherBuffer = new byte[CONTENT_BUFFER_BYTES];
+				while (true) {
+					final int read = readFully(in, buffer);
+					if (readFully(otherIn, otherBuffer) != read) return false;
+					for (int i = 0; i < read; i++) {
+						if (buffer[i] != otherBuffer[i]) return false;
+					}
+					if (read < buffer.length) return true;
+				}
+			} finally {
+				otherIn.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return the number of bytes that have been read, it is less than the length of the buffer at the end of the stream only
+	 */
+	private static int readFully(InputStream in, byte[] buffer) throws IOException {
+		int length = 0;
+		int read;
+		while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) >= 0) {
+			length += read;
+		}
+		return length;
+	}
+
+	/**
+	 * @return true if the source is a ZIP archive whose entries need to be parsed
+	 */
+	public boolean isArchive() {
+		return getName().toLowerCase().endsWith(".zip");
+	}
+
+	@Override
+	public String toString() {
+		return getPath();
+	}
+
+	/**
+	 * @param entryName the name of an archive entry including its folders
+	 * @return the name of the entry without the folders
+	 */
+	protected static String baseName(String entryName) {
+		return entryName.substring(Math.max(entryName.lastIndexOf('/'), entryName.lastIndexOf('\\')) + 1);
+	}
+}
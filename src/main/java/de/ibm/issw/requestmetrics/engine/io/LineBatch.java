@@ -0,0 +1,137 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+/**
+ * A batch of lines of a single log. The characters of all lines are kept in a shared buffer and the lines
+ * are handed out as views on that buffer, so no string is created per line. A batch is filled by a
+ * {@link LineReader} and reused for the next lines once it has been processed, the views of its lines
+ * are only valid until then.<br>
+ * Instances are not thread safe, a batch may only be handed over to another thread as a whole.
+ */
+public class LineBatch {
+	// initial number of characters per line the buffer is sized for
+	private static final int INITIAL_LINE_LENGTH = 256;
+
+	private final int[] starts;
+	private final int[] ends;
+	private final Line[] lines;
+	private char[] chars;
+	// number of characters used by the lines
+	private int length;
+	private int size;
+
+	/**
+	 * @param capacity the maximum number of lines of the batch
+	 */
+	public LineBatch(int capacity) {
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
+		this.lines = new Line[capacity];
+		this.chars = new char[capacity * INITIAL_LINE_LENGTH];
+	}
+
+	/**
+	 * @param index the index of the line in the batch
+	 * @return a view of the line that is valid until the batch is cleared
+	 */
+	public CharSequence get(int index) {
+		if (index >= size) throw new IndexOutOfBoundsException("Line " + index + " of " + size);
+		if (lines[index] == null) lines[index] = new Line(index);
+		return lines[index];
+	}
+
+	/**
+	 * Appends a copy of the line, e.g. a line that has already been decoded into a string.
+	 * @param line the line without the line break
+	 */
+	public void add(CharSequence line) {
+		final int lineLength = line.length();
+		final char[] buffer = reserve(lineLength);
+		for (int i = 0; i < lineLength; i++) {
+			buffer[length + i] = line.charAt(i);
+		}
+		commit(lineLength);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isFull() {
+		return size == starts.length;
+	}
+
+	/**
+	 * Drops the lines, the views handed out so far are reused for the next lines.
+	 */
+	public void clear() {
+		size = 0;
+		length = 0;
+	}
+
+	/**
+	 * Makes room for a line that is decoded directly into the buffer.
+	 * @param maxLength the maximum number of characters of the line
+	 * @return the buffer, the line starts at {@link #getLength()}
+	 */
+	char[] reserve(int maxLength) {
+		if (length + maxLength > chars.length) {
+			final char[] grown = new char[Math.max(length + maxLength, 2 * chars.length)];
+			System.arraycopy(chars, 0, grown, 0, length);
+			chars = grown;
+		}
+		return chars;
+	}
+
+	/**
+	 * @return the number of characters used by the lines, i.e. the offset of the next line in the buffer
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Appends the line that has been decoded into the buffer at {@link #getLength()}.
+	 * @param lineLength the number of characters of the line
+	 */
+	void commit(int lineLength) {
+		starts[size] = length;
+		ends[size] = length + lineLength;
+		length += lineLength;
+		size++;
+	}
+
+	/**
+	 * View of a line. The buffer is looked up on every access since it may be replaced by a larger one.
+	 */
+	private class Line implements CharSequence {
+		private final int index;
+
+		private Line(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public int length() {
+			return ends[index] - starts[index];
+		}
+
+		@Override
+		public char charAt(int i) {
+			return chars[starts[index] + i];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(chars, starts[index] + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, starts[index], length());
+		}
+	}
+}
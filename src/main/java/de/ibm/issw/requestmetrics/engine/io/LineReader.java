@@ -0,0 +1,22 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the lines of a log that contain one of the request metrics markers.
+ */
+public interface LineReader extends Closeable {
+	/**
+	 * Fills the batch with the next lines containing a marker. All lines in between are skipped.
+	 * The lines that the batch contained before are dropped.
+	 * @param batch the batch the lines are read into, without their line breaks
+	 * @return false if the end of the log has been reached before a line was read
+	 */
+	public boolean readLines(LineBatch batch) throws IOException;
+
+	/**
+	 * @return the number of bytes that have been consumed so far, it is used for the progress
+	 */
+	public long getPosition();
+}
@@ -0,0 +1,268 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the lines of a byte range of a file that contain one of the markers. The line boundaries are
+ * found on the raw bytes and only the lines containing a marker are decoded directly into the buffer of the
+ * {@link LineBatch}, all other lines are skipped without decoding them. Lines of ASCII characters are copied
+ * byte by byte if the charset encodes them like ASCII.<br>
+ * Large ranges are memory mapped in windows, so files beyond 2 GB can be read as well. A line must
+ * not be longer than a window, longer lines are split. The next window can be prefetched into the page cache
+ * while the current one is parsed (see {@link #setPrefetchExecutor(ExecutorService)}).<br>
+ * The markers are searched as ASCII bytes, so only charsets that encode ASCII characters the same
+ * way are supported (see {@link #isSupported(Charset, String...)}).
+ */
+public class MarkerLineReader implements LineReader {
+	// ranges up to this size are read onto the heap instead of being mapped
+	private static final int MAP_THRESHOLD = 1024 * 1024;
+	// size of the mapped windows
+	private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private final FileChannel channel;
+	private final boolean ownsChannel;
+	private final CharsetDecoder decoder;
+	private final boolean asciiCompatible;
+	private final byte[][] markers;
+	private final long end;
+	private final boolean mapped;
+
+	private ByteBuffer window;
+	// offset of the window in the file
+	private long windowStart;
+	// position of the next line in the window
+	private int pos;
+	private long lineNumber;
+	private ExecutorService prefetchExecutor;
+	private Future<?> prefetch;
+
+	/**
+	 * @param file the file to be read
+	 * @param start the offset of the first line
+	 * @param end the offset after the last line
+	 * @param charset the charset of the file, it must be supported
+	 * @param markers the markers of the lines that are returned
+	 */
+	public MarkerLineReader(File file, long start, long end, Charset charset, String... markers) throws IOException {
+		this(new FileInputStream(file).getChannel(), true, start, end, charset, markers);
+	}
+
+	/**
+	 * @param channel the channel of the file to be read, it is not closed by the reader
+	 * @param start the offset of the first line
+	 * @param end the offset after the last line
+	 * @param charset the charset of the file, it must be supported
+	 * @param markers the markers of the lines that are returned
+	 */
+	public MarkerLineReader(FileChannel channel, long start, long end, Charset charset, String... markers) throws IOException {
+		this(channel, false, start, end, charset, markers);
+	}
+
+	private MarkerLineReader(FileChannel channel, boolean ownsChannel, long start, long end, Charset charset, String... markers) throws IOException {
+		this.channel = channel;
+		this.ownsChannel = ownsChannel;
+		// malformed input is replaced like it is done by the constructors of String
+		this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.asciiCompatible = isAsciiCompatible(charset);
+		this.end = end;
+		this.mapped = end - start > MAP_THRESHOLD;
+		this.markers = new byte[markers.length][];
+		for (int i = 0; i < markers.length; i++) {
+			this.markers[i] = markers[i].getBytes(ASCII);
+		}
+		loadWindow(start);
+	}
+
+	/**
+	 * Checks if lines of the charset can be searched for the markers on the raw bytes.
+	 * @param charset the charset of the file
+	 * @param markers the markers of the lines
+	 * @return true if the charset encodes the markers and the line break like ASCII
+	 */
+	public static boolean isSupported(Charset charset, String... markers) {
+		if (!Arrays.equals("\n".getBytes(charset), "\n".getBytes(ASCII))) return false;
+		for (String marker : markers) {
+			if (!Arrays.equals(marker.getBytes(charset), marker.getBytes(ASCII))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the charset decodes every byte below 0x80 to the ASCII character of the same value
+	 */
+	private static boolean isAsciiCompatible(Charset charset) {
+		final byte[] bytes = new byte[0x80];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		final String decoded = new String(bytes, charset);
+		if (decoded.length() != bytes.length) return false;
+		for (int i = 0; i < bytes.length; i++) {
+			if (decoded.charAt(i) != i) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean readLines(LineBatch batch) throws IOException {
+		batch.clear();
+		while (!batch.isFull()) {
+			final int limit = window.limit();
+			if (pos >= limit) {
+				if (windowStart + limit >= end) break;
+				loadWindow(windowStart + limit);
+				continue;
+			}
+
+			int lineEnd = indexOfLineBreak(pos, limit);
+			if (lineEnd < 0) {
+				if (pos > 0 && windowStart + limit < end) {
+					// the line continues in the next window
+					loadWindow(windowStart + pos);
+					continue;
+				}
+				// the last line without a line break or a line that is longer than a window
+				lineEnd = limit;
+			}
+			final int lineStart = pos;
+			pos = Math.min(lineEnd + 1, limit);
+			lineNumber++;
+
+			if (containsMarker(lineStart, lineEnd)) {
+				decode(lineStart, lineEnd, batch);
+			}
+		}
+		return !batch.isEmpty();
+	}
+
+	/**
+	 * @return the number of lines that have been read so far including the skipped ones
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the offset in the file after the line that has been read last
+	 */
+	@Override
+	public long getPosition() {
+		return windowStart + pos;
+	}
+
+	/**
+	 * Enables the prefetching of the next window while the current one is parsed. The pages of the window
+	 * are loaded into the page cache by the executor, so the parser does not wait for the disk when it
+	 * reaches them. Ranges that are not mapped are not prefetched.
+	 * @param prefetchExecutor the executor loading the windows
+	 */
+	public void setPrefetchExecutor(ExecutorService prefetchExecutor) {
+		this.prefetchExecutor = prefetchExecutor;
+		prefetch(windowStart + window.limit());
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (prefetch != null) prefetch.cancel(false);
+		if (ownsChannel) channel.close();
+	}
+
+	private void loadWindow(long offset) throws IOException {
+		final int size = (int) Math.min(WINDOW_SIZE, end - offset);
+		if (mapped) {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+		} else {
+			window = ByteBuffer.allocate(size);
+			while (window.hasRemaining() && channel.read(window, offset + window.position()) >= 0);
+			window.flip();
+		}
+		windowStart = offset;
+		pos = 0;
+		prefetch(offset + size);
+	}
+
+	private void prefetch(final long offset) {
+		if (prefetchExecutor == null || !mapped || offset >= end) return;
+		// at most one window is prefetched at a time
+		if (prefetch != null && !prefetch.isDone()) return;
+
+		final int size = (int) Math.min(WINDOW_SIZE, end - offset);
+		prefetch = prefetchExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					channel.map(FileChannel.MapMode.READ_ONLY, offset, size).load();
+				} catch (IOException e) {
+					// the window is read when it is mapped by the parser
+				}
+			}
+		});
+	}
+
+	private int indexOfLineBreak(int from, int limit) {
+		for (int i = from; i < limit; i++) {
+			if (window.get(i) == '\n') return i;
+		}
+		return -1;
+	}
+
+	private boolean containsMarker(int lineStart, int lineEnd) {
+		for (int i = lineStart; i < lineEnd; i++) {
+			final byte b = window.get(i);
+			for (byte[] marker : markers) {
+				if (b == marker[0] && regionMatches(i, lineEnd, marker)) return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean regionMatches(int from, int lineEnd, byte[] marker) {
+		if (lineEnd - from < marker.length) return false;
+		for (int i = 1; i < marker.length; i++) {
+			if (window.get(from + i) != marker[i]) return false;
+		}
+		return true;
+	}
+
+	private void decode(int lineStart, int lineEnd, LineBatch batch) {
+		// a line break of windows consists of \r\n
+		if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') lineEnd--;
+
+		final int length = lineEnd - lineStart;
+		final int offset = batch.getLength();
+		char[] chars = batch.reserve(length);
+		if (asciiCompatible) {
+			int i = 0;
+			byte b;
+			while (i < length && (b = window.get(lineStart + i)) >= 0) {
+				chars[offset + i++] = (char) b;
+			}
+			if (i == length) {
+				batch.commit(length);
+				return;
+			}
+		}
+
+		// the line contains other characters, so it is decoded by the charset
+		chars = batch.reserve((int) Math.ceil(length * (double) decoder.maxCharsPerByte()));
+		final ByteBuffer in = window.duplicate();
+		in.limit(lineEnd).position(lineStart);
+		final CharBuffer out = CharBuffer.wrap(chars, offset, chars.length - offset);
+		decoder.reset();
+		decoder.decode(in, out, true);
+		decoder.flush(out);
+		batch.commit(out.position() - offset);
+	}
+}
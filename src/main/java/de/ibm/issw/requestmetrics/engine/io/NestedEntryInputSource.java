@@ -0,0 +1,55 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * A log that is an entry of a ZIP archive which is itself an entry of another archive. Such entries
+ * can only be read once, in the order of the archive, while the archive stream is positioned at them.
+ */
+public class NestedEntryInputSource extends InputSource {
+	private final InputSource archive;
+	private final ZipEntry entry;
+	private final ZipInputStream archiveStream;
+
+	/**
+	 * @param archive the archive containing the entry
+	 * @param entry the entry
+	 * @param archiveStream the stream of the archive that is positioned at the entry
+	 */
+	public NestedEntryInputSource(InputSource archive, ZipEntry entry, ZipInputStream archiveStream) {
+		this.archive = archive;
+		this.entry = entry;
+		this.archiveStream = archiveStream;
+	}
+
+	@Override
+	public String getName() {
+		return baseName(entry.getName());
+	}
+
+	@Override
+	public String getPath() {
+		return archive.getPath() + "!/" + entry.getName();
+	}
+
+	@Override
+	public long getSize() {
+		return Math.max(0, entry.getSize());
+	}
+
+	/**
+	 * @return the stream of the entry, closing it does not close the archive stream
+	 */
+	@Override
+	public InputStream openStream() {
+		return new FilterInputStream(archiveStream) {
+			@Override
+			public void close() {
+				// the archive stream is closed by the owner of the archive
+			}
+		};
+	}
+}
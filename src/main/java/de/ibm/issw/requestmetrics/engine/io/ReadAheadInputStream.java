@@ -0,0 +1,164 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a stream ahead on another thread, so reading (and decompressing) the stream overlaps with
+ * parsing it. The stream is read in blocks of the buffer pool that are handed over by a bounded queue:
+ * the reader blocks when the queue is full, so it never gets further ahead than the configured number
+ * of blocks. The buffers of consumed blocks are returned to the pool.<br>
+ * The stream must be closed to stop the reader. The underlying stream is closed by the reader thread once it
+ * has started, otherwise by {@link #close()}: the state is switched atomically, so exactly one of them owns it.
+ */
+public class ReadAheadInputStream extends InputStream {
+	private static final Block END = new Block(null, -1, null);
+	// the reader has not started, the underlying stream is closed by close()
+	private static final int NEW = 0;
+	// the reader has started, it closes the underlying stream when it ends
+	private static final int STARTED = 1;
+	private static final int CLOSED = 2;
+
+	private final InputStream in;
+	private final BufferPool pool;
+	private final BlockingQueue<Block> blocks;
+	private final Future<?> reader;
+	private final AtomicInteger state = new AtomicInteger(NEW);
+
+	private Block current;
+	private int pos;
+
+	/**
+	 * @param in the stream to be read ahead
+	 * @param pool the pool of the buffers for the blocks
+	 * @param readAhead the number of blocks the reader may be ahead of the consumer
+	 * @param executor the executor running the reader, it needs a thread for every open stream
+	 */
+	public ReadAheadInputStream(InputStream in, BufferPool pool, int readAhead, ExecutorService executor) {
+		this.in = in;
+		this.pool = pool;
+		this.blocks = new ArrayBlockingQueue<Block>(readAhead);
+		this.reader = executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				readBlocks();
+			}
+		});
+	}
+
+	private void readBlocks() {
+		// the stream has been closed before the reader started
+		if (!state.compareAndSet(NEW, STARTED)) return;
+		try {
+			boolean eof = false;
+			while (!eof && state.get() != CLOSED) {
+				final byte[] buffer = pool.acquire();
+				int length = 0;
+				int read = 0;
+				while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) >= 0) {
+					length += read;
+				}
+				eof = read < 0;
+				if (length > 0) {
+					blocks.put(new Block(buffer, length, null));
+				} else {
+					pool.release(buffer);
+				}
+			}
+			blocks.put(END);
+		} catch (IOException e) {
+			try {
+				blocks.put(new Block(null, -1, e));
+			} catch (InterruptedException ie) {
+				// the stream has been closed
+			}
+		} catch (InterruptedException e) {
+			// the stream has been closed
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// nothing to do, the stream has been read
+			}
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextBlock()) return -1;
+		return current.buffer[pos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) return 0;
+		if (!nextBlock()) return -1;
+
+		final int read = Math.min(len, current.length - pos);
+		System.arraycopy(current.buffer, pos, b, off, read);
+		pos += read;
+		return read;
+	}
+
+	@Override
+	public int available() {
+		return current != null && current != END ? current.length - pos : 0;
+	}
+
+	/**
+	 * @return true if the current block has bytes left, false at the end of the stream
+	 */
+	private boolean nextBlock() throws IOException {
+		if (current == END) return false;
+		if (current != null && pos < current.length) return true;
+
+		if (current != null) pool.release(current.buffer);
+		try {
+			current = blocks.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the next block");
+		}
+		pos = 0;
+		if (current.failure != null) {
+			final IOException failure = current.failure;
+			current = END;
+			throw failure;
+		}
+		return current != END;
+	}
+
+	@Override
+	public void close() throws IOException {
+		final int previous = state.getAndSet(CLOSED);
+		if (previous == CLOSED) return;
+
+		reader.cancel(true);
+		if (previous == NEW) in.close();
+
+		if (current != null && current != END) pool.release(current.buffer);
+		current = END;
+		Block block = null;
+		while ((block = blocks.poll()) != null) {
+			if (block.buffer != null) pool.release(block.buffer);
+		}
+	}
+
+	private static class Block {
+		private final byte[] buffer;
+		private final int length;
+		private final IOException failure;
+
+		private Block(byte[] buffer, int length, IOException failure) {
+			this.buffer = buffer;
+			this.length = length;
+			this.failure = failure;
+		}
+	}
+}
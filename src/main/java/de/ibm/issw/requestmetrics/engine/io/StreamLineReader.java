@@ -0,0 +1,132 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Reads the lines containing a marker from a stream, e.g. of an archive entry. In contrast to the
+ * {@link MarkerLineReader} every line is decoded before it is checked for the markers. The lines are
+ * searched in the decoded buffer and only the lines containing a marker are copied into the batch.
+ */
+public class StreamLineReader implements LineReader {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Reader reader;
+	private final CountingInputStream progress;
+	private final char[][] markers;
+
+	private char[] buffer = new char[BUFFER_SIZE];
+	// position of the next line in the buffer
+	private int pos;
+	private int limit;
+	private boolean endOfStream;
+
+	/**
+	 * @param in the stream of the log
+	 * @param progress the stream whose consumed bytes are reported as position,
+	 * e.g. the log stream itself or the stream of the archive containing the log
+	 * @param charset the charset of the log
+	 * @param markers the markers of the lines that are returned
+	 */
+	public StreamLineReader(InputStream in, CountingInputStream progress, Charset charset, String... markers) {
+		this.reader = new InputStreamReader(in, charset);
+		this.progress = progress;
+		this.markers = new char[markers.length][];
+		for (int i = 0; i < markers.length; i++) {
+			this.markers[i] = markers[i].toCharArray();
+		}
+	}
+
+	@Override
+	public boolean readLines(LineBatch batch) throws IOException {
+		batch.clear();
+		while (!batch.isFull()) {
+			int lineEnd = indexOfLineBreak(pos, limit);
+			if (lineEnd < 0) {
+				if (!endOfStream) {
+					fill();
+					continue;
+				}
+				if (pos >= limit) break;
+				// the last line without a line break
+				lineEnd = limit;
+			}
+			final int lineStart = pos;
+			pos = Math.min(lineEnd + 1, limit);
+
+			// a line break of windows consists of \r\n
+			if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') lineEnd--;
+			if (containsMarker(lineStart, lineEnd)) {
+				final int length = lineEnd - lineStart;
+				final char[] chars = batch.reserve(length);
+				System.arraycopy(buffer, lineStart, chars, batch.getLength(), length);
+				batch.commit(length);
+			}
+		}
+		return !batch.isEmpty();
+	}
+
+	/**
+	 * Moves the incomplete line to the beginning of the buffer and reads the next characters behind it.
+	 * The buffer is enlarged if it is filled by a single line.
+	 */
+	private void fill() throws IOException {
+		final int remaining = limit - pos;
+		if (remaining == buffer.length) {
+			final char[] grown = new char[2 * buffer.length];
+			System.arraycopy(buffer, pos, grown, 0, remaining);
+			buffer = grown;
+		} else {
+			System.arraycopy(buffer, pos, buffer, 0, remaining);
+		}
+		pos = 0;
+		limit = remaining;
+
+		final int read = reader.read(buffer, limit, buffer.length - limit);
+		if (read < 0) {
+			endOfStream = true;
+		} else {
+			limit += read;
+		}
+	}
+
+	private int indexOfLineBreak(int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer[i] == '\n') return i;
+		}
+		return -1;
+	}
+
+	private boolean containsMarker(int lineStart, int lineEnd) {
+		for (int i = lineStart; i < lineEnd; i++) {
+			for (char[] marker : markers) {
+				if (buffer[i] == marker[0] && regionMatches(i, lineEnd, marker)) return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean regionMatches(int from, int lineEnd, char[] marker) {
+		if (lineEnd - from < marker.length) return false;
+		for (int i = 1; i < marker.length; i++) {
+			if (buffer[from + i] != marker[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the bytes read from the progress stream, including the bytes buffered by the reader
+	 */
+	@Override
+	public long getPosition() {
+		return progress.getCount();
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,46 @@
+package de.ibm.issw.requestmetrics.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A log that is an entry of a ZIP file. The entry is read from the ZIP file, which must stay open
+ * until the entry has been parsed. The entries of a ZIP file can be read concurrently.
+ */
+public class ZipEntryInputSource extends InputSource {
+	private final ZipFile zipFile;
+	private final ZipEntry entry;
+
+	public ZipEntryInputSource(ZipFile zipFile, ZipEntry entry) {
+		this.zipFile = zipFile;
+		this.entry = entry;
+	}
+
+	@Override
+	public String getName() {
+		return baseName(entry.getName());
+	}
+
+	@Override
+	public String getPath() {
+		return zipFile.getName() + "!/" + entry.getName();
+	}
+
+	@Override
+	public long getSize() {
+		return Math.max(0, entry.getSize());
+	}
+
+	@Override
+	public long getLastModified() {
+		return new File(zipFile.getName()).lastModified();
+	}
+
+	@Override
+	public InputStream openStream() throws IOException {
+		return zipFile.getInputStream(entry);
+	}
+}
@@ -0,0 +1,78 @@
+package de.ibm.issw.requestmetrics.engine.parser;
+
+import java.util.regex.Matcher;
+
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+import de.ibm.issw.requestmetrics.model.SymbolTable;
+import de.ibm.issw.requestmetrics.util.DateParser;
+
+/**
+ * Base class of the line parsers. Every parser first tries the hand written tokenizer 
+ * and falls back to its regular expression for the lines that the tokenizer rejects.
+ */
+public abstract class AbstractLineParser implements LineParser {
+	protected final DateParser dateParser;
+	protected final RecordStore store;
+	protected final SymbolTable symbols;
+	protected final RmLineTokenizer tokenizer;
+
+	/**
+	 * @param dateParser the parser for the timestamps, it may be shared by the parsers of a file
+	 * @param store the store the records are added to, the strings are added to its symbol table
+	 */
+	public AbstractLineParser(DateParser dateParser, RecordStore store) {
+		this.dateParser = dateParser;
+		this.store = store;
+		this.symbols = store.getSymbols();
+		this.tokenizer = new RmLineTokenizer(dateParser, store);
+	}
+
+	/**
+	 * Parses the line with the regular expression of the layout only, the tokenizer is skipped.
+	 * It is the reference the tokenizer is checked against.
+	 * @param line the line to be parsed
+	 * @param logSource the name of the file the line was read from
+	 * @return the record or null if the line does not match the layout
+	 */
+	public abstract RMRecord matchLine(CharSequence line, String logSource);
+
+	/**
+	 * adds the record of a matcher that matched one of the supported layouts to the store. 
+	 * Strings are added to the symbol table.
+	 * @param matcher the matcher that matched the line
+	 * @param logFileName the symbol of the name of the log file the record belongs to
+	 * @param groupNr the number of the group that contains the timestamp
+	 * @return the record
+	 */
+	protected RMRecord createRecord(Matcher matcher, int logFileName, int groupNr) {
+		final String timestamp = matcher.group(groupNr++);
+		final int threadId = symbols.add(matcher.group(groupNr++));
+		
+		final Integer parentVersion = Integer.parseInt(matcher.group(groupNr++));
+		final int parentIp = symbols.add(matcher.group(groupNr++));
+		final Long parentTimestamp = Long.parseLong(matcher.group(groupNr++));
+		final Long parentPid = Long.parseLong(matcher.group(groupNr++));
+		final Long parentRequestId = Long.parseLong(matcher.group(groupNr++));
+		final int parentEvent = symbols.add(matcher.group(groupNr++));
+		
+		final Integer currentVersion = Integer.parseInt(matcher.group(groupNr++));
+		final int currentIp = symbols.add(matcher.group(groupNr++));
+		final Long currentTimestamp = Long.parseLong(matcher.group(groupNr++));
+		final Long currentPid = Long.parseLong(matcher.group(groupNr++));
+		final Long currentRequestId = Long.parseLong(matcher.group(groupNr++));
+		final int currentEvent = symbols.add(matcher.group(groupNr++));
+		final int type = symbols.add(matcher.group(groupNr++));
+		final int detail = symbols.add(matcher.group(groupNr++));
+		final Long currentElapsed = Long.parseLong(matcher.group(groupNr++));
+		
+		final long recordEpoch = dateParser.parse(timestamp, 0, timestamp.length());
+		
+		// add the record of the log line
+		final int row = store.add(logFileName, recordEpoch != DateParser.INVALID ? recordEpoch : RecordStore.NO_TIMESTAMP, 
+								threadId, type, detail, currentElapsed);
+		store.setCurrentCmp(row, currentVersion, currentIp, currentTimestamp, currentPid, currentRequestId, currentEvent);
+		store.setParentCmp(row, parentVersion, parentIp, parentTimestamp, parentPid, parentRequestId, parentEvent);
+		return store.get(row);
+	}
+}
@@ -0,0 +1,39 @@
+package de.ibm.issw.requestmetrics.engine.parser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.ibm.issw.requestmetrics.engine.events.LogParsingTypeEvent;
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+import de.ibm.issw.requestmetrics.util.DateParser;
+
+/**
+ * Parses SystemOut.log files that were filtered with grep, i.e. every line is prefixed with the file name.
+ */
+public class GreppedLineParser extends AbstractLineParser {
+	private static final String REGEX_GREPPED = "([^:]*):\\[([^\\]]*)\\] (\\w+) PmiRmArmWrapp I\\s+(?:PMRM0003I|CWPRM0003I):\\s+parent:ver=(\\d),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(\\w+)\\s-\\scurrent:ver=([^,]+),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(.*) type=(.*) detail=(.*) elapsed=(\\w+)";	
+	private static final Pattern PATTERN_GREPPED = Pattern.compile(REGEX_GREPPED);
+
+	public GreppedLineParser(DateParser dateParser, RecordStore store) {
+		super(dateParser, store);
+	}
+
+	@Override
+	public RMRecord parseLine(CharSequence line, String logSource) {
+		RMRecord record = tokenizer.tokenizeGrepped(line);
+		if(record == null) record = matchLine(line, logSource);
+		return record;
+	}
+
+	@Override
+	public RMRecord matchLine(CharSequence line, String logSource) {
+		final Matcher matcher = PATTERN_GREPPED.matcher(line);
+		return matcher.matches() ? createRecord(matcher, symbols.add(matcher.group(1)), 2) : null;
+	}
+
+	@Override
+	public String getParsingType() {
+		return LogParsingTypeEvent.TYPE_GREPPED;
+	}
+}
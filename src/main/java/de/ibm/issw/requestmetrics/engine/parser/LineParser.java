@@ -0,0 +1,23 @@
+package de.ibm.issw.requestmetrics.engine.parser;
+
+import de.ibm.issw.requestmetrics.model.RMRecord;
+
+/**
+ * A line parser understands exactly one layout of request metrics logs. Once the layout 
+ * of a file is known, the processor uses the matching parser for the rest of the file.
+ */
+public interface LineParser {
+	/**
+	 * Parses a single line of a log file.
+	 * 
+	 * @param line the line to be parsed.
+	 * @param logSource the name of the file the line was read from.
+	 * @return the record or null if the line does not match the layout of the parser.
+	 */
+	public RMRecord parseLine(CharSequence line, String logSource);
+	
+	/**
+	 * @return the parsing type as defined in the LogParsingTypeEvent
+	 */
+	public String getParsingType();
+}
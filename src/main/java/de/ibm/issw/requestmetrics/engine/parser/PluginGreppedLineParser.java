@@ -0,0 +1,39 @@
+package de.ibm.issw.requestmetrics.engine.parser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.ibm.issw.requestmetrics.engine.events.LogParsingTypeEvent;
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+import de.ibm.issw.requestmetrics.util.DateParser;
+
+/**
+ * Parses http_plugin.log files of the web server plugin that were filtered with grep.
+ */
+public class PluginGreppedLineParser extends AbstractLineParser {
+	private static final String PLUGIN_REGEX_GREPPED = "([^:]*):\\[([^\\]]*)\\] (\\w+) \\w+ - PLUGIN:  parent:ver=(\\d),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(\\w+)\\s-\\scurrent:ver=([^,]+),ip=([^,]+),time=([^,]+),pid=([^,]+),reqid=([^,]+),event=(.*) type=(.*) detail=(.*) elapsed=(\\w+) bytesIn=(\\w+) bytesOut=(\\w+)";
+	private static final Pattern PATTERN_PLUGIN_REGEX_GREPPED = Pattern.compile(PLUGIN_REGEX_GREPPED);
+
+	public PluginGreppedLineParser(DateParser dateParser, RecordStore store) {
+		super(dateParser, store);
+	}
+
+	@Override
+	public RMRecord parseLine(CharSequence line, String logSource) {
+		RMRecord record = tokenizer.tokenizePluginGrepped(line);
+		if(record == null) record = matchLine(line, logSource);
+		return record;
+	}
+
+	@Override
+	public RMRecord matchLine(CharSequence line, String logSource) {
+		final Matcher matcher = PATTERN_PLUGIN_REGEX_GREPPED.matcher(line);
+		return matcher.matches() ? createRecord(matcher, symbols.add(matcher.group(1)), 2) : null;
+	}
+
+	@Override
+	public String getParsingType() {
+		return LogParsingTypeEvent.TYPE_PLUGIN_GREPPED;
+	}
+}
@@ -0,0 +1,158 @@
+package de.ibm.issw.requestmetrics.engine.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ibm.issw.requestmetrics.engine.events.LogParsingTypeEvent;
+import de.ibm.issw.requestmetrics.engine.io.LineBatch;
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+import de.ibm.issw.requestmetrics.util.DateParser;
+
+/**
+ * Parses the lines of a single file into records. The layout of the file is fixed by sampling
+ * the first lines. If the fixed layout stops matching, the other layouts are tried and the parser
+ * switches to the one that matches. The records are added to a {@link RecordStore} of the parser.<br>
+ * Instances are not thread safe, every thread parsing a file needs its own instance.
+ */
+public class RecordParser {
+	public static final Logger LOG = LoggerFactory.getLogger(RecordParser.class);
+
+	// number of matching lines that are sampled to detect the layout
+	private static final int DETECTION_SAMPLE_SIZE = 10;
+
+	private final List<LineParser> lineParsers = new ArrayList<LineParser>();
+	private final String logSource;
+	private final RecordStore store;
+	private LineParser currentLineParser;
+
+	/**
+	 * @param dateParser the parser for the timestamps, it may be shared by the parsers of a file
+	 * @param store the empty store the records are added to
+	 * @param logSource the name of the file that is parsed
+	 */
+	public RecordParser(DateParser dateParser, RecordStore store, String logSource) {
+		this.logSource = logSource;
+		this.store = store;
+
+		// the order of the parsers defines the precedence if a line matches multiple layouts
+		lineParsers.add(new GreppedLineParser(dateParser, store));
+		lineParsers.add(new RawLineParser(dateParser, store));
+		lineParsers.add(new PluginGreppedLineParser(dateParser, store));
+	}
+
+	/**
+	 * Detects the layout of the log by sampling the first matching lines. Every parser is
+	 * tried on the sample and the one that matches most of the lines is fixed for the log.
+	 * The records of the sample are removed from the store again.
+	 * @param headLines the first lines of the log
+	 * @return the parsing type of the log or null if no matching line was found in the sample
+	 */
+	public String detectParsingType(LineBatch headLines) {
+		final int[] matches = new int[lineParsers.size()];
+		final int storedRecords = store.size();
+		int sampledLines = 0;
+		for (int lineIndex = 0; lineIndex < headLines.size(); lineIndex++) {
+			if(sampledLines >= DETECTION_SAMPLE_SIZE) break;
+			final CharSequence line = headLines.get(lineIndex);
+			if(!RmLineTokenizer.containsMarker(line)) continue;
+
+			boolean matched = false;
+			for (int i = 0; i < lineParsers.size(); i++) {
+				if(lineParsers.get(i).parseLine(line, logSource) != null) {
+					matches[i]++;
+					matched = true;
+				}
+			}
+			if(matched) sampledLines++;
+		}
+		store.truncate(storedRecords);
+
+		LineParser detectedLineParser = null;
+		int maxMatches = 0;
+		for (int i = 0; i < lineParsers.size(); i++) {
+			if(matches[i] > maxMatches) {
+				maxMatches = matches[i];
+				detectedLineParser = lineParsers.get(i);
+			}
+		}
+		LOG.debug("Detected layout of file " + logSource + " based on " + sampledLines + " lines: "
+				+ (detectedLineParser != null ? detectedLineParser.getParsingType() : LogParsingTypeEvent.TYPE_UNKNOWN));
+
+		currentLineParser = detectedLineParser;
+		return getParsingType();
+	}
+
+	/**
+	 * @return the store the records of the parsed lines are added to
+	 */
+	public RecordStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Fixes the layout for the following lines, e.g. the one detected by another parser of the same file.
+	 * @param parsingType the parsing type as defined in the LogParsingTypeEvent or null if the layout is unknown
+	 */
+	public void setParsingType(String parsingType) {
+		currentLineParser = null;
+		for (LineParser lineParser : lineParsers) {
+			if(lineParser.getParsingType().equals(parsingType)) {
+				currentLineParser = lineParser;
+			}
+		}
+	}
+
+	/**
+	 * @return the parsing type of the fixed layout or null if the layout is not known yet
+	 */
+	public String getParsingType() {
+		return currentLineParser != null ? currentLineParser.getParsingType() : null;
+	}
+
+	/**
+	 * Parses a single line with the fixed layout and switches the layout if the line only
+	 * matches another one.
+	 * @param line the currently processing line
+	 * @return the record or null if the line is not a valid log statement
+	 */
+	public RMRecord parseLine(CharSequence line) {
+		// all supported layouts contain a marker, so lines without it can be skipped right away
+		if(!RmLineTokenizer.containsMarker(line)) return null;
+
+		RMRecord record = null;
+		if(currentLineParser != null) {
+			record = currentLineParser.parseLine(line, logSource);
+		}
+
+		// the fixed parser stopped matching, so we need to detect the layout again
+		if(record == null) {
+			for (LineParser lineParser : lineParsers) {
+				if(lineParser == currentLineParser) continue;
+
+				record = lineParser.parseLine(line, logSource);
+				if(record != null) {
+					LOG.debug("Switching layout of file " + logSource + " to " + lineParser.getParsingType());
+					currentLineParser = lineParser;
+					break;
+				}
+			}
+		}
+		return record;
+	}
+
+	/**
+	 * Parses the lines of a batch with the fixed layout.
+	 * @param lines the lines to be parsed
+	 * @param records the list the records of the lines are added to in the order of the lines
+	 */
+	public void parseLines(LineBatch lines, List<RMRecord> records) {
+		for (int i = 0; i < lines.size(); i++) {
+			final RMRecord record = parseLine(lines.get(i));
+			if(record != null) records.add(record);
+		}
+	}
+}
@@ -0,0 +1,405 @@
+package de.ibm.issw.requestmetrics.engine.parser;
+
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+import de.ibm.issw.requestmetrics.model.SymbolTable;
+import de.ibm.issw.requestmetrics.util.DateParser;
+
+/**
+ * Hand written tokenizer for the request metrics record layouts. In contrast to the
+ * regular expressions it walks the line only once, parses the numeric fields directly
+ * into primitives and looks up the fields that are kept in the record in the symbol table, so
+ * strings are only created for fields that are not in the string pool yet. The fields are appended
+ * to the columns of a {@link RecordStore} directly. The lines are read through
+ * the CharSequence interface, so views of a {@link de.ibm.issw.requestmetrics.engine.io.LineBatch}
+ * are tokenized without creating a string for the whole line.<br>
+ * The tokenizer is strict: whenever a line deviates from the expected layout it is rejected
+ * and the caller is expected to fall back to the regular expressions.<br>
+ * Instances keep the cursor as state and must therefore not be shared between threads.
+ */
+public class RmLineTokenizer {
+	/** literal that is part of every request metrics line written by the application server */
+	public static final String MARKER_RM = "PmiRmArmWrapp";
+	/** literal that is part of every request metrics line written by the web server plugin */
+	public static final String MARKER_PLUGIN = "PLUGIN:";
+
+	private static final String RM_COMPONENT = " PmiRmArmWrapp I";
+	private static final String RM_MESSAGE_ID = "PMRM0003I";
+	private static final String RM_MESSAGE_ID_NEW = "CWPRM0003I";
+	private static final String PLUGIN_COMPONENT = " - PLUGIN:  parent:";
+	private static final String PARENT = "parent:";
+	private static final String CURRENT = "current:";
+	private static final String TYPE = " type=";
+	private static final String DETAIL = " detail=";
+	private static final String ELAPSED = " elapsed=";
+	private static final String BYTES_IN = " bytesIn=";
+	private static final String BYTES_OUT = " bytesOut=";
+
+	// the numeric fields of the log are all positive, so we can use -1 to signal a parsing error
+	private static final long INVALID = -1;
+	// numbers with more digits could overflow a long
+	private static final int MAX_DIGITS = 18;
+
+	private final DateParser dateParser;
+	private final RecordStore store;
+	private final SymbolTable symbols;
+	private CharSequence line;
+	private int pos;
+
+	// the fields of the component that has been parsed last
+	private int cmpVersion;
+	private int cmpIpStart;
+	private int cmpIpEnd;
+	private long cmpTimestamp;
+	private long cmpPid;
+	private long cmpReqid;
+	private int cmpEventStart;
+
+	/**
+	 * @param dateParser the parser for the timestamps of the lines
+	 * @param store the store the records are added to, the strings are added to its symbol table
+	 */
+	public RmLineTokenizer(DateParser dateParser, RecordStore store) {
+		this.dateParser = dateParser;
+		this.store = store;
+		this.symbols = store.getSymbols();
+	}
+
+	/**
+	 * Checks if the line contains one of the markers that are part of all supported layouts.
+	 * A line without any of the markers can not be a request metrics record at all.
+	 * @param line the line to be checked
+	 * @return true if the line might be a request metrics record
+	 */
+	public static boolean containsMarker(CharSequence line) {
+		return indexOf(line, MARKER_RM) >= 0 || indexOf(line, MARKER_PLUGIN) >= 0;
+	}
+
+	/**
+	 * Tokenizes a line of a grepped SystemOut.log where each line is prefixed with the
+	 * name of the log file, e.g. <code>SystemOut.log:[10/19/15 16:27:44:496 CEST] 0000011b PmiRmArmWrapp I ...</code>
+	 * @param line the line to be tokenized
+	 * @return the record or null if the line does not match the layout
+	 */
+	public RMRecord tokenizeGrepped(CharSequence line) {
+		this.line = line;
+		final int logSourceEnd = indexOf(':', 0, line.length());
+		if(logSourceEnd < 0) return null;
+		pos = logSourceEnd + 1;
+
+		final int timestampStart = pos + 1;
+		if(!skipTimestamp(false)) return null;
+		final int timestampEnd = pos - 2;
+
+		// the thread id is a word that is followed by a single space
+		final int threadIdStart = pos;
+		skipWord();
+		final int threadIdEnd = pos;
+		if(threadIdEnd == threadIdStart || !skipRmMessage()) return null;
+
+		return tokenizeComponents(symbols.add(line, 0, logSourceEnd), timestampStart, timestampEnd, threadIdStart, threadIdEnd, false);
+	}
+
+	/**
+	 * Tokenizes a line of a raw SystemOut.log, e.g. <code>[10/19/15 16:27:44:496 CEST] 0000011b PmiRmArmWrapp I ...</code>
+	 * @param line the line to be tokenized
+	 * @param logSource the name of the file the line was read from
+	 * @return the record or null if the line does not match the layout
+	 */
+	public RMRecord tokenizeRaw(CharSequence line, String logSource) {
+		this.line = line;
+		pos = 0;
+
+		final int timestampStart = pos + 1;
+		if(!skipTimestamp(true)) return null;
+		final int timestampEnd = pos - 2;
+
+		// the thread id of the raw log always has 8 characters
+		final int threadIdStart = pos;
+		skipWord();
+		final int threadIdEnd = pos;
+		if(threadIdEnd - threadIdStart != 8 || !skipRmMessage()) return null;
+
+		return tokenizeComponents(symbols.add(logSource), timestampStart, timestampEnd, threadIdStart, threadIdEnd, false);
+	}
+
+	/**
+	 * Tokenizes a line of a grepped http_plugin.log, e.g. <code>http_plugin.log:[06/Jan/2016:11:07:07.75481] 0000dbcc 9c9c0700 - PLUGIN: ...</code>
+	 * @param line the line to be tokenized
+	 * @return the record or null if the line does not match the layout
+	 */
+	public RMRecord tokenizePluginGrepped(CharSequence line) {
+		this.line = line;
+		final int logSourceEnd = indexOf(':', 0, line.length());
+		if(logSourceEnd < 0) return null;
+		pos = logSourceEnd + 1;
+
+		final int timestampStart = pos + 1;
+		if(!skipTimestamp(false)) return null;
+		final int timestampEnd = pos - 2;
+
+		// the plugin writes the process id followed by the thread id
+		final int threadIdStart = pos;
+		skipWord();
+		final int threadIdEnd = pos;
+		if(threadIdEnd == threadIdStart || !skip(' ')) return null;
+		final int secondWordStart = pos;
+		skipWord();
+		if(pos == secondWordStart || !skip(PLUGIN_COMPONENT)) return null;
+
+		return tokenizeComponents(symbols.add(line, 0, logSourceEnd), timestampStart, timestampEnd, threadIdStart, threadIdEnd, true);
+	}
+
+	/**
+	 * Tokenizes the part of the line that starts with the version of the parent component
+	 * and adds the record to the store.
+	 * @param logSource the symbol of the name of the file
+	 */
+	private RMRecord tokenizeComponents(int logSource, int timestampStart, int timestampEnd, int threadIdStart, int threadIdEnd, boolean plugin) {
+		// parent component: ver=1,ip=...,time=...,pid=...,reqid=...,event=1
+		if(!skipComponent(true)) return null;
+		final int parentVersion = cmpVersion;
+		final int parentIpStart = cmpIpStart;
+		final int parentIpEnd = cmpIpEnd;
+		final long parentTimestamp = cmpTimestamp;
+		final long parentPid = cmpPid;
+		final long parentRequestId = cmpReqid;
+		final int parentEventStart = cmpEventStart;
+		final int parentEventEnd = pos;
+
+		// separator between the components: single whitespace, dash, single whitespace
+		if(!skipSingleWhitespace() || !skip('-') || !skipSingleWhitespace() || !skip(CURRENT)) return null;
+
+		// current component: ver=1,ip=...,time=...,pid=...,reqid=...,event=
+		if(!skipComponent(false)) return null;
+
+		// the remainder of the line is resolved from the end since the event, type and detail
+		// are free text fields that are matched greedily by the regular expressions
+		final int lineEnd = line.length();
+		int elapsedEnd = lineEnd;
+		if(plugin) {
+			final int bytesOutStart = lastIndexOf(line, BYTES_OUT, lineEnd);
+			if(bytesOutStart < cmpEventStart || !isWord(bytesOutStart + BYTES_OUT.length(), lineEnd)) return null;
+			final int bytesInStart = lastIndexOf(line, BYTES_IN, bytesOutStart - BYTES_IN.length());
+			if(bytesInStart < cmpEventStart || !isWord(bytesInStart + BYTES_IN.length(), bytesOutStart)) return null;
+			elapsedEnd = bytesInStart;
+		}
+		final int elapsedStart = lastIndexOf(line, ELAPSED, elapsedEnd - ELAPSED.length());
+		if(elapsedStart < cmpEventStart) return null;
+		final long elapsed = parseNumber(elapsedStart + ELAPSED.length(), elapsedEnd);
+		if(elapsed == INVALID) return null;
+
+		final int detailStart = lastIndexOf(line, DETAIL, elapsedStart - DETAIL.length());
+		if(detailStart < cmpEventStart) return null;
+		final int typeStart = lastIndexOf(line, TYPE, detailStart - TYPE.length());
+		if(typeStart < cmpEventStart) return null;
+
+		// the line is valid - look up the symbols that are kept in the record
+		final int type = symbols.add(line, typeStart + TYPE.length(), detailStart);
+		final int detail = symbols.add(line, detailStart + DETAIL.length(), elapsedStart);
+		final int threadId = symbols.add(line, threadIdStart, threadIdEnd);
+		final long recordEpoch = dateParser.parse(line, timestampStart, timestampEnd);
+
+		final int row = store.add(logSource, recordEpoch != DateParser.INVALID ? recordEpoch : RecordStore.NO_TIMESTAMP,
+				threadId, type, detail, elapsed);
+		store.setParentCmp(row, parentVersion,
+				symbols.add(line, parentIpStart, parentIpEnd), parentTimestamp, parentPid, parentRequestId,
+				symbols.add(line, parentEventStart, parentEventEnd));
+		store.setCurrentCmp(row, cmpVersion,
+				symbols.add(line, cmpIpStart, cmpIpEnd), cmpTimestamp, cmpPid, cmpReqid,
+				symbols.add(line, cmpEventStart, typeStart));
+		return store.get(row);
+	}
+
+	/**
+	 * Skips a component and stores the positions and values of its fields. The event of the parent
+	 * component is a single word whereas the event of the current component is resolved later on.
+	 */
+	private boolean skipComponent(boolean parent) {
+		if(!skip("ver=")) return false;
+		final int versionStart = pos;
+		if(parent) {
+			// the parent version has exactly one digit
+			if(pos >= line.length() || !isDigit(line.charAt(pos))) return false;
+			pos++;
+			if(pos >= line.length() || line.charAt(pos) != ',') return false;
+		} else {
+			skipField();
+		}
+		final long version = parseNumber(versionStart, pos);
+		if(version == INVALID || version > Integer.MAX_VALUE) return false;
+		cmpVersion = (int) version;
+
+		if(!skip(",ip=")) return false;
+		cmpIpStart = pos;
+		skipField();
+		cmpIpEnd = pos;
+		if(cmpIpEnd == cmpIpStart) return false;
+
+		if(!skip(",time=") || (cmpTimestamp = parseField()) == INVALID) return false;
+		if(!skip(",pid=") || (cmpPid = parseField()) == INVALID) return false;
+		if(!skip(",reqid=") || (cmpReqid = parseField()) == INVALID) return false;
+		if(!skip(",event=")) return false;
+		cmpEventStart = pos;
+		if(parent) {
+			skipWord();
+			return pos > cmpEventStart;
+		}
+		return true;
+	}
+
+	/**
+	 * Skips the timestamp including the brackets and the following space.
+	 */
+	private boolean skipTimestamp(boolean raw) {
+		if(!skip('[')) return false;
+		final int timestampEnd = indexOf(']', pos, line.length());
+		if(timestampEnd < 0) return false;
+		// the raw format does not allow asterisks in the timestamp
+		if(raw && indexOf('*', pos, timestampEnd) >= 0) return false;
+		pos = timestampEnd + 1;
+		return skip(' ');
+	}
+
+	/**
+	 * Skips the request metrics component and message id including the surrounding whitespace.
+	 */
+	private boolean skipRmMessage() {
+		if(!skip(RM_COMPONENT) || !skipWhitespace()) return false;
+		if(!skip(RM_MESSAGE_ID) && !skip(RM_MESSAGE_ID_NEW)) return false;
+		return skip(':') && skipWhitespace() && skip(PARENT);
+	}
+
+	private boolean skip(char c) {
+		if(pos < line.length() && line.charAt(pos) == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private boolean skip(String literal) {
+		if(regionMatches(line, pos, literal)) {
+			pos += literal.length();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Skips at least one whitespace character.
+	 */
+	private boolean skipWhitespace() {
+		final int start = pos;
+		while(pos < line.length() && isWhitespace(line.charAt(pos))) pos++;
+		return pos > start;
+	}
+
+	private boolean skipSingleWhitespace() {
+		if(pos < line.length() && isWhitespace(line.charAt(pos))) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWord() {
+		while(pos < line.length() && isWordChar(line.charAt(pos))) pos++;
+	}
+
+	/**
+	 * Skips the characters up to the next comma.
+	 */
+	private void skipField() {
+		while(pos < line.length() && line.charAt(pos) != ',') pos++;
+	}
+
+	/**
+	 * Parses the number up to the next comma.
+	 */
+	private long parseField() {
+		final int start = pos;
+		skipField();
+		return parseNumber(start, pos);
+	}
+
+	/**
+	 * Parses a positive decimal number directly from the line without creating a substring.
+	 * @return the number or INVALID if the characters are not a number
+	 */
+	private long parseNumber(int start, int end) {
+		if(end <= start || end - start > MAX_DIGITS) return INVALID;
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			final char c = line.charAt(i);
+			if(!isDigit(c)) return INVALID;
+			result = result * 10 + (c - '0');
+		}
+		return result;
+	}
+
+	private int indexOf(char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if(line.charAt(i) == c) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * same as String.indexOf(String) for any char sequence
+	 */
+	private static int indexOf(CharSequence s, String literal) {
+		final char first = literal.charAt(0);
+		for (int i = 0; i <= s.length() - literal.length(); i++) {
+			if(s.charAt(i) == first && regionMatches(s, i, literal)) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * same as String.lastIndexOf(String, int) for any char sequence
+	 */
+	private static int lastIndexOf(CharSequence s, String literal, int from) {
+		for (int i = Math.min(from, s.length() - literal.length()); i >= 0; i--) {
+			if(regionMatches(s, i, literal)) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * same as String.startsWith(String, int) for any char sequence
+	 */
+	private static boolean regionMatches(CharSequence s, int offset, String literal) {
+		if(offset < 0 || offset > s.length() - literal.length()) return false;
+		for (int i = 0; i < literal.length(); i++) {
+			if(s.charAt(offset + i) != literal.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	private boolean isWord(int start, int end) {
+		if(end <= start) return false;
+		for (int i = start; i < end; i++) {
+			if(!isWordChar(line.charAt(i))) return false;
+		}
+		return true;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * same as the \w character class of the regular expressions
+	 */
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+	}
+
+	/**
+	 * same as the \s character class of the regular expressions
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+}
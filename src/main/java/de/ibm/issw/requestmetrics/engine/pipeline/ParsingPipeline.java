@@ -0,0 +1,230 @@
+package de.ibm.issw.requestmetrics.engine.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ibm.issw.requestmetrics.engine.Processor;
+import de.ibm.issw.requestmetrics.engine.io.InputSource;
+import de.ibm.issw.requestmetrics.engine.io.LineBatch;
+import de.ibm.issw.requestmetrics.engine.parser.RecordParser;
+import de.ibm.issw.requestmetrics.model.RMRecord;
+
+/**
+ * Parses the lines of logs in stages that run on their own threads:
+ * <ol>
+ * <li>read: the lines are read and split into batches by the thread processing the log</li>
+ * <li>parse: the batches are parsed into records by a pool of parser threads shared by all logs</li>
+ * <li>assemble: the records are handed over in batches to the processor of the log by a single thread
+ * per log, in the order of the lines</li>
+ * </ol>
+ * The number of batches between reading and assembling a log is bounded, so a slow stage blocks the
+ * reader (backpressure) instead of filling the memory. The batches of lines are reused once they have been
+ * parsed, so reading does not allocate per line. Every stage keeps its {@link StageStatistics}.
+ */
+public class ParsingPipeline {
+	public static final Logger LOG = LoggerFactory.getLogger(ParsingPipeline.class);
+
+	// number of batches per parser thread that may be pending for a log
+	private static final int PENDING_BATCHES_PER_PARSER = 2;
+	// marks the end of the parsed batches of a log
+	private static final Future<List<RMRecord>> END = new FutureTask<List<RMRecord>>(new Callable<List<RMRecord>>() {
+		@Override
+		public List<RMRecord> call() {
+			return null;
+		}
+	});
+
+	private final ExecutorService parseExecutor;
+	private final ExecutorService assembleExecutor;
+	private final int pendingBatches;
+	private final int batchLines;
+	private final StageStatistics readStatistics;
+	private final StageStatistics parseStatistics;
+	private final StageStatistics assembleStatistics = new StageStatistics("assemble", 1);
+
+	/**
+	 * @param readThreads the number of threads reading the logs
+	 * @param parseThreads the number of threads parsing the batches
+	 * @param batchLines the maximum number of lines of a batch
+	 */
+	public ParsingPipeline(int readThreads, int parseThreads, int batchLines) {
+		this.parseExecutor = Executors.newFixedThreadPool(parseThreads, new StageThreadFactory("parse"));
+		this.assembleExecutor = Executors.newCachedThreadPool(new StageThreadFactory("assemble"));
+		this.pendingBatches = PENDING_BATCHES_PER_PARSER * parseThreads;
+		this.batchLines = batchLines;
+		this.readStatistics = new StageStatistics("read", readThreads);
+		this.parseStatistics = new StageStatistics("parse", parseThreads);
+	}
+
+	/**
+	 * Starts the parse and the assemble stage for a log. The layout of the log must have been detected
+	 * by the processor already.
+	 * 
+	 * @param source the log
+	 * @param fileProcessor the processor the records are handed over to
+	 * @return the run the batches of the log are submitted to
+	 */
+	public Run start(InputSource source, Processor fileProcessor) {
+		return new Run(source, fileProcessor);
+	}
+
+	/**
+	 * @return the statistics of the read, the parse and the assemble stage
+	 */
+	public List<StageStatistics> getStatistics() {
+		final List<StageStatistics> statistics = new ArrayList<StageStatistics>();
+		statistics.add(readStatistics);
+		statistics.add(parseStatistics);
+		statistics.add(assembleStatistics);
+		return statistics;
+	}
+
+	/**
+	 * @return the statistics of the read stage, they are recorded by the threads reading the logs
+	 */
+	public StageStatistics getReadStatistics() {
+		return readStatistics;
+	}
+
+	/**
+	 * Stops the threads of the pipeline, the pipeline must not be used afterwards.
+	 */
+	public void shutdown() {
+		parseExecutor.shutdownNow();
+		assembleExecutor.shutdownNow();
+	}
+
+	/**
+	 * The parsing of a single log.
+	 */
+	public class Run {
+		private final InputSource source;
+		private final Processor fileProcessor;
+		// the batches between reading and assembling, the reader waits for a permit
+		private final Semaphore permits = new Semaphore(pendingBatches);
+		// the parsed batches in the order of the log
+		private final BlockingQueue<Future<List<RMRecord>>> parsedBatches = new LinkedBlockingQueue<Future<List<RMRecord>>>();
+		// the batches that have been parsed and can be filled again
+		private final Queue<LineBatch> freeBatches = new ConcurrentLinkedQueue<LineBatch>();
+		private final Future<Void> assembler;
+		private volatile boolean failed;
+
+		private Run(InputSource source, Processor fileProcessor) {
+			this.source = source;
+			this.fileProcessor = fileProcessor;
+			this.assembler = assembleExecutor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					assemble();
+					return null;
+				}
+			});
+		}
+
+		/**
+		 * @return an empty batch for the next lines of the log, batches that have been parsed already are reused
+		 */
+		public LineBatch acquireBatch() {
+			final LineBatch batch = freeBatches.poll();
+			return batch != null ? batch : new LineBatch(batchLines);
+		}
+
+		/**
+		 * Submits a batch of lines to the parse stage. The method blocks while the maximum number
+		 * of batches of the log is pending. The batch must not be used by the caller afterwards.
+		 * 
+		 * @param lines the lines in the order of the log
+		 */
+		public void submit(final LineBatch lines) throws InterruptedException, ExecutionException {
+			permits.acquire();
+			if (failed) {
+				// the cause is thrown by finish
+				finish();
+			}
+
+			parseStatistics.batchQueued();
+			parsedBatches.put(parseExecutor.submit(new Callable<List<RMRecord>>() {
+				@Override
+				public List<RMRecord> call() {
+					parseStatistics.batchDequeued();
+					final long start = System.nanoTime();
+					final RecordParser parser = fileProcessor.createRecordParser(source);
+					final List<RMRecord> records = new ArrayList<RMRecord>(lines.size());
+					parser.parseLines(lines, records);
+					parser.getStore().trimToSize();
+					parseStatistics.batchHandled(lines.size(), System.nanoTime() - start);
+					freeBatches.add(lines);
+					assembleStatistics.batchQueued();
+					return records;
+				}
+			}));
+		}
+
+		/**
+		 * Waits until all submitted batches have been handed over to the processor.
+		 * 
+		 * @throws ExecutionException if a batch could not be parsed or assembled
+		 */
+		public void finish() throws InterruptedException, ExecutionException {
+			parsedBatches.put(END);
+			assembler.get();
+		}
+
+		private void assemble() throws InterruptedException, ExecutionException {
+			try {
+				Future<List<RMRecord>> parsedBatch = null;
+				while ((parsedBatch = parsedBatches.take()) != END) {
+					final List<RMRecord> records = parsedBatch.get();
+					assembleStatistics.batchDequeued();
+					final long start = System.nanoTime();
+					fileProcessor.handleRecords(records, source);
+					assembleStatistics.batchHandled(records.size(), System.nanoTime() - start);
+					permits.release();
+				}
+			} catch (ExecutionException e) {
+				fail();
+				throw e;
+			} catch (RuntimeException e) {
+				fail();
+				throw e;
+			}
+		}
+
+		private void fail() {
+			LOG.error("Parsing of file " + source.getPath() + " failed, the remaining batches are dropped");
+			failed = true;
+			// unblock the reader, it stops with the next batch
+			permits.release(pendingBatches);
+		}
+	}
+
+	private static class StageThreadFactory implements ThreadFactory {
+		private final String stage;
+
+		private StageThreadFactory(String stage) {
+			this.stage = stage;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			final Thread thread = new Thread(runnable, stage);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package de.ibm.issw.requestmetrics.engine.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The throughput and the queue depth of a stage of the parsing pipeline. The throughput is based on
+ * the time the threads of the stage have been busy, so a stage that waits for its input is not slow.<br>
+ * Instances are thread safe.
+ */
+public class StageStatistics {
+	private final String name;
+	private final int threads;
+	private final AtomicLong lines = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong busyNanos = new AtomicLong();
+	private final AtomicInteger queueDepth = new AtomicInteger();
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+	/**
+	 * @param name the name of the stage
+	 * @param threads the number of threads of the stage
+	 */
+	public StageStatistics(String name, int threads) {
+		this.name = name;
+		this.threads = threads;
+	}
+
+	/**
+	 * Counts a batch that has been handled by the stage.
+	 * @param batchLines the number of lines of the batch
+	 * @param nanos the time the thread has been busy with the batch
+	 */
+	public void batchHandled(int batchLines, long nanos) {
+		lines.addAndGet(batchLines);
+		batches.incrementAndGet();
+		busyNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * Counts a batch that has been queued for the stage.
+	 */
+	public void batchQueued() {
+		final int depth = queueDepth.incrementAndGet();
+		int max = maxQueueDepth.get();
+		while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+			max = maxQueueDepth.get();
+		}
+	}
+
+	/**
+	 * Counts a batch that has been taken from the queue of the stage.
+	 */
+	public void batchDequeued() {
+		queueDepth.decrementAndGet();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getLines() {
+		return lines.get();
+	}
+
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	public int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/**
+	 * @return the lines per second the stage handles with all its threads
+	 */
+	public long getThroughput() {
+		final long nanos = busyNanos.get();
+		return nanos > 0 ? lines.get() * threads * 1000000000l / nanos : 0;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + threads + " thread(s), " + lines.get() + " lines in " + batches.get() + " batches, "
+				+ getThroughput() + " lines/s, queue depth " + queueDepth.get() + " (max " + maxQueueDepth.get() + ")";
+	}
+}
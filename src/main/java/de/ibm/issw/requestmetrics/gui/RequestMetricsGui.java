@@ -6,15 +6,17 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Set;
 
 import javax.swing.BorderFactory;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -26,6 +28,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.border.TitledBorder;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
@@ -37,13 +40,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.ibm.issw.requestmetrics.engine.RmProcessor;
+import de.ibm.issw.requestmetrics.engine.SessionSnapshot;
 import de.ibm.issw.requestmetrics.engine.events.LogParsingTypeEvent;
 import de.ibm.issw.requestmetrics.engine.events.NonUniqueRequestIdEvent;
 import de.ibm.issw.requestmetrics.engine.events.ParsingAllFilesHasFinishedEvent;
 import de.ibm.issw.requestmetrics.engine.events.PercentageIncreasedEvent;
+import de.ibm.issw.requestmetrics.engine.events.RootCasesAddedEvent;
 import de.ibm.issw.requestmetrics.engine.events.UnsupportedFileEvent;
+import de.ibm.issw.requestmetrics.engine.events.WatchedFileMergedEvent;
 import de.ibm.issw.requestmetrics.gui.comparator.ElapsedTimeComparator;
+import de.ibm.issw.requestmetrics.gui.statistics.MemoryFootprintDialog;
 import de.ibm.issw.requestmetrics.model.RMNode;
+import de.ibm.issw.requestmetrics.model.RecordStore;
 import de.ibm.issw.requestmetrics.model.RmRootCase;
 import de.ibm.issw.requestmetrics.util.FileTypeFilter;
 
@@ -58,6 +66,8 @@ public class RequestMetricsGui implements Observer {
 	private List<NonUniqueRequestIdEvent> nonUniqueReqIds = new ArrayList<NonUniqueRequestIdEvent>();
 	private StringBuffer invalidFiles = new StringBuffer();
 	private RMNode currentSelectedRootNode;
+	// set by the thread that has loaded the folders, null once the watcher is stopped
+	private volatile Thread watchThread;
 
 	// GUI elements
 	private final JPanel transactionDrilldownScrollFrame = new JPanel(new BorderLayout());
@@ -121,12 +131,25 @@ public class RequestMetricsGui implements Observer {
 		final JFileChooser fc = new JFileChooser();
 		FileFilter logFilter = new FileTypeFilter(".log", "Log Files");
 		FileFilter zipFilter = new FileTypeFilter(".zip", "ZIP Files");
+		FileFilter gzipFilter = new FileTypeFilter(".gz", "GZIP Files");
+		FileFilter bzip2Filter = new FileTypeFilter(".bz2", "BZIP2 Files");
 		fc.addChoosableFileFilter(logFilter);
 		fc.addChoosableFileFilter(zipFilter);
+		fc.addChoosableFileFilter(gzipFilter);
+		fc.addChoosableFileFilter(bzip2Filter);
 		fc.setMultiSelectionEnabled(true);
 		fc.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
 		
-		JMenuItem fileLoadScenarioItem = new JMenuItem("Load Scenario");
+		final JCheckBoxMenuItem fileWatchFoldersItem = new JCheckBoxMenuItem("Watch Opened Folders");
+		fileWatchFoldersItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				// the folders are watched when they are loaded the next time
+				if(!fileWatchFoldersItem.isSelected()) processor.stopWatching();
+			}
+		});
+		
+		final JMenuItem fileLoadScenarioItem = new JMenuItem("Load Scenario");
 		fileLoadScenarioItem.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
@@ -135,7 +158,7 @@ public class RequestMetricsGui implements Observer {
 				final File[] files = fc.getSelectedFiles();
 				if(action != JFileChooser.APPROVE_OPTION || files.length == 0) return;
 				
-				processor.reset();
+				final Thread watcher = stopWatching();
 				invalidFiles = new StringBuffer();
 				resetGui();
 
@@ -144,41 +167,13 @@ public class RequestMetricsGui implements Observer {
 
 				new Thread(new Runnable() {
 					public void run() {
+						awaitWatcher(watcher);
+						processor.reset();
 						processor.processInputFiles(files);
-						setTitleRootCaseFrame(processor.getRootCases().size() + " Transactions");
+						showRootCases(processor.getRootCases(), processor.getRootCaseTypes());
 						
-						// remove the old model
-						List<RmRootCase> rootCases = processor.getRootCases();
-						if(rootCases != null && !rootCases.isEmpty()) {
-							final RootCaseTableModel rootCaseModel = new RootCaseTableModel(rootCases);
-							rootCaseTable.setModel(rootCaseModel);
-							// the width is currently hard coded and could be gathered from data in future
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.FILE_COLUMN_INDEX).setMinWidth(215); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.FILE_COLUMN_INDEX).setMaxWidth(515); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.TIMESTAMP_COLUMN_INDEX).setMinWidth(170); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.TIMESTAMP_COLUMN_INDEX).setMaxWidth(200); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.ELAPSEDTIME_COLUMN_INDEX).setMinWidth(100); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.ELAPSEDTIME_COLUMN_INDEX).setMaxWidth(100); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.TYPE_COLUMN_INDEX).setMinWidth(140); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.TYPE_COLUMN_INDEX).setMaxWidth(140); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.REQUESTID_COLUMN_INDEX).setMinWidth(85); 
-							rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.REQUESTID_COLUMN_INDEX).setMaxWidth(85); 
-							
-							// we write our own cell renderer for rendering the date values
-							TableCellRenderer tableCellRenderer = new DefaultTableCellRenderer() {
-								public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-									if( value instanceof Date) {
-										value = sdf.format(value);
-									}
-									return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-								}
-							};
-							rootCaseTable.getColumnModel().getColumn(1).setCellRenderer(tableCellRenderer);
-							rootCaseToolBar.enableFilters(rootCaseTable, processor.getRootCaseTypes());
-
-							// initially sort root cases by elapsed time descending
-							Collections.sort(rootCases, new ElapsedTimeComparator());
-							Collections.reverse(rootCases);
+						if(fileWatchFoldersItem.isSelected()) {
+							startWatching(files);
 						}
 					}
 				}).start();
@@ -186,11 +181,250 @@ public class RequestMetricsGui implements Observer {
 			}
 		});
 		
+		final JMenuItem fileFollowItem = new JMenuItem("Follow Log File");
+		final JMenuItem fileStopFollowingItem = new JMenuItem("Stop Following");
+		fileStopFollowingItem.setEnabled(false);
+		// a snapshot can not be opened while the followed log is added to the records
+		final JMenuItem fileOpenSnapshotItem = new JMenuItem("Open Snapshot");
+		fileFollowItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				final JFileChooser followChooser = new JFileChooser(fc.getCurrentDirectory());
+				followChooser.addChoosableFileFilter(new FileTypeFilter(".log", "Log Files"));
+				int action = followChooser.showOpenDialog(mainFrame);
+				
+				final File file = followChooser.getSelectedFile();
+				if(action != JFileChooser.APPROVE_OPTION || file == null) return;
+				
+				final Thread watcher = stopWatching();
+				invalidFiles = new StringBuffer();
+				resetGui();
+				rootCaseToolBar.disableFilters();
+				setRootCaseModel(new RootCaseTableModel(new ArrayList<RmRootCase>()));
+				setTitleRootCaseFrame("0 Transactions");
+				fileLoadScenarioItem.setEnabled(false);
+				fileFollowItem.setEnabled(false);
+				fileOpenSnapshotItem.setEnabled(false);
+				fileStopFollowingItem.setEnabled(true);
+				
+				new Thread(new Runnable() {
+					public void run() {
+						awaitWatcher(watcher);
+						processor.reset();
+						processor.followInputFile(file);
+						
+						// the root cases are added to the table before, since they are published by the same thread
+						SwingUtilities.invokeLater(new Runnable() {
+							public void run() {
+								fileLoadScenarioItem.setEnabled(true);
+								fileFollowItem.setEnabled(true);
+								fileOpenSnapshotItem.setEnabled(true);
+								fileStopFollowingItem.setEnabled(false);
+								if(rootCaseTable.getModel().getRowCount() > 0) {
+									rootCaseToolBar.enableFilters(rootCaseTable, processor.getRootCaseTypes());
+								}
+							}
+						});
+					}
+				}).start();
+			}
+		});
+		fileStopFollowingItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				processor.stopFollowing();
+			}
+		});
+		
+		final JFileChooser snapshotChooser = new JFileChooser();
+		snapshotChooser.setFileFilter(new FileTypeFilter(SessionSnapshot.EXTENSION, "Snapshots"));
+		fileOpenSnapshotItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				int action = snapshotChooser.showOpenDialog(mainFrame);
+				
+				final File file = snapshotChooser.getSelectedFile();
+				if(action != JFileChooser.APPROVE_OPTION || file == null) return;
+				
+				final Thread watcher = stopWatching();
+				invalidFiles = new StringBuffer();
+				resetGui();
+				rootCaseToolBar.disableFilters();
+				setRootCaseModel(new RootCaseTableModel(new ArrayList<RmRootCase>()));
+				
+				new Thread(new Runnable() {
+					public void run() {
+						awaitWatcher(watcher);
+						try {
+							processor.openSnapshot(file);
+						} catch (IOException e) {
+							LOG.error("Could not open the snapshot " + file, e);
+							showError("Open Snapshot", "The snapshot could not be opened: " + e.getMessage());
+						}
+						showRootCases(processor.getRootCases(), processor.getRootCaseTypes());
+					}
+				}).start();
+			}
+		});
+		
+		final JMenuItem fileSaveSnapshotItem = new JMenuItem("Save Snapshot");
+		fileSaveSnapshotItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				int action = snapshotChooser.showSaveDialog(mainFrame);
+				
+				final File selectedFile = snapshotChooser.getSelectedFile();
+				if(action != JFileChooser.APPROVE_OPTION || selectedFile == null) return;
+				final File file = selectedFile.getName().endsWith(SessionSnapshot.EXTENSION)
+						? selectedFile : new File(selectedFile.getPath() + SessionSnapshot.EXTENSION);
+				
+				new Thread(new Runnable() {
+					public void run() {
+						try {
+							processor.saveSnapshot(file);
+						} catch (IOException e) {
+							LOG.error("Could not save the snapshot " + file, e);
+							showError("Save Snapshot", "The snapshot could not be saved: " + e.getMessage());
+						}
+					}
+				}).start();
+			}
+		});
+		
 		fileMenu.add(fileLoadScenarioItem);
+		fileMenu.add(fileFollowItem);
+		fileMenu.add(fileStopFollowingItem);
+		fileMenu.addSeparator();
+		fileMenu.add(fileOpenSnapshotItem);
+		fileMenu.add(fileSaveSnapshotItem);
+		fileMenu.addSeparator();
+		fileMenu.add(fileWatchFoldersItem);
 		menu.add(fileMenu);
+		
+		JMenu viewMenu = new JMenu("View");
+		final JMenuItem viewMemoryFootprintItem = new JMenuItem("Memory Footprint");
+		viewMemoryFootprintItem.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				new MemoryFootprintDialog(mainFrame, processor).setVisible(true);
+			}
+		});
+		viewMenu.add(viewMemoryFootprintItem);
+		menu.add(viewMenu);
 		return menu;
 	}
 	
+	/**
+	 * Shows the root cases in the table, enables the filters and sorts the root cases by their elapsed time.
+	 */
+	private void showRootCases(List<RmRootCase> rootCases, Set<String> rootCaseTypes) {
+		setTitleRootCaseFrame(rootCases.size() + " Transactions");
+		
+		// remove the old model
+		if(rootCases != null && !rootCases.isEmpty()) {
+			setRootCaseModel(new RootCaseTableModel(rootCases));
+			rootCaseToolBar.enableFilters(rootCaseTable, rootCaseTypes);
+
+			// initially sort root cases by elapsed time descending
+			Collections.sort(rootCases, new ElapsedTimeComparator());
+			Collections.reverse(rootCases);
+		}
+	}
+	
+	/**
+	 * Shows an error message on the event dispatch thread.
+	 */
+	private void showError(final String title, final String message) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				JOptionPane.showMessageDialog(mainFrame, message, title, JOptionPane.ERROR_MESSAGE);
+			}
+		});
+	}
+	
+	/**
+	 * Watches the loaded folders in the background, the files appearing in them are merged into the loaded root cases.
+	 */
+	private void startWatching(File[] files) {
+		final List<File> directories = new ArrayList<File>();
+		for (File file : files) {
+			if(file.isDirectory()) directories.add(file);
+		}
+		if(directories.isEmpty()) return;
+		
+		watchThread = new Thread(new Runnable() {
+			public void run() {
+				processor.watchDirectories(directories);
+			}
+		});
+		watchThread.start();
+	}
+	
+	/**
+	 * Stops watching the folders without waiting, the file that is currently merged is finished in the background.
+	 * 
+	 * @return the thread of the watcher or null if no folders are watched
+	 */
+	private Thread stopWatching() {
+		processor.stopWatching();
+		final Thread watcher = watchThread;
+		watchThread = null;
+		return watcher;
+	}
+	
+	/**
+	 * Waits until the stopped watcher has merged its last file, so the processor can be reset.
+	 * Must not be called on the event dispatch thread.
+	 * 
+	 * @param watcher the thread of the watcher or null
+	 */
+	private static void awaitWatcher(Thread watcher) {
+		if(watcher == null) return;
+		try {
+			watcher.join();
+		} catch (InterruptedException e) {
+			LOG.warn("Interrupted while waiting for the folder watcher to stop");
+		}
+	}
+	
+	/**
+	 * Shows the root cases of the model in the table.
+	 */
+	private void setRootCaseModel(RootCaseTableModel rootCaseModel) {
+		rootCaseTable.setModel(rootCaseModel);
+		// the width is currently hard coded and could be gathered from data in future
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.FILE_COLUMN_INDEX).setMinWidth(215); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.FILE_COLUMN_INDEX).setMaxWidth(515); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.TIMESTAMP_COLUMN_INDEX).setMinWidth(170); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.TIMESTAMP_COLUMN_INDEX).setMaxWidth(200); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.ELAPSEDTIME_COLUMN_INDEX).setMinWidth(100); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.ELAPSEDTIME_COLUMN_INDEX).setMaxWidth(100); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.TYPE_COLUMN_INDEX).setMinWidth(140); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.TYPE_COLUMN_INDEX).setMaxWidth(140); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.REQUESTID_COLUMN_INDEX).setMinWidth(85); 
+		rootCaseTable.getColumnModel().getColumn(RootCaseTableModel.REQUESTID_COLUMN_INDEX).setMaxWidth(85); 
+		
+		// we write our own cell renderer for rendering the epoch milliseconds of the timestamps as dates
+		TableCellRenderer tableCellRenderer = new DefaultTableCellRenderer() {
+			public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+				if( value instanceof Long) {
+					value = (Long) value != RecordStore.NO_TIMESTAMP ? sdf.format(value) : "";
+				}
+				return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+			}
+		};
+		rootCaseTable.getColumnModel().getColumn(1).setCellRenderer(tableCellRenderer);
+	}
+	
+	/**
+	 * Appends the root cases that have been found while following a log to the table.
+	 */
+	private void addRootCases(List<RmRootCase> rootCases) {
+		final RootCaseTableModel rootCaseModel = (RootCaseTableModel) rootCaseTable.getModel();
+		rootCaseModel.addUseCases(rootCases);
+		setTitleRootCaseFrame(rootCaseModel.getRowCount() + " Transactions");
+	}
+	
 	public void setTitleRootCaseFrame(String title) {
 		TitledBorder border = BorderFactory.createTitledBorder(title);
 		border.setTitleJustification(TitledBorder.CENTER);
@@ -219,7 +453,7 @@ public class RequestMetricsGui implements Observer {
 				if(!event.getValueIsAdjusting() && !rootCaseTable.getSelectionModel().isSelectionEmpty()) {
 					int row = rootCaseTable.getSelectedRow();
 					if(row != -1) { //if no row is selected row = -1 (and we do nothing)
-						final RmRootCase currentSelectedRootCase = processor.getRootCases().get(rootCaseTable.convertRowIndexToModel(row));
+						final RmRootCase currentSelectedRootCase = ((RootCaseTableModel) rootCaseTable.getModel()).getUseCases().get(rootCaseTable.convertRowIndexToModel(row));
 						LOG.debug("user selected use case " + currentSelectedRootCase.getRmNode().toString());
 						
 						currentSelectedRootNode = currentSelectedRootCase.getRmNode();
@@ -283,6 +517,29 @@ public class RequestMetricsGui implements Observer {
 			String typeInfo = String.format("The loaded file '%s' was of type '%s'", concreteEvent.getFileName(),concreteEvent.getType());
 			LOG.info(typeInfo);
 		} 
+		else if (event instanceof RootCasesAddedEvent) {
+			//append the root cases that have been found while following a log
+			final List<RmRootCase> rootCases = ((RootCasesAddedEvent) event).getRootCases();
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					addRootCases(rootCases);
+				}
+			});
+		}
+		else if (event instanceof WatchedFileMergedEvent) {
+			//show the root cases including the ones of the file that has appeared in a watched folder
+			final WatchedFileMergedEvent concreteEvent = (WatchedFileMergedEvent) event;
+			LOG.info("Merged the file '" + concreteEvent.getFileName() + "' of a watched folder");
+			// the event is published by the watcher, it is dropped if the watcher has been stopped in the meantime
+			final Thread watcher = Thread.currentThread();
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if(watcher != watchThread) return;
+					showRootCases(concreteEvent.getRootCases(), concreteEvent.getRootCaseTypes());
+					repaintGui();
+				}
+			});
+		}
 		else if (event instanceof NonUniqueRequestIdEvent) {
 			//TODO: notify User that there are NonUnique Req IDs (if performance is okay), but do not display which ones
 			NonUniqueRequestIdEvent concreteEvent = (NonUniqueRequestIdEvent) event;
@@ -6,6 +6,7 @@ import javax.swing.table.AbstractTableModel;
 
 import de.ibm.issw.requestmetrics.model.RMNode;
 import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
 import de.ibm.issw.requestmetrics.model.RmRootCase;
 
 @SuppressWarnings("serial")
@@ -30,6 +31,20 @@ public class RootCaseTableModel extends AbstractTableModel {
 		return useCases;
 	}
 
+	/**
+	 * @param rowIndex the index of the row in the model
+	 * @return the record of the root case of the row
+	 */
+	public RMRecord getRecord(int rowIndex) {
+		return useCases.get(rowIndex).getRmNode().getData();
+	}
+
+	public void addUseCases(List<RmRootCase> newUseCases) {
+		final int firstRow = useCases.size();
+		useCases.addAll(newUseCases);
+		fireTableRowsInserted(firstRow, useCases.size() - 1);
+	}
+
 	@Override
 	public int getRowCount() {
 		return useCases.size();
@@ -52,7 +67,7 @@ public class RootCaseTableModel extends AbstractTableModel {
 			RMRecord record = node.getData();
 			switch (columnIndex) {
 				case FILE_COLUMN_INDEX: return String.class;
-				case TIMESTAMP_COLUMN_INDEX: return record.getLogTimeStamp().getClass();
+				case TIMESTAMP_COLUMN_INDEX: return Long.class;
 				case ELAPSEDTIME_COLUMN_INDEX:	return Long.class;
 				case TYPE_COLUMN_INDEX: return record.getTypeCmp().getClass();
 				case REQUESTID_COLUMN_INDEX: return Long.class;
@@ -68,14 +83,17 @@ public class RootCaseTableModel extends AbstractTableModel {
 		if(useCases != null && !useCases.isEmpty()) {
 			RMNode node = useCases.get(rowIndex).getRmNode();
 			RMRecord record = node.getData();
+			// read the columns of the store directly
+			final RecordStore store = record.getStore();
+			final int row = record.getRow();
 			
 			switch (columnIndex) {
-				case FILE_COLUMN_INDEX: return record.getLogSource();
-				case TIMESTAMP_COLUMN_INDEX: return record.getLogTimeStamp();
-				case ELAPSEDTIME_COLUMN_INDEX:	return record.getElapsedTime();
-				case TYPE_COLUMN_INDEX: return record.getTypeCmp();
-				case REQUESTID_COLUMN_INDEX: return record.getCurrentCmp().getReqid();
-				case DETAILS_COLUMN_INDEX: return record.getDetailCmp();
+				case FILE_COLUMN_INDEX: return store.getSymbols().get(store.getLogSourceSymbol(row));
+				case TIMESTAMP_COLUMN_INDEX: return store.getLogTimestamp(row);
+				case ELAPSEDTIME_COLUMN_INDEX:	return store.getElapsedTime(row);
+				case TYPE_COLUMN_INDEX: return store.getSymbols().get(store.getTypeSymbol(row));
+				case REQUESTID_COLUMN_INDEX: return store.getCurrentColumns().getReqid(row);
+				case DETAILS_COLUMN_INDEX: return store.getSymbols().get(store.getDetailSymbol(row));
 				default: return "Invalid column";
 			}
 		}
@@ -27,6 +27,7 @@ import org.freixas.jcalendar.JCalendarCombo;
 
 import de.ibm.issw.requestmetrics.engine.filter.RootCaseFilter;
 import de.ibm.issw.requestmetrics.gui.comparator.LogTimeStampComparator;
+import de.ibm.issw.requestmetrics.model.RecordStore;
 import de.ibm.issw.requestmetrics.model.RmRootCase;
 
 @SuppressWarnings("serial")
@@ -107,14 +108,14 @@ public class RootCaseToolBar extends JToolBar{
 	private DateListener startDateListener = new DateListener() {
 		@Override
 		public void dateChanged(DateEvent evt) {
-			if(evt.getSelectedDate() != null) rootCaseFilter.filterStartDate(evt.getSelectedDate().getTime());
+			if(evt.getSelectedDate() != null) rootCaseFilter.filterStartDate(evt.getSelectedDate().getTimeInMillis());
 		}
 	};
 	
 	private DateListener endDateListener = new DateListener() {
 		@Override
 		public void dateChanged(DateEvent evt) {
-			if(evt.getSelectedDate() != null) rootCaseFilter.filterEndDate(evt.getSelectedDate().getTime());
+			if(evt.getSelectedDate() != null) rootCaseFilter.filterEndDate(evt.getSelectedDate().getTimeInMillis());
 		}
 	};
 	
@@ -185,9 +186,20 @@ public class RootCaseToolBar extends JToolBar{
 		if(rootCaseTable != null && rootCaseTable.getModel() != null) {
 			List<RmRootCase> rootCases = ((RootCaseTableModel)rootCaseTable.getModel()).getUseCases();
 			Collections.sort(rootCases, new LogTimeStampComparator());
+			// the root cases without a timestamp come last
+			long firstTimestamp = RecordStore.NO_TIMESTAMP;
+			long lastTimestamp = RecordStore.NO_TIMESTAMP;
+			for (RmRootCase rootCase : rootCases) {
+				final long timestamp = rootCase.getRmNode().getData().getLogTimestamp();
+				if (timestamp == RecordStore.NO_TIMESTAMP) break;
+				if (firstTimestamp == RecordStore.NO_TIMESTAMP) firstTimestamp = timestamp;
+				lastTimestamp = timestamp;
+			}
 			// substract and add one millisecond to include the first and the last root case in the filter
-			startLogTimeStamp = new Date(rootCases.get(0).getRmNode().getData().getLogTimeStamp().getTime()-1);
-			endLogTimeStamp = new Date(rootCases.get(rootCases.size()-1).getRmNode().getData().getLogTimeStamp().getTime()+1);
+			if (firstTimestamp != RecordStore.NO_TIMESTAMP) {
+				startLogTimeStamp = new Date(firstTimestamp - 1);
+				endLogTimeStamp = new Date(lastTimestamp + 1);
+			}
 		}
 		// set types for combobox
 		this.types = types;
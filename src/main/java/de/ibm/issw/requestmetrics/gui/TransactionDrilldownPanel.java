@@ -26,6 +26,7 @@ import de.ibm.issw.requestmetrics.engine.RmProcessor;
 import de.ibm.issw.requestmetrics.gui.statistics.ChildNodeStatisticsDialog;
 import de.ibm.issw.requestmetrics.gui.statistics.ChildNodeStatisticsEntry;
 import de.ibm.issw.requestmetrics.model.RMNode;
+import de.ibm.issw.requestmetrics.model.RecordStore;
 
 @SuppressWarnings("serial")
 public class TransactionDrilldownPanel extends JPanel {
@@ -180,15 +181,18 @@ public class TransactionDrilldownPanel extends JPanel {
 		if(treeNode != null) {
 			long totalTimeChildren = 0;
 			long totalZeroTimesChildren = 0;
-			final Map<String, ChildNodeStatisticsEntry> stats = new HashMap<String, ChildNodeStatisticsEntry>();
+			// the children are grouped by the symbols of their details
+			final Map<Integer, ChildNodeStatisticsEntry> stats = new HashMap<Integer, ChildNodeStatisticsEntry>();
 			
 			@SuppressWarnings("unchecked")
 			Enumeration<AnalyzerTreeNode> childNodes = treeNode.children();
 			while (childNodes.hasMoreElements()) {
 				final TransactionDrilldownPanel.AnalyzerTreeNode node = childNodes.nextElement();
 				
-				final String detail = node.getRmNode().rmData.getDetailCmp();
-				final long elapsedTime = node.getRmNode().rmData.getElapsedTime();
+				final RecordStore store = node.getRmNode().getData().getStore();
+				final int row = node.getRmNode().getData().getRow();
+				final int detail = store.getDetailSymbol(row);
+				final long elapsedTime = store.getElapsedTime(row);
 				totalTimeChildren += elapsedTime;
 				if(elapsedTime == 0) totalZeroTimesChildren+=1;
 				
@@ -198,7 +202,7 @@ public class TransactionDrilldownPanel extends JPanel {
 					entry.setNumberOfExecutions(entry.getNumberOfExecutions() + 1);
 				} else {
 					final ChildNodeStatisticsEntry entry = new ChildNodeStatisticsEntry();
-					entry.setComponent(detail);
+					entry.setComponent(store.getSymbols().get(detail));
 					entry.setTotalTime(elapsedTime);
 					entry.setNumberOfExecutions(1l);
 					entry.setNumberOfChildren(node.getChildCount());
@@ -251,7 +255,7 @@ public class TransactionDrilldownPanel extends JPanel {
 				highestExecTimeNode = childNode;
 
 			// check if current child node has most direct children 
-			if (mostDirectChildrenNode.getChildren().size() < childNode.getChildren().size())
+			if (mostDirectChildrenNode.getChildCount() < childNode.getChildCount())
 				mostDirectChildrenNode = childNode;
 			
 			initializeImportantNodes(childNode);
@@ -2,13 +2,22 @@ package de.ibm.issw.requestmetrics.gui.comparator;
 
 import java.util.Comparator;
 
+import de.ibm.issw.requestmetrics.model.RecordStore;
 import de.ibm.issw.requestmetrics.model.RmRootCase;
 
+/**
+ * Orders the root cases by their log timestamps, the root cases without a timestamp come last.
+ */
 public class LogTimeStampComparator implements Comparator<RmRootCase> {
 
 	@Override
 	public int compare(RmRootCase o1, RmRootCase o2) {
-		return o1.getRmNode().getData().getLogTimeStamp().compareTo(o2.getRmNode().getData().getLogTimeStamp());
+		final long timestamp1 = o1.getRmNode().getData().getLogTimestamp();
+		final long timestamp2 = o2.getRmNode().getData().getLogTimestamp();
+		if (timestamp1 == timestamp2) return 0;
+		if (timestamp1 == RecordStore.NO_TIMESTAMP) return 1;
+		if (timestamp2 == RecordStore.NO_TIMESTAMP) return -1;
+		return timestamp1 < timestamp2 ? -1 : 1;
 	}
 
 }
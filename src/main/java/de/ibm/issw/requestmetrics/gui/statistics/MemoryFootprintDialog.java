@@ -0,0 +1,90 @@
+package de.ibm.issw.requestmetrics.gui.statistics;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import javax.swing.BorderFactory;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+
+import de.ibm.issw.requestmetrics.engine.RmProcessor;
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+
+/**
+ * Shows the estimated memory of the structures of the processed records. The estimate is refreshed
+ * periodically while the dialog is open, so the growth of the structures can be watched while files are loaded.
+ */
+@SuppressWarnings("serial")
+public class MemoryFootprintDialog extends JDialog {
+	private static final int DIALOG_WIDTH = 700;
+	private static final int DIALOG_HEIGHT = 420;
+	private static final int REFRESH_MILLIS = 2000;
+	private static final long MEGABYTE = 1024 * 1024;
+
+	private final RmProcessor processor;
+	private final MemoryFootprintTableModel model = new MemoryFootprintTableModel();
+	private final JLabel recordsLabel = new JLabel();
+	private final JLabel totalLabel = new JLabel();
+	private final JLabel projectionLabel = new JLabel();
+	private final JLabel jvmLabel = new JLabel();
+	private final Timer timer;
+
+	public MemoryFootprintDialog(JFrame rootWindow, RmProcessor processor) {
+		super(rootWindow, "Memory Footprint", false);
+		this.processor = processor;
+
+		final JPanel infoPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 20, 0));
+		infoPanel.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createTitledBorder("Estimate"),
+				BorderFactory.createEmptyBorder(5, 5, 5, 5)));
+		infoPanel.add(recordsLabel);
+		infoPanel.add(totalLabel);
+		infoPanel.add(projectionLabel);
+		infoPanel.add(jvmLabel);
+
+		final JTable table = new JTable(model);
+		table.setFillsViewportHeight(true);
+		table.getColumnModel().getColumn(0).setMinWidth(200);
+
+		timer = new Timer(REFRESH_MILLIS, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				refresh();
+			}
+		});
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosed(WindowEvent e) {
+				timer.stop();
+			}
+		});
+		setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+		this.setSize(DIALOG_WIDTH, DIALOG_HEIGHT);
+		this.add(infoPanel, BorderLayout.NORTH);
+		this.add(new JScrollPane(table), BorderLayout.CENTER);
+		refresh();
+		timer.start();
+	}
+
+	private void refresh() {
+		final MemoryFootprint footprint = processor.getMemoryFootprint();
+		model.setFootprint(footprint);
+		recordsLabel.setText(String.format("Records: %d from %d MB", footprint.getRecords(), footprint.getInputBytes() / MEGABYTE));
+		totalLabel.setText(String.format("Total: %d MB heap, %d MB off-heap",
+				footprint.getTotalHeapBytes() / MEGABYTE, footprint.getTotalOffHeapBytes() / MEGABYTE));
+		projectionLabel.setText(String.format("%d bytes per record, %.0f MB per GB of input",
+				footprint.getBytesPerRecord(), 1024 * footprint.getBytesPerInputByte()));
+		final Runtime runtime = Runtime.getRuntime();
+		jvmLabel.setText(String.format("JVM heap: %d of %d MB used",
+				(runtime.totalMemory() - runtime.freeMemory()) / MEGABYTE, runtime.maxMemory() / MEGABYTE));
+	}
+}
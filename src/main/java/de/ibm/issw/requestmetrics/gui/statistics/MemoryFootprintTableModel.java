@@ -0,0 +1,62 @@
+package de.ibm.issw.requestmetrics.gui.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+
+@SuppressWarnings("serial")
+public class MemoryFootprintTableModel extends AbstractTableModel {
+	private static final String[] columnNames = {"Structure", "Heap MB", "Off-heap MB", "Bytes per record"};
+	private static final double MEGABYTE = 1024 * 1024;
+	private MemoryFootprint footprint;
+	private List<String> structures = new ArrayList<String>();
+
+	/**
+	 * @param footprint the footprint to be shown, the rows are replaced
+	 */
+	public void setFootprint(MemoryFootprint footprint) {
+		this.footprint = footprint;
+		this.structures = footprint.getStructures();
+		fireTableDataChanged();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return columnNames.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return columnNames[column];
+	}
+
+	@Override
+	public Class<?> getColumnClass(int columnIndex) {
+		switch (columnIndex) {
+			case 1:	return Double.class;
+			case 2:	return Double.class;
+			case 3:	return Long.class;
+			default: return String.class;
+		}
+	}
+
+	@Override
+	public Object getValueAt(int rowIndex, int columnIndex) {
+		final String structure = structures.get(rowIndex);
+		switch (columnIndex) {
+			case 1:	return footprint.getHeapBytes(structure) / MEGABYTE;
+			case 2:	return footprint.getOffHeapBytes(structure) / MEGABYTE;
+			case 3:	return footprint.getRecords() > 0
+					? (footprint.getHeapBytes(structure) + footprint.getOffHeapBytes(structure)) / footprint.getRecords() : 0L;
+			default: return structure;
+		}
+	}
+
+	@Override
+	public int getRowCount() {
+		return structures.size();
+	}
+}
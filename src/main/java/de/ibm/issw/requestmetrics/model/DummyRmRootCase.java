@@ -1,23 +1,23 @@
 package de.ibm.issw.requestmetrics.model;
 
-import java.util.Date;
-
 public class DummyRmRootCase extends RmRootCase {
 	private static final String UNKNOWN = "unknown";
 	private final Long key;
 
-	public DummyRmRootCase(Long key) {
-		super(
-				new RMNode(
-						new RMRecord(UNKNOWN, new Date(), UNKNOWN, 
-								new RMComponent(0, UNKNOWN, 0, 0, key, UNKNOWN), 
-								new RMComponent(0, UNKNOWN, 0, 0, key, UNKNOWN), 
-								UNKNOWN, UNKNOWN + " / no root case", Long.MAX_VALUE)
-				)
-			);
+	public DummyRmRootCase(RecordStore store, Long key) {
+		super(new RMNode(createRecord(store, key)));
 		this.key = key;
 	}
 
+	private static RMRecord createRecord(RecordStore store, Long key) {
+		final int unknown = store.getSymbols().add(UNKNOWN);
+		final int row = store.add(unknown, RecordStore.NO_TIMESTAMP, unknown, 
+				unknown, store.getSymbols().add(UNKNOWN + " / no root case"), Long.MAX_VALUE);
+		store.setParentCmp(row, 0, unknown, 0, 0, key, unknown);
+		store.setCurrentCmp(row, 0, unknown, 0, 0, key, unknown);
+		return store.get(row);
+	}
+
 	/**
 	 * renders a description string. It internally uses the data of the RM Node.
 	 * @return the string of the representation of the root case.
@@ -0,0 +1,509 @@
+package de.ibm.issw.requestmetrics.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ibm.issw.requestmetrics.util.IntArray;
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+import de.ibm.issw.requestmetrics.util.PageAllocator;
+
+/**
+ * The nodes of a dataset and their children. Every node gets an index and keeps the store and the row of its
+ * record, the children are kept in primitive arrays indexed by the nodes instead of a list per node. The arrays
+ * are kept on the heap or in the pages of a {@link PageAllocator}. An {@link RMNode} is only created as a view of
+ * an index when it is requested, e.g. by the GUI.<br>
+ * While the records are added the children of a node form a linked list (first child, last child and next
+ * sibling of every node), so a child is appended and all children of a node are moved to another node without
+ * copying them. Once all records have been added the lists are frozen into compressed sparse rows: the children
+ * of all nodes in a single array ordered by their parents and the offsets of the children of every node. A frozen
+ * graph is thawed again as soon as it is changed, e.g. when the records of a watched file are merged.<br>
+ * The graph is changed by a single thread, e.g. the parser of a followed log, while other threads may read it,
+ * e.g. the GUI. The arrays are changed in place and replaced when they are grown, so every method that reads or
+ * changes them holds the lock of the graph: the readers never see a half changed list of children or an array
+ * that has not been published yet. The children are returned as copies, so they can be used after the lock has
+ * been released.
+ */
+public class NodeGraph {
+	private static final int NONE = -1;
+
+	// null if the arrays are kept on the heap
+	private final PageAllocator allocator;
+	private final List<RecordStore> stores = new ArrayList<RecordStore>();
+	private final Map<RecordStore, Integer> storeIndexes = new IdentityHashMap<RecordStore, Integer>();
+	// most nodes are added from the same store as the node before them
+	private RecordStore lastStore;
+	private int lastStoreIndex;
+	// the index of the store and the row of the record of every node
+	private final IntArray nodeStores;
+	private final IntArray nodeRows;
+	private int size;
+	private Layout layout;
+
+	public NodeGraph() {
+		this(null);
+	}
+
+	/**
+	 * @param allocator the allocator of the pages or null if the arrays are kept on the heap
+	 */
+	public NodeGraph(PageAllocator allocator) {
+		this.allocator = allocator;
+		this.nodeStores = IntArray.create(allocator);
+		this.nodeRows = IntArray.create(allocator);
+		this.layout = new LinkedLayout(allocator);
+	}
+
+	/**
+	 * Adds a node without children.
+	 * @param store the store of the record of the node
+	 * @param row the row of the record
+	 * @return the index of the node
+	 */
+	public synchronized int add(RecordStore store, int row) {
+		final LinkedLayout linked = thaw();
+		if (store != lastStore) {
+			Integer storeIndex = storeIndexes.get(store);
+			if (storeIndex == null) {
+				storeIndex = stores.size();
+				stores.add(store);
+				storeIndexes.put(store, storeIndex);
+			}
+			lastStore = store;
+			lastStoreIndex = storeIndex;
+		}
+		nodeStores.ensureCapacity(size + 1);
+		nodeRows.ensureCapacity(size + 1);
+		linked.ensureCapacity(size + 1);
+		nodeStores.set(size, lastStoreIndex);
+		nodeRows.set(size, row);
+		linked.firstChild.set(size, NONE);
+		linked.lastChild.set(size, NONE);
+		linked.nextSibling.set(size, NONE);
+		return size++;
+	}
+
+	/**
+	 * Appends a child that has no parent yet.
+	 */
+	public synchronized void addChild(int parent, int child) {
+		final LinkedLayout linked = thaw();
+		if (linked.lastChild.get(parent) == NONE) {
+			linked.firstChild.set(parent, child);
+		} else {
+			linked.nextSibling.set(linked.lastChild.get(parent), child);
+		}
+		linked.lastChild.set(parent, child);
+	}
+
+	/**
+	 * Moves the children of a node behind the children of another node.
+	 * @param from the node that has no children afterwards
+	 * @param to the node the children are appended to
+	 */
+	public synchronized void appendChildren(int from, int to) {
+		final LinkedLayout linked = thaw();
+		if (linked.firstChild.get(from) == NONE || from == to) return;
+		if (linked.lastChild.get(to) == NONE) {
+			linked.firstChild.set(to, linked.firstChild.get(from));
+		} else {
+			linked.nextSibling.set(linked.lastChild.get(to), linked.firstChild.get(from));
+		}
+		linked.lastChild.set(to, linked.lastChild.get(from));
+		linked.firstChild.set(from, NONE);
+		linked.lastChild.set(from, NONE);
+	}
+
+	/**
+	 * Moves the children of a node in front of the children of another node.
+	 * @param from the node that has no children afterwards
+	 * @param to the node the children are prepended to
+	 */
+	public synchronized void prependChildren(int from, int to) {
+		final LinkedLayout linked = thaw();
+		if (linked.firstChild.get(from) == NONE || from == to) return;
+		if (linked.firstChild.get(to) == NONE) {
+			linked.lastChild.set(to, linked.lastChild.get(from));
+		} else {
+			linked.nextSibling.set(linked.lastChild.get(from), linked.firstChild.get(to));
+		}
+		linked.firstChild.set(to, linked.firstChild.get(from));
+		linked.firstChild.set(from, NONE);
+		linked.lastChild.set(from, NONE);
+	}
+
+	/**
+	 * @return true if the child has been removed, false if it is not a child of the parent
+	 */
+	public synchronized boolean removeChild(int parent, int child) {
+		final LinkedLayout linked = thaw();
+		int previous = NONE;
+		for (int i = linked.firstChild.get(parent); i != NONE; i = linked.nextSibling.get(i)) {
+			if (i == child) {
+				if (previous == NONE) {
+					linked.firstChild.set(parent, linked.nextSibling.get(child));
+				} else {
+					linked.nextSibling.set(previous, linked.nextSibling.get(child));
+				}
+				if (linked.lastChild.get(parent) == child) linked.lastChild.set(parent, previous);
+				linked.nextSibling.set(child, NONE);
+				return true;
+			}
+			previous = i;
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the nodes of another graph into this one, e.g. when the dataset of a file is merged.
+	 * The nodes keep their records and children and get new indexes: the index in the other graph plus the
+	 * returned offset. The views of the nodes of the other graph are moved with {@link #adopt(RMNode, int)}.
+	 * @param other the graph that is released and must not be used afterwards
+	 * @return the offset of the indexes of the nodes of the other graph
+	 */
+	public synchronized int merge(NodeGraph other) {
+		final LinkedLayout linked = thaw();
+		final LinkedLayout otherLinked = other.thaw();
+		final int offset = size;
+		final int storeOffset = stores.size();
+		for (RecordStore store : other.stores) {
+			storeIndexes.put(store, stores.size());
+			stores.add(store);
+		}
+		final int newSize = size + other.size;
+		nodeStores.ensureCapacity(newSize);
+		nodeRows.ensureCapacity(newSize);
+		linked.ensureCapacity(newSize);
+		for (int i = 0; i < other.size; i++) {
+			nodeStores.set(offset + i, other.nodeStores.get(i) + storeOffset);
+			nodeRows.set(offset + i, other.nodeRows.get(i));
+			linked.firstChild.set(offset + i, shift(otherLinked.firstChild.get(i), offset));
+			linked.lastChild.set(offset + i, shift(otherLinked.lastChild.get(i), offset));
+			linked.nextSibling.set(offset + i, shift(otherLinked.nextSibling.get(i), offset));
+		}
+		size = newSize;
+		other.release();
+		return offset;
+	}
+
+	private static int shift(int index, int offset) {
+		return index == NONE ? NONE : index + offset;
+	}
+
+	/**
+	 * Points a view of a node of a graph that has been merged into this one to the node in this graph.
+	 * @param node the view of the node of the other graph
+	 * @param offset the offset returned by {@link #merge(NodeGraph)}
+	 */
+	public void adopt(RMNode node, int offset) {
+		node.attach(this, node.getIndex() + offset);
+	}
+
+	/**
+	 * Moves a spilled tree back into this graph, e.g. when a late record refers to one of its nodes. The nodes
+	 * of the tree get the indexes from the returned offset on, the root comes first.
+	 * @param root the node of the root case whose tree has been spilled, it is moved to the restored root
+	 * @return the index of the restored root
+	 */
+	public synchronized int restore(RMNode root) {
+		final int offset = merge(root.getSpilledTree().read());
+		root.attach(this, offset);
+		return offset;
+	}
+
+	/**
+	 * Copies the nodes that are not removed into a new graph, e.g. once the trees of root cases have been spilled.
+	 * The records of the copied nodes are copied into a single store, so the new graph does not keep the stores of
+	 * this one. The views of the nodes are moved with {@link #adopt(RMNode, IntArray)}.<br>
+	 * This graph is not released, the views of its nodes may still be read, e.g. by the GUI.
+	 * @param removed the nodes that are dropped along with their children
+	 * @param store the store the records are copied into
+	 * @param newIndexes receives the index of every node in the new graph, a removed node gets a negative index
+	 * @return the new graph
+	 */
+	public synchronized NodeGraph compact(BitSet removed, RecordStore store, IntArray newIndexes) {
+		final NodeGraph compacted = new NodeGraph(allocator);
+		newIndexes.ensureCapacity(size);
+		for (int node = 0; node < size; node++) {
+			if (removed.get(node)) {
+				newIndexes.set(node, NONE);
+			} else {
+				newIndexes.set(node, compacted.add(store, store.addCopy(getStore(node), getRow(node))));
+			}
+		}
+		for (int node = 0; node < size; node++) {
+			if (removed.get(node)) continue;
+			final int parent = newIndexes.get(node);
+			for (int child : getChildIndexes(node)) {
+				if (newIndexes.get(child) != NONE) compacted.addChild(parent, newIndexes.get(child));
+			}
+		}
+		return compacted;
+	}
+
+	/**
+	 * Points a view of a node of the graph this one has been compacted from to the node in this graph.
+	 * @param node the view of a node that has not been removed
+	 * @param newIndexes the indexes filled by {@link #compact(BitSet, RecordStore, IntArray)}
+	 */
+	public void adopt(RMNode node, IntArray newIndexes) {
+		node.attach(this, newIndexes.get(node.getIndex()));
+	}
+
+	/**
+	 * Packs the children into compressed sparse rows, e.g. once all records have been added.
+	 */
+	public synchronized void freeze() {
+		if (layout instanceof FrozenLayout) return;
+		final LinkedLayout linked = (LinkedLayout) layout;
+
+		final IntArray offsets = IntArray.create(allocator);
+		offsets.ensureCapacity(size + 1);
+		int children = 0;
+		for (int node = 0; node < size; node++) {
+			offsets.set(node, children);
+			for (int child = linked.firstChild.get(node); child != NONE; child = linked.nextSibling.get(child)) {
+				children++;
+			}
+		}
+		offsets.set(size, children);
+
+		final IntArray childIndexes = IntArray.create(allocator);
+		childIndexes.ensureCapacity(children);
+		for (int node = 0; node < size; node++) {
+			int position = offsets.get(node);
+			for (int child = linked.firstChild.get(node); child != NONE; child = linked.nextSibling.get(child)) {
+				childIndexes.set(position++, child);
+			}
+		}
+		replace(new FrozenLayout(offsets, childIndexes));
+	}
+
+	/**
+	 * @return the linked lists to be changed, a frozen graph is unpacked into them
+	 */
+	private LinkedLayout thaw() {
+		if (layout instanceof LinkedLayout) return (LinkedLayout) layout;
+		final FrozenLayout frozen = (FrozenLayout) layout;
+
+		final LinkedLayout linked = new LinkedLayout(allocator);
+		linked.ensureCapacity(size);
+		for (int node = 0; node < size; node++) {
+			linked.nextSibling.set(node, NONE);
+		}
+		for (int node = 0; node < size; node++) {
+			final int start = frozen.offsets.get(node);
+			final int end = frozen.offsets.get(node + 1);
+			linked.firstChild.set(node, start < end ? frozen.childIndexes.get(start) : NONE);
+			linked.lastChild.set(node, start < end ? frozen.childIndexes.get(end - 1) : NONE);
+			for (int position = start; position < end - 1; position++) {
+				linked.nextSibling.set(frozen.childIndexes.get(position), frozen.childIndexes.get(position + 1));
+			}
+		}
+		replace(linked);
+		return linked;
+	}
+
+	private void replace(Layout next) {
+		layout.release();
+		layout = next;
+	}
+
+	/**
+	 * Returns the arrays to the allocator. The graph and the views of its nodes must not be used afterwards.
+	 */
+	public synchronized void release() {
+		layout.release();
+		nodeStores.release();
+		nodeRows.release();
+	}
+
+	/**
+	 * Adds the bytes of the stores of the records, of the nodes and of their children to the footprint.
+	 * The footprint may be taken while nodes are added, e.g. by the GUI, it is a snapshot then.
+	 */
+	public synchronized void addFootprint(MemoryFootprint footprint) {
+		final int storeCount = stores.size();
+		for (RecordStore store : stores) {
+			store.addFootprint(footprint);
+		}
+		nodeStores.addFootprint(footprint, MemoryFootprint.NODES);
+		nodeRows.addFootprint(footprint, MemoryFootprint.NODES);
+		// the list and the identity map of the stores
+		footprint.add(MemoryFootprint.NODES, MemoryFootprint.arrayBytes(storeCount, MemoryFootprint.REFERENCE)
+				+ MemoryFootprint.arrayBytes(4 * storeCount, MemoryFootprint.REFERENCE), 0);
+		layout.addFootprint(footprint);
+	}
+
+	/**
+	 * @return the indexes of the children of the node in their order
+	 */
+	public synchronized int[] getChildIndexes(int node) {
+		return layout.getChildIndexes(node);
+	}
+
+	public synchronized int getChildCount(int node) {
+		return layout.getChildCount(node);
+	}
+
+	/**
+	 * @return the views of the children of the node in their order
+	 */
+	public synchronized List<RMNode> getChildren(int node) {
+		final int[] childIndexes = getChildIndexes(node);
+		final List<RMNode> children = new ArrayList<RMNode>(childIndexes.length);
+		for (int child : childIndexes) {
+			children.add(new RMNode(this, child));
+		}
+		return children;
+	}
+
+	/**
+	 * @param node the index of a node of this graph
+	 * @return a view of the node
+	 */
+	public RMNode getNode(int node) {
+		return new RMNode(this, node);
+	}
+
+	/**
+	 * @param node a view of a node
+	 * @return the index of the node or a negative value if the view is not a node of this graph
+	 */
+	public int indexOf(RMNode node) {
+		return node.getGraph() == this ? node.getIndex() : NONE;
+	}
+
+	/**
+	 * @return the store of the record of the node
+	 */
+	public synchronized RecordStore getStore(int node) {
+		return stores.get(nodeStores.get(node));
+	}
+
+	/**
+	 * @return the row of the record of the node in its store
+	 */
+	public synchronized int getRow(int node) {
+		return nodeRows.get(node);
+	}
+
+	/**
+	 * @return a view of the record of the node
+	 */
+	public synchronized RMRecord getRecord(int node) {
+		return getStore(node).get(getRow(node));
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized boolean isFrozen() {
+		return layout instanceof FrozenLayout;
+	}
+
+	private abstract static class Layout {
+		abstract int[] getChildIndexes(int node);
+
+		abstract int getChildCount(int node);
+
+		abstract void release();
+
+		abstract void addFootprint(MemoryFootprint footprint);
+	}
+
+	private static class LinkedLayout extends Layout {
+		private final IntArray firstChild;
+		private final IntArray lastChild;
+		private final IntArray nextSibling;
+
+		private LinkedLayout(PageAllocator allocator) {
+			firstChild = IntArray.create(allocator);
+			lastChild = IntArray.create(allocator);
+			nextSibling = IntArray.create(allocator);
+		}
+
+		private void ensureCapacity(int capacity) {
+			firstChild.ensureCapacity(capacity);
+			lastChild.ensureCapacity(capacity);
+			nextSibling.ensureCapacity(capacity);
+		}
+
+		@Override
+		int[] getChildIndexes(int node) {
+			final int[] childIndexes = new int[getChildCount(node)];
+			int position = 0;
+			for (int child = firstChild.get(node); child != NONE && position < childIndexes.length; child = nextSibling.get(child)) {
+				childIndexes[position++] = child;
+			}
+			return position == childIndexes.length ? childIndexes : Arrays.copyOf(childIndexes, position);
+		}
+
+		@Override
+		int getChildCount(int node) {
+			int count = 0;
+			for (int child = firstChild.get(node); child != NONE; child = nextSibling.get(child)) {
+				count++;
+			}
+			return count;
+		}
+
+		@Override
+		void release() {
+			firstChild.release();
+			lastChild.release();
+			nextSibling.release();
+		}
+
+		@Override
+		void addFootprint(MemoryFootprint footprint) {
+			firstChild.addFootprint(footprint, MemoryFootprint.CHILDREN);
+			lastChild.addFootprint(footprint, MemoryFootprint.CHILDREN);
+			nextSibling.addFootprint(footprint, MemoryFootprint.CHILDREN);
+		}
+	}
+
+	private static class FrozenLayout extends Layout {
+		private final IntArray offsets;
+		private final IntArray childIndexes;
+
+		private FrozenLayout(IntArray offsets, IntArray childIndexes) {
+			this.offsets = offsets;
+			this.childIndexes = childIndexes;
+		}
+
+		@Override
+		int[] getChildIndexes(int node) {
+			final int start = offsets.get(node);
+			final int[] result = new int[offsets.get(node + 1) - start];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = childIndexes.get(start + i);
+			}
+			return result;
+		}
+
+		@Override
+		int getChildCount(int node) {
+			return offsets.get(node + 1) - offsets.get(node);
+		}
+
+		@Override
+		void release() {
+			offsets.release();
+			childIndexes.release();
+		}
+
+		@Override
+		void addFootprint(MemoryFootprint footprint) {
+			offsets.addFootprint(footprint, MemoryFootprint.CHILDREN);
+			childIndexes.addFootprint(footprint, MemoryFootprint.CHILDREN);
+		}
+	}
+}
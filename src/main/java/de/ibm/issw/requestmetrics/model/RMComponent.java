@@ -1,50 +1,61 @@
 package de.ibm.issw.requestmetrics.model;
 
+/**
+ * The parent or the current component of a record. The component is a view of a row of the
+ * {@link RecordStore}, the ip and the event are kept as ids of its {@link SymbolTable}.
+ */
 public class RMComponent {
-	private final int version;
-	private final String ip;
-	private final long timestamp;
-	private final long pid;
-	private final long reqid;
-	private final String event;
+	private final RecordStore.ComponentColumns columns;
+	private final int row;
 	
-	public RMComponent(final int currentVersion, final String ip, final long currentTimestamp, final long pid, final long reqid, final String event) {
-		this.version = currentVersion;
-		this.ip = ip;
-		this.timestamp = currentTimestamp;
-		this.pid = pid;
-		this.reqid = reqid;
-		this.event = event;
+	RMComponent(RecordStore.ComponentColumns columns, int row) {
+		this.columns = columns;
+		this.row = row;
 	}
 	
 	public int getVersion() {
-		return version;
+		return columns.getVersion(row);
 	}
-	public String getIp() {
-		return ip;
+	public int getIpSymbol() {
+		return columns.getIpSymbol(row);
 	}
 	public long getTimestamp() {
-		return timestamp;
+		return columns.getTimestamp(row);
 	}
 	public long getPid() {
-		return pid;
+		return columns.getPid(row);
 	}
 	public long getReqid() {
-		return reqid;
+		return columns.getReqid(row);
 	}
-	public String getEvent() {
-		return event;
+	public int getEventSymbol() {
+		return columns.getEventSymbol(row);
+	}
+	
+	/**
+	 * @param symbols the symbol table of the record the component belongs to
+	 * @return the fields of the component in the layout of the log
+	 */
+	public String toString(SymbolTable symbols) {
+		final StringBuffer sb = new StringBuffer()
+			.append("ver=").append(getVersion())
+			.append(",ip=").append(symbols.get(getIpSymbol()))
+			.append(",time=").append(getTimestamp())
+			.append(",pid=").append(getPid())
+			.append(",reqid=").append(getReqid())
+			.append(",event=").append(symbols.get(getEventSymbol()));
+		return sb.toString();
 	}
 	
 	@Override
 	public String toString() {
 		final StringBuffer sb = new StringBuffer()
-			.append("ver=").append(version)
-			.append(",ip=").append(ip)
-			.append(",time=").append(timestamp)
-			.append(",pid=").append(pid)
-			.append(",reqid=").append(reqid)
-			.append(",event=").append(event);
+			.append("ver=").append(getVersion())
+			.append(",ip=#").append(getIpSymbol())
+			.append(",time=").append(getTimestamp())
+			.append(",pid=").append(getPid())
+			.append(",reqid=").append(getReqid())
+			.append(",event=#").append(getEventSymbol());
 		return sb.toString();
 	}
 }
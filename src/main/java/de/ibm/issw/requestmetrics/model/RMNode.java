@@ -1,45 +1,155 @@
-package de.ibm.issw.requestmetrics.model;
-
-import java.util.ArrayList;
-import java.util.List;
-
-public class RMNode {
-	public final RMRecord rmData;
-	public final List<RMNode> children = new ArrayList<RMNode>();
-	private long executionTime;
-
-	public long calculateExecutionTime () {
-		executionTime = rmData.getElapsedTime();
-		if (!children.isEmpty()) {
-			long childElapsedTimes = 0;
-			for (RMNode childNode : children) {
-				if (childNode != null) {
-					childElapsedTimes += childNode.getData().getElapsedTime();
-					childNode.calculateExecutionTime();
-				}
-			}
-			executionTime -= childElapsedTimes;
-		}
-		return executionTime;
-	}
-
-	public RMNode(RMRecord rmData) {
-		this.rmData = rmData;
-	}
-
-	public List<RMNode> getChildren() {
-		return this.children;
-	}
-
-	public void addChild(RMNode child) {
-		this.children.add(child);
-	}
-
-	public RMRecord getData() {
-		return this.rmData;
-	}
-	
-	public long getExecutionTime() {
-		return executionTime;
-	}
-}
+package de.ibm.issw.requestmetrics.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A record in the graph of a dataset. The node is a view of an index of the {@link NodeGraph} of the dataset
+ * that is created when it is requested, the graph keeps the record and the children of the node.<br>
+ * The node of a root case whose tree has been spilled keeps a copy of its record and reads its children from
+ * the {@link TreeSpill} when they are requested.
+ */
+public class RMNode {
+	private static final long NOT_CALCULATED = Long.MIN_VALUE;
+	// the index of the root in the graph of a spilled tree
+	private static final int SPILLED_ROOT = 0;
+
+	private RMRecord rmData;
+	// null if the node is not part of a dataset, e.g. a dummy root case, or its tree has been spilled
+	private NodeGraph graph;
+	private int index;
+	// null unless the tree of the node has been spilled
+	private volatile TreeSpill.SpilledTree spilledTree;
+	private long executionTime = NOT_CALCULATED;
+
+	/**
+	 * Calculates the execution time of the node, i.e. its elapsed time without the elapsed times of its children.
+	 */
+	public long calculateExecutionTime () {
+		long time = rmData.getElapsedTime();
+		final TreeSpill.SpilledTree tree = spilledTree;
+		final NodeGraph current = tree != null ? tree.load() : graph;
+		final int node = tree != null ? SPILLED_ROOT : index;
+		if (current != null) {
+			for (int child : current.getChildIndexes(node)) {
+				time -= current.getStore(child).getElapsedTime(current.getRow(child));
+			}
+		}
+		executionTime = time;
+		return executionTime;
+	}
+
+	public RMNode(RMRecord rmData) {
+		this.rmData = rmData;
+	}
+
+	RMNode(NodeGraph graph, int index) {
+		this(graph.getRecord(index));
+		this.graph = graph;
+		this.index = index;
+	}
+
+	/**
+	 * @return a copy of the children in their order
+	 */
+	@SuppressWarnings("unchecked")
+	public List<RMNode> getChildren() {
+		final TreeSpill.SpilledTree tree = spilledTree;
+		if (tree != null) return tree.load().getChildren(SPILLED_ROOT);
+		return graph != null ? graph.getChildren(index) : Collections.EMPTY_LIST;
+	}
+
+	public int getChildCount() {
+		final TreeSpill.SpilledTree tree = spilledTree;
+		if (tree != null) return tree.load().getChildCount(SPILLED_ROOT);
+		return graph != null ? graph.getChildCount(index) : 0;
+	}
+
+	public void addChild(RMNode child) {
+		graph.addChild(index, child.index);
+	}
+
+	public RMRecord getData() {
+		return this.rmData;
+	}
+
+	/**
+	 * @return the execution time, it is calculated when it is requested first
+	 */
+	public long getExecutionTime() {
+		if (executionTime == NOT_CALCULATED) calculateExecutionTime();
+		return executionTime;
+	}
+
+	/**
+	 * @return true if the tree of the node has been spilled, its children are read when they are requested
+	 */
+	public boolean isSpilled() {
+		return spilledTree != null;
+	}
+
+	/**
+	 * Called by the graph when the node is moved to another graph, e.g. when its spilled tree is restored.
+	 */
+	void attach(NodeGraph graph, int index) {
+		this.graph = graph;
+		this.index = index;
+		this.rmData = graph.getRecord(index);
+		this.spilledTree = null;
+	}
+
+	/**
+	 * Called by the spill when the tree of the node has been written. The execution time is calculated before
+	 * the node is detached from its graph, so it is known without reading the tree.
+	 * @param summary the copy of the record of the node
+	 * @param tree the spilled tree, the node is its root
+	 */
+	void spill(RMRecord summary, TreeSpill.SpilledTree tree) {
+		getExecutionTime();
+		// the tree is set first, so other threads read the spilled tree rather than no children
+		this.spilledTree = tree;
+		this.rmData = summary;
+		this.graph = null;
+	}
+
+	/**
+	 * @return the spilled tree of the node or null if it has not been spilled
+	 */
+	public TreeSpill.SpilledTree getSpilledTree() {
+		return spilledTree;
+	}
+
+	/**
+	 * Called by the root case when the execution time is known, e.g. when it is read from a snapshot.
+	 */
+	void setExecutionTime(long executionTime) {
+		this.executionTime = executionTime;
+	}
+
+	/**
+	 * @return the graph of the node or null if it is not part of a graph or its tree has been spilled
+	 */
+	NodeGraph getGraph() {
+		return graph;
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Views of the same node of a graph are equal.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof RMNode) || graph == null) return false;
+		final RMNode other = (RMNode) obj;
+		return graph == other.graph && index == other.index;
+	}
+
+	@Override
+	public int hashCode() {
+		return graph != null ? 31 * System.identityHashCode(graph) + index : System.identityHashCode(this);
+	}
+}
@@ -1,106 +1,158 @@
-package de.ibm.issw.requestmetrics.model;
-
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
-public class RMRecord {
-	private static final SimpleDateFormat sdf = new SimpleDateFormat("y/MM/dd HH:mm:ss:S");
-	private static final String UNKNOWN = "UNKNOWN";
-	
-	private final String logSource;
-	private final Date logTimeStamp;
-	private final String threadId;
-	private final RMComponent currentCmp;
-	private final RMComponent parentCmp;
-	private final String typeCmp;
-	private final String detailCmp;
-	private final long elapsedTime;
-	
-	public RMRecord(String logSource, Date logTimestamp, String threadId, RMComponent currentCmp, RMComponent parentCmp,
-			String typeCmp, String detailCmp, long elapsedTime) {
-		this.logSource = logSource;
-		this.logTimeStamp = logTimestamp;
-		this.threadId = threadId;
-		this.currentCmp = currentCmp;
-		this.parentCmp = parentCmp;
-		this.typeCmp = typeCmp;
-		this.detailCmp = detailCmp;
-		this.elapsedTime = elapsedTime;
-	}
-
-	public String getThreadId() {
-		return this.threadId;
-	}
-
-	public RMComponent getCurrentCmp() {
-		return this.currentCmp;
-	}
-
-	public String getDetailCmp() {
-		return this.detailCmp;
-	}
-
-	public long getElapsedTime() {
-		return this.elapsedTime;
-	}
-
-	public RMComponent getParentCmp() {
-		return this.parentCmp;
-	}
-
-	public String getTypeCmp() {
-		return this.typeCmp;
-	}
-
-	public String getLogSource() {
-		return logSource;
-	}
-
-	public Date getLogTimeStamp() {
-		return logTimeStamp;
-	}
-
-	public String determineRMRecDesc() {
-		StringBuffer sb = new StringBuffer()
-			.append(getElapsedTime()).append("ms | ")
-			.append(sdf.format(logTimeStamp)).append(" | ")
-			.append(getThreadId()).append(" | ")
-			.append(getTypeCmp()).append(" | ")
-			.append(getDetailCmp());
-		
-		if(parentCmp.getReqid() == currentCmp.getReqid()) {
-			sb.append(" | reqid=").append(parentCmp.getReqid())
-			.append(" (root event)");
-		} else {
-			sb.append(" | parent=").append(parentCmp.getReqid())
-			.append(" | current=").append(currentCmp.getReqid());
-		}
-		return sb.toString();
-	}
-
-	public String toString() {
-		final StringBuffer sb = new StringBuffer()
-			.append(this.logTimeStamp).append("|")
-			.append(this.elapsedTime).append("|") 
-			.append(this.threadId).append("|")
-			.append(this.parentCmp).append("|") 
-			.append(this.currentCmp).append("|") 
-			.append(this.typeCmp).append("|")
-			.append(this.detailCmp).append("|");
-		return sb.toString();
-	}
-	public boolean isRootCase() {
-		return currentCmp.getReqid() == parentCmp.getReqid();
-	}
-	
-	public boolean isDummy() {
-		return UNKNOWN.equals(typeCmp);
-	}
-	
-	public static RMRecord createDummy(Long parentNodeId) {
-		return new RMRecord(UNKNOWN, new Date(), UNKNOWN, 
-				new RMComponent(0, UNKNOWN, 0, 0, parentNodeId, UNKNOWN), 
-				new RMComponent(0, UNKNOWN, 0, 0, parentNodeId, UNKNOWN), 
-				UNKNOWN, UNKNOWN + " / no root case", Long.MAX_VALUE);
-	}
-}
+package de.ibm.issw.requestmetrics.model;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * A line of a request metrics log. The record is a view of a row of a {@link RecordStore}, so it only
+ * keeps the store and the row. The strings of the record are kept as ids of a {@link SymbolTable}
+ * and only resolved when they are requested, e.g. for the display.
+ */
+public class RMRecord {
+	private static final SimpleDateFormat sdf = new SimpleDateFormat("y/MM/dd HH:mm:ss:S");
+	private static final String NO_ROOT_CASE = "UNKNOWN / no root case";
+	private static final String UNKNOWN_TIMESTAMP = "unknown";
+	
+	private final RecordStore store;
+	private final int row;
+	
+	RMRecord(RecordStore store, int row) {
+		this.store = store;
+		this.row = row;
+	}
+
+	public String getThreadId() {
+		return getSymbols().get(getThreadIdSymbol());
+	}
+
+	public int getThreadIdSymbol() {
+		return store.getThreadIdSymbol(row);
+	}
+
+	public RMComponent getCurrentCmp() {
+		return new RMComponent(store.getCurrentColumns(), row);
+	}
+
+	public String getDetailCmp() {
+		return getSymbols().get(getDetailCmpSymbol());
+	}
+
+	public int getDetailCmpSymbol() {
+		return store.getDetailSymbol(row);
+	}
+
+	public long getElapsedTime() {
+		return store.getElapsedTime(row);
+	}
+
+	public RMComponent getParentCmp() {
+		return new RMComponent(store.getParentColumns(), row);
+	}
+
+	public String getTypeCmp() {
+		return getSymbols().get(getTypeCmpSymbol());
+	}
+
+	public int getTypeCmpSymbol() {
+		return store.getTypeSymbol(row);
+	}
+
+	public String getLogSource() {
+		return getSymbols().get(getLogSourceSymbol());
+	}
+
+	public int getLogSourceSymbol() {
+		return store.getLogSourceSymbol(row);
+	}
+
+	/**
+	 * @return the symbol table the ids of the record belong to
+	 */
+	public SymbolTable getSymbols() {
+		return store.getSymbols();
+	}
+
+	/**
+	 * @return the store that keeps the fields of the record
+	 */
+	public RecordStore getStore() {
+		return store;
+	}
+
+	/**
+	 * @return the row of the record in its store
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * @return the epoch milliseconds of the log timestamp or {@link RecordStore#NO_TIMESTAMP} if it could not
+	 * be parsed or the record is a dummy
+	 */
+	public long getLogTimestamp() {
+		return store.getLogTimestamp(row);
+	}
+
+	/**
+	 * @return the log timestamp in the layout of the display or "unknown" if there is none
+	 */
+	public String formatLogTimestamp() {
+		final long logTimestamp = getLogTimestamp();
+		return logTimestamp != RecordStore.NO_TIMESTAMP ? sdf.format(logTimestamp) : UNKNOWN_TIMESTAMP;
+	}
+
+	public String determineRMRecDesc() {
+		StringBuffer sb = new StringBuffer()
+			.append(getElapsedTime()).append("ms | ")
+			.append(formatLogTimestamp()).append(" | ")
+			.append(getThreadId()).append(" | ")
+			.append(getTypeCmp()).append(" | ")
+			.append(getDetailCmp());
+		
+		final long parentReqid = store.getParentColumns().getReqid(row);
+		final long currentReqid = store.getCurrentColumns().getReqid(row);
+		if(parentReqid == currentReqid) {
+			sb.append(" | reqid=").append(parentReqid)
+			.append(" (root event)");
+		} else {
+			sb.append(" | parent=").append(parentReqid)
+			.append(" | current=").append(currentReqid);
+		}
+		return sb.toString();
+	}
+
+	public String toString() {
+		final long logTimestamp = getLogTimestamp();
+		final StringBuffer sb = new StringBuffer()
+			.append(logTimestamp != RecordStore.NO_TIMESTAMP ? new Date(logTimestamp) : null).append("|")
+			.append(getElapsedTime()).append("|") 
+			.append(getThreadId()).append("|")
+			.append(getParentCmp().toString(getSymbols())).append("|") 
+			.append(getCurrentCmp().toString(getSymbols())).append("|") 
+			.append(getTypeCmp()).append("|")
+			.append(getDetailCmp()).append("|");
+		return sb.toString();
+	}
+	public boolean isRootCase() {
+		return store.getCurrentColumns().getReqid(row) == store.getParentColumns().getReqid(row);
+	}
+	
+	public boolean isDummy() {
+		return getTypeCmpSymbol() == SymbolTable.UNKNOWN;
+	}
+	
+	/**
+	 * @param store the store of the dummy records of the dataset the record is added to
+	 * @param parentNodeId the id of the parent that has not been found in the logs
+	 * @return a record without a log timestamp that stands in for the parent
+	 */
+	public static RMRecord createDummy(RecordStore store, long parentNodeId) {
+		final int unknown = SymbolTable.UNKNOWN;
+		final int row = store.add(unknown, RecordStore.NO_TIMESTAMP, unknown, 
+				unknown, store.getSymbols().add(NO_ROOT_CASE), Long.MAX_VALUE);
+		store.setParentCmp(row, 0, unknown, 0, 0, parentNodeId, unknown);
+		store.setCurrentCmp(row, 0, unknown, 0, 0, parentNodeId, unknown);
+		return store.get(row);
+	}
+}
@@ -0,0 +1,483 @@
+package de.ibm.issw.requestmetrics.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+import de.ibm.issw.requestmetrics.util.PageAllocator;
+
+/**
+ * Columnar store of the records: every field is kept in a primitive column of its own and a record is a row
+ * of these columns, so there is no object, reference or boxed value per record and component. The strings
+ * of the records are kept as ids of a {@link SymbolTable}.<br>
+ * The columns are either arrays on the java heap or segments of a {@link PageAllocator} outside of it. A segment
+ * keeps all columns of a fixed number of rows one after another, the last segment is shrunk to its rows once the
+ * store is trimmed.<br>
+ * The records are handed out as {@link RMRecord} views of their rows. The columns can also be read directly
+ * by the row, e.g. by the table models, without a view.<br>
+ * A store is filled by a single thread, e.g. the parser of a file, a chunk or a batch of lines, and is only
+ * handed over to other threads as a whole. The rows are never copied between stores, datasets that are merged
+ * keep the stores of their records.
+ */
+public class RecordStore {
+	/** log timestamp of the records whose timestamp could not be parsed */
+	public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	// the long columns, the components have a timestamp, a pid and a reqid each
+	private static final int LOG_TIMESTAMP = 0;
+	private static final int ELAPSED_TIME = 1;
+	private static final int PARENT_LONGS = 2;
+	private static final int CURRENT_LONGS = 5;
+	private static final int LONG_COLUMNS = 8;
+	// the int columns, the components have a version, an ip and an event each
+	private static final int LOG_SOURCE = 0;
+	private static final int THREAD_ID = 1;
+	private static final int TYPE = 2;
+	private static final int DETAIL = 3;
+	private static final int PARENT_INTS = 4;
+	private static final int CURRENT_INTS = 7;
+	private static final int INT_COLUMNS = 10;
+	/** size of a record in the segments outside of the heap */
+	public static final int ROW_BYTES = 8 * LONG_COLUMNS + 4 * INT_COLUMNS;
+
+	private final SymbolTable symbols;
+	private final ComponentColumns parentColumns = new ComponentColumns(PARENT_LONGS, PARENT_INTS);
+	private final ComponentColumns currentColumns = new ComponentColumns(CURRENT_LONGS, CURRENT_INTS);
+	private final Columns columns;
+	private int size;
+
+	/**
+	 * @param symbols the symbol table the ids of the records belong to
+	 */
+	public RecordStore(SymbolTable symbols) {
+		this(symbols, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param symbols the symbol table the ids of the records belong to
+	 * @param capacity the number of records the columns are sized for initially
+	 */
+	public RecordStore(SymbolTable symbols, int capacity) {
+		this.symbols = symbols;
+		this.columns = new HeapColumns(capacity);
+	}
+
+	/**
+	 * @param symbols the symbol table the ids of the records belong to
+	 * @param allocator the allocator of the segments or null if the columns are kept on the heap
+	 */
+	public RecordStore(SymbolTable symbols, PageAllocator allocator) {
+		this.symbols = symbols;
+		this.columns = allocator == null ? new HeapColumns(DEFAULT_CAPACITY) : new BufferColumns(allocator);
+	}
+
+	/**
+	 * Appends a record. Its components are set with {@link #setParentCmp} and {@link #setCurrentCmp} afterwards.
+	 * @param logTimestamp the epoch milliseconds of the log timestamp or {@link #NO_TIMESTAMP}
+	 * @return the row of the record
+	 */
+	public int add(int logSource, long logTimestamp, int threadId, int type, int detail, long elapsedTime) {
+		columns.ensureCapacity(size + 1);
+		columns.setInt(LOG_SOURCE, size, logSource);
+		columns.setLong(LOG_TIMESTAMP, size, logTimestamp);
+		columns.setInt(THREAD_ID, size, threadId);
+		columns.setInt(TYPE, size, type);
+		columns.setInt(DETAIL, size, detail);
+		columns.setLong(ELAPSED_TIME, size, elapsedTime);
+		return size++;
+	}
+
+	/**
+	 * Appends a copy of a record of another store that has the same symbol table, e.g. when a dataset is compacted.
+	 * @return the row of the copy
+	 */
+	public int addCopy(RecordStore from, int fromRow) {
+		columns.ensureCapacity(size + 1);
+		for (int column = 0; column < LONG_COLUMNS; column++) {
+			columns.setLong(column, size, from.columns.getLong(column, fromRow));
+		}
+		for (int column = 0; column < INT_COLUMNS; column++) {
+			columns.setInt(column, size, from.columns.getInt(column, fromRow));
+		}
+		return size++;
+	}
+
+	/**
+	 * Writes the columns of a record to a buffer, e.g. to spill it to a file. {@link #ROW_BYTES} bytes are written.
+	 */
+	public void write(int row, ByteBuffer buffer) {
+		for (int column = 0; column < LONG_COLUMNS; column++) {
+			buffer.putLong(columns.getLong(column, row));
+		}
+		for (int column = 0; column < INT_COLUMNS; column++) {
+			buffer.putInt(columns.getInt(column, row));
+		}
+	}
+
+	/**
+	 * Appends a record that has been written with {@link #write(int, ByteBuffer)} by a store with the same symbol table.
+	 * @return the row of the record
+	 */
+	public int read(ByteBuffer buffer) {
+		columns.ensureCapacity(size + 1);
+		for (int column = 0; column < LONG_COLUMNS; column++) {
+			columns.setLong(column, size, buffer.getLong());
+		}
+		for (int column = 0; column < INT_COLUMNS; column++) {
+			columns.setInt(column, size, buffer.getInt());
+		}
+		return size++;
+	}
+
+	public void setParentCmp(int row, int version, int ip, long timestamp, long pid, long reqid, int event) {
+		parentColumns.set(row, version, ip, timestamp, pid, reqid, event);
+	}
+
+	public void setCurrentCmp(int row, int version, int ip, long timestamp, long pid, long reqid, int event) {
+		currentColumns.set(row, version, ip, timestamp, pid, reqid, event);
+	}
+
+	/**
+	 * @param row the row of the record
+	 * @return a view of the record
+	 */
+	public RMRecord get(int row) {
+		return new RMRecord(this, row);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes the records from the given row on, e.g. the records that were only parsed as a sample.
+	 * The views of the removed records must not be used anymore.
+	 * @param newSize the number of records that are kept
+	 */
+	public void truncate(int newSize) {
+		if(newSize < size) size = newSize;
+	}
+
+	/**
+	 * Shrinks the columns to the number of records, e.g. once all lines of a file have been parsed.
+	 */
+	public void trimToSize() {
+		columns.trimTo(size);
+	}
+
+	/**
+	 * Adds the bytes of the columns to the footprint of the records.
+	 */
+	public void addFootprint(MemoryFootprint footprint) {
+		columns.addFootprint(footprint);
+	}
+
+	/**
+	 * Returns the full pages of the columns to the allocator, the trimmed last page is kept until the allocator is
+	 * released. The store and the views of its records must not be used afterwards.
+	 */
+	public void release() {
+		columns.release();
+		size = 0;
+	}
+
+	/**
+	 * @return the symbol table the ids of the records belong to
+	 */
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	public int getLogSourceSymbol(int row) {
+		return columns.getInt(LOG_SOURCE, row);
+	}
+
+	/**
+	 * @return the epoch milliseconds of the log timestamp or {@link #NO_TIMESTAMP}
+	 */
+	public long getLogTimestamp(int row) {
+		return columns.getLong(LOG_TIMESTAMP, row);
+	}
+
+	public int getThreadIdSymbol(int row) {
+		return columns.getInt(THREAD_ID, row);
+	}
+
+	public int getTypeSymbol(int row) {
+		return columns.getInt(TYPE, row);
+	}
+
+	public int getDetailSymbol(int row) {
+		return columns.getInt(DETAIL, row);
+	}
+
+	public long getElapsedTime(int row) {
+		return columns.getLong(ELAPSED_TIME, row);
+	}
+
+	public ComponentColumns getParentColumns() {
+		return parentColumns;
+	}
+
+	public ComponentColumns getCurrentColumns() {
+		return currentColumns;
+	}
+
+	/**
+	 * The columns of the parent or the current components of the records.
+	 */
+	public final class ComponentColumns {
+		// the first long and the first int column of the component
+		private final int longs;
+		private final int ints;
+
+		private ComponentColumns(int longs, int ints) {
+			this.longs = longs;
+			this.ints = ints;
+		}
+
+		private void set(int row, int version, int ip, long timestamp, long pid, long reqid, int event) {
+			columns.setInt(ints, row, version);
+			columns.setInt(ints + 1, row, ip);
+			columns.setLong(longs, row, timestamp);
+			columns.setLong(longs + 1, row, pid);
+			columns.setLong(longs + 2, row, reqid);
+			columns.setInt(ints + 2, row, event);
+		}
+
+		public int getVersion(int row) {
+			return columns.getInt(ints, row);
+		}
+
+		public int getIpSymbol(int row) {
+			return columns.getInt(ints + 1, row);
+		}
+
+		public long getTimestamp(int row) {
+			return columns.getLong(longs, row);
+		}
+
+		public long getPid(int row) {
+			return columns.getLong(longs + 1, row);
+		}
+
+		public long getReqid(int row) {
+			return columns.getLong(longs + 2, row);
+		}
+
+		public int getEventSymbol(int row) {
+			return columns.getInt(ints + 2, row);
+		}
+	}
+
+	private abstract static class Columns {
+		abstract long getLong(int column, int row);
+
+		abstract int getInt(int column, int row);
+
+		abstract void setLong(int column, int row, long value);
+
+		abstract void setInt(int column, int row, int value);
+
+		abstract void ensureCapacity(int rows);
+
+		abstract void trimTo(int rows);
+
+		abstract void addFootprint(MemoryFootprint footprint);
+
+		abstract void release();
+	}
+
+	private static final class HeapColumns extends Columns {
+		// the columns are replaced when they are grown, the other threads may still read the previous ones
+		private final long[][] longs = new long[LONG_COLUMNS][];
+		private final int[][] ints = new int[INT_COLUMNS][];
+
+		private HeapColumns(int capacity) {
+			resize(capacity);
+		}
+
+		@Override
+		long getLong(int column, int row) {
+			return longs[column][row];
+		}
+
+		@Override
+		int getInt(int column, int row) {
+			return ints[column][row];
+		}
+
+		@Override
+		void setLong(int column, int row, long value) {
+			longs[column][row] = value;
+		}
+
+		@Override
+		void setInt(int column, int row, int value) {
+			ints[column][row] = value;
+		}
+
+		@Override
+		void ensureCapacity(int rows) {
+			final int capacity = ints[0].length;
+			if(rows > capacity) resize(Math.max(DEFAULT_CAPACITY, Math.max(2 * capacity, rows)));
+		}
+
+		@Override
+		void trimTo(int rows) {
+			if(rows < ints[0].length) resize(rows);
+		}
+
+		@Override
+		void addFootprint(MemoryFootprint footprint) {
+			final long capacity = ints[0].length;
+			final long bytes = 2 * MemoryFootprint.arrayBytes(LONG_COLUMNS, MemoryFootprint.REFERENCE)
+					+ LONG_COLUMNS * MemoryFootprint.arrayBytes(capacity, 8) + INT_COLUMNS * MemoryFootprint.arrayBytes(capacity, 4);
+			footprint.add(MemoryFootprint.RECORDS, bytes, 0);
+		}
+
+		@Override
+		void release() {
+			// the arrays are collected with the store
+		}
+
+		private void resize(int capacity) {
+			for (int column = 0; column < LONG_COLUMNS; column++) {
+				longs[column] = longs[column] == null ? new long[capacity] : Arrays.copyOf(longs[column], capacity);
+			}
+			for (int column = 0; column < INT_COLUMNS; column++) {
+				ints[column] = ints[column] == null ? new int[capacity] : Arrays.copyOf(ints[column], capacity);
+			}
+		}
+	}
+
+	/**
+	 * Segments outside of the heap. Every segment but the last is a page of the allocator with
+	 * {@link #SEGMENT_ROWS} rows, the long columns of the rows come first, then the int columns.
+	 * The number of rows of a segment is given by its capacity, the trimmed last segment may have fewer.
+	 */
+	private static final class BufferColumns extends Columns {
+		private static final int SEGMENT_ROWS = PageAllocator.PAGE_SIZE / ROW_BYTES;
+
+		private final PageAllocator allocator;
+		// the array is replaced when segments are added, the other threads may still read the previous one
+		private ByteBuffer[] segments = new ByteBuffer[0];
+
+		private BufferColumns(PageAllocator allocator) {
+			this.allocator = allocator;
+		}
+
+		private static int rows(ByteBuffer segment) {
+			return segment.capacity() / ROW_BYTES;
+		}
+
+		@Override
+		long getLong(int column, int row) {
+			final int index = row / SEGMENT_ROWS;
+			final ByteBuffer segment = segments[index];
+			return segment.getLong(8 * (column * rows(segment) + row - index * SEGMENT_ROWS));
+		}
+
+		@Override
+		int getInt(int column, int row) {
+			final int index = row / SEGMENT_ROWS;
+			final ByteBuffer segment = segments[index];
+			final int rows = rows(segment);
+			return segment.getInt(8 * LONG_COLUMNS * rows + 4 * (column * rows + row - index * SEGMENT_ROWS));
+		}
+
+		@Override
+		void setLong(int column, int row, long value) {
+			final int index = row / SEGMENT_ROWS;
+			final ByteBuffer segment = segments[index];
+			segment.putLong(8 * (column * rows(segment) + row - index * SEGMENT_ROWS), value);
+		}
+
+		@Override
+		void setInt(int column, int row, int value) {
+			final int index = row / SEGMENT_ROWS;
+			final ByteBuffer segment = segments[index];
+			final int rows = rows(segment);
+			segment.putInt(8 * LONG_COLUMNS * rows + 4 * (column * rows + row - index * SEGMENT_ROWS), value);
+		}
+
+		@Override
+		void ensureCapacity(int rows) {
+			final int count = segments.length;
+			if (count > 0 && rows(segments[count - 1]) < SEGMENT_ROWS) {
+				if (rows <= (count - 1) * SEGMENT_ROWS + rows(segments[count - 1])) return;
+				// records are added to a trimmed store, e.g. while a log is followed
+				replaceLastSegment(allocator.allocatePage());
+			}
+			if (rows <= segments.length * SEGMENT_ROWS) return;
+			final int newCount = (rows + SEGMENT_ROWS - 1) / SEGMENT_ROWS;
+			final ByteBuffer[] newSegments = Arrays.copyOf(segments, newCount);
+			for (int i = segments.length; i < newCount; i++) {
+				newSegments[i] = allocator.allocatePage();
+			}
+			segments = newSegments;
+		}
+
+		@Override
+		void trimTo(int rows) {
+			final int count = (rows + SEGMENT_ROWS - 1) / SEGMENT_ROWS;
+			for (int i = count; i < segments.length; i++) {
+				if (rows(segments[i]) == SEGMENT_ROWS) allocator.freePage(segments[i]);
+			}
+			if (count < segments.length) segments = Arrays.copyOf(segments, count);
+			if (count == 0) return;
+			final ByteBuffer last = segments[count - 1];
+			final int lastRows = rows - (count - 1) * SEGMENT_ROWS;
+			if (lastRows < rows(last)) {
+				replaceLastSegment(allocator.allocate(lastRows * ROW_BYTES));
+				if (rows(last) == SEGMENT_ROWS) allocator.freePage(last);
+			}
+		}
+
+		@Override
+		void addFootprint(MemoryFootprint footprint) {
+			final ByteBuffer[] current = segments;
+			long offHeapBytes = 0;
+			for (ByteBuffer segment : current) {
+				offHeapBytes += segment.capacity();
+			}
+			final long heapBytes = MemoryFootprint.arrayBytes(current.length, MemoryFootprint.REFERENCE) + (long) current.length * MemoryFootprint.BUFFER;
+			footprint.add(MemoryFootprint.RECORDS, heapBytes, offHeapBytes);
+		}
+
+		@Override
+		void release() {
+			for (ByteBuffer segment : segments) {
+				if (rows(segment) == SEGMENT_ROWS) allocator.freePage(segment);
+			}
+			segments = new ByteBuffer[0];
+		}
+
+		/**
+		 * Copies the rows of the last segment into a segment of another size.
+		 */
+		private void replaceLastSegment(ByteBuffer segment) {
+			final int last = segments.length - 1;
+			final ByteBuffer previous = segments[last];
+			final int rows = rows(segment);
+			final int previousRows = rows(previous);
+			final int copiedRows = Math.min(rows, previousRows);
+			for (int column = 0; column < LONG_COLUMNS; column++) {
+				for (int offset = 0; offset < copiedRows; offset++) {
+					segment.putLong(8 * (column * rows + offset), previous.getLong(8 * (column * previousRows + offset)));
+				}
+			}
+			for (int column = 0; column < INT_COLUMNS; column++) {
+				for (int offset = 0; offset < copiedRows; offset++) {
+					segment.putInt(8 * LONG_COLUMNS * rows + 4 * (column * rows + offset),
+							previous.getInt(8 * LONG_COLUMNS * previousRows + 4 * (column * previousRows + offset)));
+				}
+			}
+			final ByteBuffer[] newSegments = segments.clone();
+			newSegments[last] = segment;
+			segments = newSegments;
+		}
+	}
+}
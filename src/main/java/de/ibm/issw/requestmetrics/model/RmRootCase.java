@@ -1,7 +1,5 @@
 package de.ibm.issw.requestmetrics.model;
 
-import java.text.SimpleDateFormat;
-
 /**
  * A root case represents the scenario where the current node 
  * and the parent node of the RM record are equal.<br> This class
@@ -11,12 +9,20 @@ import java.text.SimpleDateFormat;
  *
  */
 public class RmRootCase {
-	private static final SimpleDateFormat sdf = new SimpleDateFormat("y/MM/dd HH:mm:ss:S");
 	private final RMNode node;
 	
 	public RmRootCase(RMNode node) {
 		this.node = node;
 	}
+	
+	/**
+	 * @param node the node of the root case
+	 * @param executionTime the execution time of the node that has been calculated before, e.g. from a snapshot
+	 */
+	public RmRootCase(RMNode node, long executionTime) {
+		this(node);
+		node.setExecutionTime(executionTime);
+	}
 	public RMNode getRmNode() {
 		return node;
 	}
@@ -28,7 +34,7 @@ public class RmRootCase {
 	@Override
 	public String toString() {
 		final StringBuffer sb = new StringBuffer()
-				.append(sdf.format(node.getData().getLogTimeStamp()))
+				.append(node.getData().formatLogTimestamp())
 				.append(" | ").append(node.getData().getElapsedTime())
 				.append(" | ").append(node.getData().getTypeCmp())
 				.append(" | ").append(node.getData().getDetailCmp());
@@ -0,0 +1,110 @@
+package de.ibm.issw.requestmetrics.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.ibm.issw.requestmetrics.util.MemoryFootprint;
+import de.ibm.issw.requestmetrics.util.StringPool;
+
+/**
+ * Dictionary of the strings of the records, e.g. types, details, ips, events, thread ids and file names.
+ * Every distinct string gets an int id, so the records only keep the ids and equal strings are compared
+ * and grouped by their ids. The strings are resolved when they are displayed.<br>
+ * The ids are dense, start with 0 and are never reused, so a table can only grow. A table is shared by
+ * all datasets that are merged, their ids do not need to be translated then.<br>
+ * Instances are thread safe, the parsers of different files add their symbols concurrently.
+ */
+public class SymbolTable {
+	/** id of the symbol of the dummy records, it is part of every table */
+	public static final int UNKNOWN = 0;
+	/** returned by {@link #find(String)} if the string is not in the table */
+	public static final int NOT_FOUND = -1;
+
+	private static final String UNKNOWN_SYMBOL = "UNKNOWN";
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	// the array is replaced when it is grown, the symbols are written before their ids are published
+	private volatile String[] symbols = new String[INITIAL_CAPACITY];
+	private int size;
+
+	public SymbolTable() {
+		add(UNKNOWN_SYMBOL);
+	}
+
+	/**
+	 * @param symbol the string to be added
+	 * @return the id of the string, it is the same for equal strings
+	 */
+	public int add(String symbol) {
+		final Integer id = ids.get(symbol);
+		if(id != null) return id;
+
+		synchronized (this) {
+			final Integer addedId = ids.get(symbol);
+			if(addedId != null) return addedId;
+
+			if(size == symbols.length) {
+				final String[] grown = new String[2 * size];
+				System.arraycopy(symbols, 0, grown, 0, size);
+				symbols = grown;
+			}
+			symbols[size] = symbol;
+			ids.put(symbol, size);
+			return size++;
+		}
+	}
+
+	/**
+	 * Adds a part of a line. The part is looked up in the string pool first, so a string is only
+	 * created if the part is neither in the pool nor in the table.
+	 * @param s the line
+	 * @param start the index of the first character of the part
+	 * @param end the index after the last character of the part
+	 * @return the id of the part
+	 */
+	public int add(CharSequence s, int start, int end) {
+		return add(StringPool.intern(s, start, end));
+	}
+
+	/**
+	 * @param symbol the string to be looked up
+	 * @return the id of the string or {@link #NOT_FOUND} if it has not been added
+	 */
+	public int find(String symbol) {
+		final Integer id = ids.get(symbol);
+		return id != null ? id : NOT_FOUND;
+	}
+
+	/**
+	 * @param id the id of a symbol that has been added to this table
+	 * @return the string of the symbol
+	 */
+	public String get(int id) {
+		return symbols[id];
+	}
+
+	/**
+	 * @return the number of symbols, the ids are in the range from 0 to size - 1
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the bytes of the strings, the array of the symbols and the map of the ids to the footprint.
+	 */
+	public void addFootprint(MemoryFootprint footprint) {
+		final String[] current = symbols;
+		final int count = Math.min(size(), current.length);
+		long bytes = MemoryFootprint.arrayBytes(current.length, MemoryFootprint.REFERENCE);
+		for (int id = 0; id < count; id++) {
+			bytes += MemoryFootprint.stringBytes(current[id].length());
+		}
+		// a node with the hash, the key, the value and the next node and a boxed id per symbol
+		bytes += count * (MemoryFootprint.objectBytes(4 + 3 * MemoryFootprint.REFERENCE) + MemoryFootprint.objectBytes(4));
+		// the table of the map is kept at most three quarters full
+		final int tableLength = Integer.highestOneBit(Math.max(1, count * 4 / 3)) << 1;
+		bytes += MemoryFootprint.arrayBytes(tableLength, MemoryFootprint.REFERENCE);
+		footprint.add(MemoryFootprint.STRINGS, bytes, 0);
+	}
+}
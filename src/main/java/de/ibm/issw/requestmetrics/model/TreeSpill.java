@@ -0,0 +1,200 @@
+package de.ibm.issw.requestmetrics.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Temporary file the trees of complete root cases are spilled to, so they can be evicted from the memory of a
+ * dataset. The root case keeps a copy of its root record as a summary and the execution time of the root, the
+ * tree is read back into a graph of its own when the children of the root are requested, e.g. when the root case
+ * is selected in the GUI. The last read graph of a tree is kept until the garbage collector needs the memory.<br>
+ * The nodes of a tree are written in preorder, every node as its record followed by the number of its children.
+ * The records keep the ids of the symbol table of the dataset.<br>
+ * The methods are thread safe.
+ */
+public class TreeSpill {
+	public static final Logger LOG = LoggerFactory.getLogger(TreeSpill.class);
+	// the record and the number of children of a node
+	private static final int NODE_BYTES = RecordStore.ROW_BYTES + 4;
+	// size of the buffer the nodes are written with
+	private static final int BUFFER_NODES = 1024;
+
+	private final SymbolTable symbols;
+	private final File file;
+	private final FileChannel channel;
+	private long bytes;
+	private int trees;
+
+	/**
+	 * @param directory the folder of the temporary file, it is deleted when the spill is released
+	 * @param symbols the symbol table of the records of the trees
+	 */
+	public TreeSpill(File directory, SymbolTable symbols) throws IOException {
+		this.symbols = symbols;
+		this.file = File.createTempFile("rm-spill-", ".bin", directory);
+		file.deleteOnExit();
+		this.channel = new RandomAccessFile(file, "rw").getChannel();
+	}
+
+	/**
+	 * Writes the tree of a root case to the file and evicts it: the node of the root case is turned into a
+	 * summary that keeps a copy of the root record in the given store and reads the tree back when it is requested.
+	 * The graph of the tree is not changed, its nodes are dropped by compacting it.
+	 * @param rootCase the root case whose tree is complete
+	 * @param summaries the store of the copies of the root records
+	 * @return the number of nodes that have been spilled
+	 */
+	public int spill(RmRootCase rootCase, RecordStore summaries) {
+		final RMNode root = rootCase.getRmNode();
+		final SpilledTree tree = write(root.getGraph(), root.getIndex());
+		final RMRecord record = root.getData();
+		root.spill(summaries.get(summaries.addCopy(record.getStore(), record.getRow())), tree);
+		return tree.nodes;
+	}
+
+	private synchronized SpilledTree write(NodeGraph graph, int root) {
+		final long offset = bytes;
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_NODES * NODE_BYTES);
+		int nodes = 0;
+		final Deque<Integer> stack = new ArrayDeque<Integer>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			final int node = stack.pop();
+			final int[] children = graph.getChildIndexes(node);
+			if (buffer.remaining() < NODE_BYTES) flush(buffer);
+			graph.getStore(node).write(graph.getRow(node), buffer);
+			buffer.putInt(children.length);
+			nodes++;
+			// the first child is written next
+			for (int i = children.length - 1; i >= 0; i--) {
+				stack.push(children[i]);
+			}
+		}
+		flush(buffer);
+		trees++;
+		return new SpilledTree(offset, nodes);
+	}
+
+	private void flush(ByteBuffer buffer) {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				bytes += channel.write(buffer, bytes);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not write to " + file, e);
+		}
+		buffer.clear();
+	}
+
+	private synchronized NodeGraph read(long offset, int nodes) {
+		final ByteBuffer buffer = ByteBuffer.allocate(nodes * NODE_BYTES);
+		try {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, offset + buffer.position()) < 0) throw new IOException("Unexpected end of file");
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read a spilled tree from " + file, e);
+		}
+		buffer.flip();
+
+		final RecordStore store = new RecordStore(symbols, nodes);
+		final NodeGraph graph = new NodeGraph();
+		// the nodes whose children are read and the number of their children that are still to be read
+		final Deque<int[]> parents = new ArrayDeque<int[]>();
+		for (int i = 0; i < nodes; i++) {
+			final int node = graph.add(store, store.read(buffer));
+			final int children = buffer.getInt();
+			if (!parents.isEmpty()) {
+				final int[] parent = parents.peek();
+				graph.addChild(parent[0], node);
+				parent[1]--;
+			}
+			if (children > 0) parents.push(new int[] {node, children});
+			while (!parents.isEmpty() && parents.peek()[1] == 0) {
+				parents.pop();
+			}
+		}
+		graph.freeze();
+		return graph;
+	}
+
+	/**
+	 * @return the size of the file in bytes
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of trees that have been spilled
+	 */
+	public synchronized int getTrees() {
+		return trees;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Closes and deletes the file. The spilled trees can not be read anymore.
+	 */
+	public synchronized void release() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOG.warn("Could not close " + file, e);
+		}
+		if (!file.delete()) LOG.debug("The file " + file + " is deleted on exit");
+	}
+
+	/**
+	 * A tree in the file. The root of the tree has the index 0 in the graph that is read.
+	 */
+	public final class SpilledTree {
+		private final long offset;
+		private final int nodes;
+		private SoftReference<NodeGraph> graph = new SoftReference<NodeGraph>(null);
+
+		private SpilledTree(long offset, int nodes) {
+			this.offset = offset;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * @return the graph of the tree, it is read from the file unless it has been read before and is still in memory
+		 */
+		public synchronized NodeGraph load() {
+			NodeGraph loaded = graph.get();
+			if (loaded == null) {
+				loaded = read();
+				graph = new SoftReference<NodeGraph>(loaded);
+			}
+			return loaded;
+		}
+
+		/**
+		 * @return a new graph of the tree that is read from the file, e.g. to move the tree back into a dataset
+		 */
+		public NodeGraph read() {
+			return TreeSpill.this.read(offset, nodes);
+		}
+
+		/**
+		 * @return the number of nodes of the tree
+		 */
+		public int getNodeCount() {
+			return nodes;
+		}
+	}
+}
@@ -1,40 +1,297 @@
 package de.ibm.issw.requestmetrics.util;
 
-import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Parses the timestamps of the supported log formats into epoch milliseconds.<br>
+ * The parser remembers the format that matched last, so consecutive timestamps of a file are
+ * tried against the right format first. The formats do not rely on exceptions: the digits of
+ * the seconds and milliseconds are parsed directly and everything else of the timestamp
+ * (date, hour, minute and time zone) is resolved once per minute with a SimpleDateFormat
+ * and cached.<br>
+ * Instances are thread safe, so a single parser can be shared by parallel parsers of a file.
+ */
 public class DateParser {
 	private static final Logger LOG = LoggerFactory.getLogger(DateParser.class);
 
-	private static final SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yy H:m:s:S z", Locale.US);
-	private static final SimpleDateFormat sdf2 = new SimpleDateFormat("yyyy-mm-dd H:m:s:S z", Locale.US);
-	private static final SimpleDateFormat pluginSdf = new SimpleDateFormat("dd/MMM/yy:HH:mm:ss.S", Locale.US);
-	private static final SimpleDateFormat pluginSdf2 = new SimpleDateFormat("EEE MMM dd HH:mm:ss yyyy", Locale.US);
-	
+	/** returned by the parse methods if the timestamp does not match any of the supported formats */
+	public static final long INVALID = Long.MIN_VALUE;
+
+	// shared instance for the callers that only parse single timestamps
+	private static final DateParser DEFAULT = new DateParser();
+
+	// number of minutes that are cached per format
+	private static final int CACHE_SIZE = 64;
+	// the numbers of the timestamps are small, more digits are not valid
+	private static final int MAX_DIGITS = 9;
+
+	private final TimestampFormat[] formats = new TimestampFormat[] {
+			new ServerTimestampFormat('/', "MM/dd/yy H:m:s:S z"), 	// [5/28/15 11:10:39:507 EDT]
+			new ServerTimestampFormat('-', "yyyy-MM-dd H:m:s:S z"), // [2017-04-03 16:54:00:017 CEST]
+			new PluginTimestampFormat(), 							// [06/Jan/2016:11:07:07.75481]
+			new PluginRawTimestampFormat() 							// [Mon Apr 03 16:59:20 2017]
+	};
+	private volatile int lastFormat = 0;
+
+	/**
+	 * Parses a timestamp with a shared parser instance.
+	 * @param timestamp the timestamp to be parsed
+	 * @return the date or null if the timestamp could not be parsed
+	 */
 	public static Date parseTimestamp(final String timestamp) {
-		Date recordDate = null; //[5/28/15 11:10:39:507 EDT]
-		try {
-			recordDate = sdf.parse(timestamp);
-		} catch (ParseException e) {
-			try {
-				recordDate = sdf2.parse(timestamp);
-			} catch (ParseException e1) {
-				try {
-					recordDate = pluginSdf.parse(timestamp);
-				} catch (ParseException e2) {
-					try {
-						recordDate = pluginSdf2.parse(timestamp);
-					} catch (ParseException e3) {
-						LOG.error("could not parse the log timestamp: " + timestamp);
-					}
+		return DEFAULT.parseDate(timestamp);
+	}
+
+	/**
+	 * Forgets the format that matched last, e.g. when a new file is parsed.
+	 */
+	public void reset() {
+		lastFormat = 0;
+	}
+
+	/**
+	 * @param timestamp the timestamp to be parsed
+	 * @return the date or null if the timestamp could not be parsed
+	 */
+	public Date parseDate(final String timestamp) {
+		final long epoch = parse(timestamp, 0, timestamp.length());
+		return epoch != INVALID ? new Date(epoch) : null;
+	}
+
+	/**
+	 * Parses a timestamp that is part of a longer character sequence, e.g. a log line,
+	 * without creating a substring.
+	 * @param s the characters containing the timestamp
+	 * @param start the index of the first character of the timestamp
+	 * @param end the index after the last character of the timestamp
+	 * @return the epoch milliseconds or INVALID if the timestamp could not be parsed
+	 */
+	public long parse(final CharSequence s, final int start, final int end) {
+		final int last = lastFormat;
+		long epoch = formats[last].parse(s, start, end);
+		if(epoch != INVALID) return epoch;
+
+		for (int i = 0; i < formats.length; i++) {
+			if(i == last) continue;
+			epoch = formats[i].parse(s, start, end);
+			if(epoch != INVALID) {
+				lastFormat = i;
+				return epoch;
+			}
+		}
+		LOG.error("could not parse the log timestamp: " + s.subSequence(start, end));
+		return INVALID;
+	}
+
+	/**
+	 * @return the index after the digits starting at pos or -1 if there are no or too many digits
+	 */
+	private static int skipDigits(CharSequence s, int pos, int end) {
+		if(pos < 0) return -1;
+		final int start = pos;
+		while(pos < end && isDigit(s.charAt(pos))) pos++;
+		return (pos == start || pos - start > MAX_DIGITS) ? -1 : pos;
+	}
+
+	/**
+	 * @return the index after the letters starting at pos or -1 if there are no letters
+	 */
+	private static int skipLetters(CharSequence s, int pos, int end) {
+		if(pos < 0) return -1;
+		final int start = pos;
+		while(pos < end && Character.isLetter(s.charAt(pos))) pos++;
+		return pos == start ? -1 : pos;
+	}
+
+	/**
+	 * @return the index after the character or -1 if the character at pos is not the expected one
+	 */
+	private static int skip(CharSequence s, int pos, int end, char c) {
+		return (pos >= 0 && pos < end && s.charAt(pos) == c) ? pos + 1 : -1;
+	}
+
+	private static int parseNumber(CharSequence s, int start, int end) {
+		int result = 0;
+		for (int i = start; i < end; i++) {
+			result = result * 10 + (s.charAt(i) - '0');
+		}
+		return result;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * The epoch of a minute together with the characters of the timestamp that identify it,
+	 * i.e. the timestamp without the seconds and the fraction of the second.
+	 */
+	private static class CachedMinute {
+		private final String prefix;
+		private final String suffix;
+		private final long epoch;
+
+		private CachedMinute(String prefix, String suffix, long epoch) {
+			this.prefix = prefix;
+			this.suffix = suffix;
+			this.epoch = epoch;
+		}
+
+		private boolean matches(CharSequence s, int start, int secondsStart, int fractionEnd, int end) {
+			return regionMatches(s, start, secondsStart, prefix) && regionMatches(s, fractionEnd, end, suffix);
+		}
+
+		private static boolean regionMatches(CharSequence s, int start, int end, String str) {
+			if(end - start != str.length()) return false;
+			for (int i = start; i < end; i++) {
+				if(s.charAt(i) != str.charAt(i - start)) return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * A supported format of timestamps. Subclasses locate the seconds and the fraction of
+	 * the second, everything else is resolved by the SimpleDateFormat once per minute.
+	 */
+	private static abstract class TimestampFormat {
+		private final AtomicReferenceArray<CachedMinute> cache = new AtomicReferenceArray<CachedMinute>(CACHE_SIZE);
+		private final String zeroSeconds;
+		private final ThreadLocal<SimpleDateFormat> sdf;
+
+		/**
+		 * @param pattern the pattern of the SimpleDateFormat
+		 * @param zeroSeconds the seconds and the fraction of the second of the first millisecond of a minute
+		 */
+		TimestampFormat(final String pattern, String zeroSeconds) {
+			this.zeroSeconds = zeroSeconds;
+			this.sdf = new ThreadLocal<SimpleDateFormat>() {
+				@Override
+				protected SimpleDateFormat initialValue() {
+					return new SimpleDateFormat(pattern, Locale.US);
 				}
+			};
+		}
+
+		abstract long parse(CharSequence s, int start, int end);
+
+		/**
+		 * Calculates the epoch from the cached minute and the seconds and the fraction of the second.
+		 * @param fractionMillis the milliseconds of the fraction of the second
+		 * @return the epoch milliseconds or INVALID if the minute could not be resolved
+		 */
+		long resolve(CharSequence s, int start, int secondsStart, int secondsEnd, int fractionEnd, int end, int fractionMillis) {
+			final int hash = hash(s, start, secondsStart, fractionEnd, end);
+			final int slot = hash & (CACHE_SIZE - 1);
+
+			CachedMinute minute = cache.get(slot);
+			if(minute == null || !minute.matches(s, start, secondsStart, fractionEnd, end)) {
+				// first timestamp of this minute: resolve it with the first millisecond of the minute
+				final String prefix = s.subSequence(start, secondsStart).toString();
+				final String suffix = s.subSequence(fractionEnd, end).toString();
+				final ParsePosition position = new ParsePosition(0);
+				final Date date = sdf.get().parse(prefix + zeroSeconds + suffix, position);
+				if(date == null) return INVALID;
+
+				minute = new CachedMinute(prefix, suffix, date.getTime());
+				cache.set(slot, minute);
 			}
+			return minute.epoch + parseNumber(s, secondsStart, secondsEnd) * 1000L + fractionMillis;
+		}
+
+		private static int hash(CharSequence s, int start, int secondsStart, int fractionEnd, int end) {
+			int hash = 0;
+			for (int i = start; i < secondsStart; i++) hash = 31 * hash + s.charAt(i);
+			for (int i = fractionEnd; i < end; i++) hash = 31 * hash + s.charAt(i);
+			return hash ^ (hash >>> 16);
+		}
+	}
+
+	/**
+	 * Timestamps of the application server, e.g. <code>10/19/15 16:27:44:496 CEST</code> or
+	 * <code>2017-04-03 16:54:00:017 CEST</code>. The milliseconds are separated by a colon.
+	 */
+	private static class ServerTimestampFormat extends TimestampFormat {
+		private final char dateSeparator;
+
+		ServerTimestampFormat(char dateSeparator, String pattern) {
+			super(pattern, "0:0");
+			this.dateSeparator = dateSeparator;
+		}
+
+		@Override
+		long parse(CharSequence s, int start, int end) {
+			int pos = skip(s, skipDigits(s, start, end), end, dateSeparator);
+			pos = skip(s, skipDigits(s, pos, end), end, dateSeparator);
+			pos = skip(s, skipDigits(s, pos, end), end, ' ');
+			pos = skip(s, skipDigits(s, pos, end), end, ':');
+			final int secondsStart = skip(s, skipDigits(s, pos, end), end, ':');
+			final int secondsEnd = skipDigits(s, secondsStart, end);
+			final int fractionStart = skip(s, secondsEnd, end, ':');
+			final int fractionEnd = skipDigits(s, fractionStart, end);
+			// the time zone is mandatory
+			if(skip(s, fractionEnd, end, ' ') < 0 || fractionEnd + 1 >= end) return INVALID;
+
+			return resolve(s, start, secondsStart, secondsEnd, fractionEnd, end, parseNumber(s, fractionStart, fractionEnd));
+		}
+	}
+
+	/**
+	 * Timestamps of the web server plugin, e.g. <code>06/Jan/2016:11:07:07.75481</code>.
+	 * The fraction of the second is separated by a dot.
+	 */
+	private static class PluginTimestampFormat extends TimestampFormat {
+		PluginTimestampFormat() {
+			super("dd/MMM/yy:HH:mm:ss.S", "00.0");
+		}
+
+		@Override
+		long parse(CharSequence s, int start, int end) {
+			int pos = skip(s, skipDigits(s, start, end), end, '/');
+			pos = skip(s, skipLetters(s, pos, end), end, '/');
+			pos = skip(s, skipDigits(s, pos, end), end, ':');
+			pos = skip(s, skipDigits(s, pos, end), end, ':');
+			final int secondsStart = skip(s, skipDigits(s, pos, end), end, ':');
+			final int secondsEnd = skipDigits(s, secondsStart, end);
+			final int fractionStart = skip(s, secondsEnd, end, '.');
+			final int fractionEnd = skipDigits(s, fractionStart, end);
+			if(fractionEnd != end) return INVALID;
+
+			// the fraction is a decimal fraction of the second with an arbitrary number of digits
+			int fractionMillis = 0;
+			for (int i = fractionStart; i < fractionStart + 3; i++) {
+				fractionMillis = fractionMillis * 10 + (i < fractionEnd ? s.charAt(i) - '0' : 0);
+			}
+			return resolve(s, start, secondsStart, secondsEnd, fractionEnd, end, fractionMillis);
+		}
+	}
+
+	/**
+	 * Timestamps of the raw web server plugin log, e.g. <code>Mon Apr 03 16:59:20 2017</code>.
+	 */
+	private static class PluginRawTimestampFormat extends TimestampFormat {
+		PluginRawTimestampFormat() {
+			super("EEE MMM dd HH:mm:ss yyyy", "00");
+		}
+
+		@Override
+		long parse(CharSequence s, int start, int end) {
+			int pos = skip(s, skipLetters(s, start, end), end, ' ');
+			pos = skip(s, skipLetters(s, pos, end), end, ' ');
+			pos = skip(s, skipDigits(s, pos, end), end, ' ');
+			pos = skip(s, skipDigits(s, pos, end), end, ':');
+			final int secondsStart = skip(s, skipDigits(s, pos, end), end, ':');
+			final int secondsEnd = skipDigits(s, secondsStart, end);
+			if(skipDigits(s, skip(s, secondsEnd, end, ' '), end) != end) return INVALID;
+
+			return resolve(s, start, secondsStart, secondsEnd, secondsEnd, end, 0);
 		}
-		return recordDate;
 	}
 }
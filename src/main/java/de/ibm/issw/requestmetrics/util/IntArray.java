@@ -0,0 +1,143 @@
+package de.ibm.issw.requestmetrics.util;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints that is kept either on the java heap or in the pages of a
+ * {@link PageAllocator}. A heap array is replaced by a larger copy when it is grown, a paged array gets
+ * additional pages.<br>
+ * Instances are not thread safe, the replaced arrays are not published safely: an array that is read by other
+ * threads while it is changed must be guarded by the lock of its owner, e.g. the graph of the nodes.
+ */
+public abstract class IntArray {
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * @param allocator the allocator of the pages or null if the array is kept on the heap
+	 */
+	public static IntArray create(PageAllocator allocator) {
+		return allocator == null ? new HeapIntArray() : new PagedIntArray(allocator);
+	}
+
+	public abstract int get(int index);
+
+	public abstract void set(int index, int value);
+
+	/**
+	 * @return the number of values that can be set without growing the array
+	 */
+	public abstract int capacity();
+
+	/**
+	 * @param capacity the number of values that can be set afterwards
+	 */
+	public abstract void ensureCapacity(int capacity);
+
+	/**
+	 * Returns the pages of a paged array to its allocator. The array must not be used afterwards.
+	 */
+	public abstract void release();
+
+	/**
+	 * Adds the bytes of the array to a structure of the footprint.
+	 */
+	public abstract void addFootprint(MemoryFootprint footprint, String structure);
+
+	private static final class HeapIntArray extends IntArray {
+		private int[] values = new int[INITIAL_CAPACITY];
+
+		@Override
+		public int get(int index) {
+			return values[index];
+		}
+
+		@Override
+		public void set(int index, int value) {
+			values[index] = value;
+		}
+
+		@Override
+		public int capacity() {
+			return values.length;
+		}
+
+		@Override
+		public void ensureCapacity(int capacity) {
+			if (capacity > values.length) values = Arrays.copyOf(values, Math.max(2 * values.length, capacity));
+		}
+
+		@Override
+		public void release() {
+			values = null;
+		}
+
+		@Override
+		public void addFootprint(MemoryFootprint footprint, String structure) {
+			final int[] current = values;
+			if (current != null) footprint.add(structure, MemoryFootprint.arrayBytes(current.length, 4), 0);
+		}
+	}
+
+	private static final class PagedIntArray extends IntArray {
+		private static final int PAGE_INTS = PageAllocator.PAGE_SIZE / 4;
+		private static final int PAGE_SHIFT = Integer.numberOfTrailingZeros(PAGE_INTS);
+		private static final int PAGE_MASK = PAGE_INTS - 1;
+
+		private final PageAllocator allocator;
+		// the arrays are replaced when pages are added
+		private ByteBuffer[] pages = new ByteBuffer[0];
+		private IntBuffer[] intPages = new IntBuffer[0];
+
+		private PagedIntArray(PageAllocator allocator) {
+			this.allocator = allocator;
+		}
+
+		@Override
+		public int get(int index) {
+			return intPages[index >>> PAGE_SHIFT].get(index & PAGE_MASK);
+		}
+
+		@Override
+		public void set(int index, int value) {
+			intPages[index >>> PAGE_SHIFT].put(index & PAGE_MASK, value);
+		}
+
+		@Override
+		public int capacity() {
+			return pages.length * PAGE_INTS;
+		}
+
+		@Override
+		public void ensureCapacity(int capacity) {
+			final int count = (int) (((long) capacity + PAGE_INTS - 1) >>> PAGE_SHIFT);
+			if (count <= pages.length) return;
+			final ByteBuffer[] newPages = Arrays.copyOf(pages, count);
+			final IntBuffer[] newIntPages = Arrays.copyOf(intPages, count);
+			for (int i = pages.length; i < count; i++) {
+				newPages[i] = allocator.allocatePage();
+				newIntPages[i] = newPages[i].asIntBuffer();
+			}
+			intPages = newIntPages;
+			pages = newPages;
+		}
+
+		@Override
+		public void release() {
+			for (ByteBuffer page : pages) {
+				allocator.freePage(page);
+			}
+			pages = new ByteBuffer[0];
+			intPages = new IntBuffer[0];
+		}
+
+		@Override
+		public void addFootprint(MemoryFootprint footprint, String structure) {
+			final int count = pages.length;
+			// the arrays of the pages and a byte buffer and an int buffer per page
+			final long heapBytes = 2 * MemoryFootprint.arrayBytes(count, MemoryFootprint.REFERENCE) + 2L * count * MemoryFootprint.BUFFER;
+			footprint.add(structure, heapBytes, (long) count * PageAllocator.PAGE_SIZE);
+		}
+	}
+}
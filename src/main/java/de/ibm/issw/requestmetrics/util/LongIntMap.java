@@ -0,0 +1,216 @@
+package de.ibm.issw.requestmetrics.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map with primitive long keys and primitive int values, e.g. the indexes of the nodes by their request ids.
+ * The keys and the values are kept in two arrays with open addressing and linear probing, so neither the keys
+ * are boxed nor an entry object is created per mapping. Removed mappings are not marked as deleted, the following
+ * mappings of their cluster are shifted back instead, so lookups never have to skip deleted slots.<br>
+ * Negative values are not supported, a slot without a value is empty and {@link #NO_VALUE} is returned for keys
+ * without a mapping. The {@link LongMap} keeps the indexes of its values in this table.<br>
+ * Instances are not thread safe.
+ */
+public class LongIntMap {
+	/** value of the keys without a mapping */
+	public static final int NO_VALUE = -1;
+	// multiplier of the fibonacci hashing, the upper bits of the product select the slot
+	private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+	private static final int MIN_CAPACITY = 16;
+	// the table is grown once it is filled to three quarters
+	private static final int MAX_LOAD_PERCENT = 75;
+	// the largest power of two that is an array size
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private long[] keys;
+	private int[] values;
+	private int shift;
+	private int size;
+	private int maxSize;
+
+	public LongIntMap() {
+		this(0);
+	}
+
+	/**
+	 * @param expectedSize the number of mappings the table is sized for
+	 */
+	public LongIntMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * @param key the key of the mapping
+	 * @return the value or {@link #NO_VALUE} if there is no mapping for the key
+	 */
+	public int get(long key) {
+		final int mask = keys.length - 1;
+		for (int slot = slot(key); values[slot] != NO_VALUE; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) return values[slot];
+		}
+		return NO_VALUE;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != NO_VALUE;
+	}
+
+	/**
+	 * @param key the key of the mapping
+	 * @param value the value, must not be negative
+	 * @return the previous value or {@link #NO_VALUE} if there was no mapping for the key
+	 */
+	public int put(long key, int value) {
+		if (value < 0) throw new IllegalArgumentException("Negative values are not supported");
+		final int mask = keys.length - 1;
+		int slot = slot(key);
+		for (; values[slot] != NO_VALUE; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				final int previous = values[slot];
+				values[slot] = value;
+				return previous;
+			}
+		}
+		if (size == maxSize) {
+			if (keys.length == MAX_CAPACITY) throw new IllegalStateException("The map can not hold more than " + maxSize + " mappings");
+			resize(2 * keys.length);
+			slot = slot(key);
+			while (values[slot] != NO_VALUE) slot = (slot + 1) & (keys.length - 1);
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		return NO_VALUE;
+	}
+
+	/**
+	 * @param key the key of the mapping
+	 * @return the removed value or {@link #NO_VALUE} if there was no mapping for the key
+	 */
+	public int remove(long key) {
+		final int mask = keys.length - 1;
+		for (int slot = slot(key); values[slot] != NO_VALUE; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				final int removed = values[slot];
+				shiftBack(slot);
+				size--;
+				return removed;
+			}
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * Fills the gap of a removed mapping with the following mappings of the cluster that
+	 * can not be found anymore otherwise, i.e. whose ideal slot is not between the gap and them.
+	 */
+	private void shiftBack(int gap) {
+		final int mask = keys.length - 1;
+		int slot = gap;
+		while (true) {
+			slot = (slot + 1) & mask;
+			if (values[slot] == NO_VALUE) break;
+			final int ideal = slot(keys[slot]);
+			// the distances are measured in probing order, so the wrap around of the table is taken into account
+			if (((slot - ideal) & mask) >= ((slot - gap) & mask)) {
+				keys[gap] = keys[slot];
+				values[gap] = values[slot];
+				gap = slot;
+			}
+		}
+		values[gap] = NO_VALUE;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Grows the table in advance, so it does not need to be grown while the mappings are added.
+	 * @param expectedSize the number of mappings the table is sized for
+	 */
+	public void ensureCapacity(int expectedSize) {
+		final int capacity = capacityFor(expectedSize);
+		if (capacity > keys.length) resize(capacity);
+	}
+
+	public void clear() {
+		allocate(MIN_CAPACITY);
+		size = 0;
+	}
+
+	/**
+	 * @return the estimated bytes of the table on the heap
+	 */
+	public long getHeapBytes() {
+		return MemoryFootprint.arrayBytes(keys.length, 8) + MemoryFootprint.arrayBytes(values.length, 4);
+	}
+
+	/**
+	 * @return a cursor over the mappings, the map must not be changed while it is used
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	private int slot(long key) {
+		return (int) ((key * GOLDEN_RATIO) >>> shift);
+	}
+
+	private static int capacityFor(int expectedSize) {
+		final long minCapacity = Math.max(MIN_CAPACITY, 100L * expectedSize / MAX_LOAD_PERCENT + 1);
+		if (minCapacity > MAX_CAPACITY) return MAX_CAPACITY;
+		return Integer.highestOneBit((int) minCapacity - 1) << 1;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, NO_VALUE);
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		maxSize = (int) ((long) capacity * MAX_LOAD_PERCENT / 100);
+	}
+
+	private void resize(int capacity) {
+		final long[] oldKeys = keys;
+		final int[] oldValues = values;
+		allocate(capacity);
+		final int mask = capacity - 1;
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] == NO_VALUE) continue;
+			int slot = slot(oldKeys[i]);
+			while (values[slot] != NO_VALUE) slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+		}
+	}
+
+	/**
+	 * Walks the mappings in the order of the table without creating an entry per mapping.
+	 */
+	public class Cursor {
+		private int slot = -1;
+
+		/**
+		 * @return true if the cursor has been moved to the next mapping, false if there are no more mappings
+		 */
+		public boolean next() {
+			while (++slot < values.length) {
+				if (values[slot] != NO_VALUE) return true;
+			}
+			return false;
+		}
+
+		public long key() {
+			return keys[slot];
+		}
+
+		public int value() {
+			return values[slot];
+		}
+	}
+}
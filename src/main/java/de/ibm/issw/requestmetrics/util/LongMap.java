@@ -0,0 +1,173 @@
+package de.ibm.issw.requestmetrics.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash map with primitive long keys, e.g. the request ids of the records. The mappings are kept densely in
+ * two arrays in the order they have been added, a {@link LongIntMap} maps the keys to their indexes, so the
+ * keys are not boxed and no entry object is created per mapping. A removed mapping is replaced by the last
+ * one, so the arrays stay dense.<br>
+ * Null values are not supported.<br>
+ * Instances are not thread safe.
+ *
+ * @param <V> the type of the values
+ */
+public class LongMap<V> {
+	private static final int MIN_CAPACITY = 16;
+
+	private final LongIntMap indexes;
+	private long[] keys;
+	private Object[] values;
+	private int size;
+
+	public LongMap() {
+		this(0);
+	}
+
+	/**
+	 * @param expectedSize the number of mappings the map is sized for
+	 */
+	public LongMap(int expectedSize) {
+		indexes = new LongIntMap(expectedSize);
+		keys = new long[Math.max(MIN_CAPACITY, expectedSize)];
+		values = new Object[keys.length];
+	}
+
+	/**
+	 * @param key the key of the mapping
+	 * @return the value or null if there is no mapping for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		final int index = indexes.get(key);
+		return index != LongIntMap.NO_VALUE ? (V) values[index] : null;
+	}
+
+	public boolean containsKey(long key) {
+		return indexes.containsKey(key);
+	}
+
+	/**
+	 * @param key the key of the mapping
+	 * @param value the value, must not be null
+	 * @return the previous value or null if there was no mapping for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (value == null) throw new IllegalArgumentException("Null values are not supported");
+		final int index = indexes.get(key);
+		if (index != LongIntMap.NO_VALUE) {
+			final V previous = (V) values[index];
+			values[index] = value;
+			return previous;
+		}
+		if (size == keys.length) grow(size + 1);
+		indexes.put(key, size);
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		return null;
+	}
+
+	/**
+	 * @param key the key of the mapping
+	 * @return the removed value or null if there was no mapping for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		final int index = indexes.remove(key);
+		if (index == LongIntMap.NO_VALUE) return null;
+		final V removed = (V) values[index];
+		// the last mapping fills the gap
+		size--;
+		if (index < size) {
+			keys[index] = keys[size];
+			values[index] = values[size];
+			indexes.put(keys[index], index);
+		}
+		values[size] = null;
+		return removed;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Grows the map in advance, so it does not need to be grown while the mappings are added.
+	 * @param expectedSize the number of mappings the map is sized for
+	 */
+	public void ensureCapacity(int expectedSize) {
+		indexes.ensureCapacity(expectedSize);
+		if (expectedSize > keys.length) grow(expectedSize);
+	}
+
+	public void clear() {
+		indexes.clear();
+		keys = new long[MIN_CAPACITY];
+		values = new Object[MIN_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * @return the values in the order of the map
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+		final List<V> result = new ArrayList<V>(size);
+		for (int i = 0; i < size; i++) {
+			result.add((V) values[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the estimated bytes of the map on the heap without the values
+	 */
+	public long getHeapBytes() {
+		return indexes.getHeapBytes() + MemoryFootprint.arrayBytes(keys.length, 8)
+				+ MemoryFootprint.arrayBytes(values.length, MemoryFootprint.REFERENCE);
+	}
+
+	/**
+	 * @return a cursor over the mappings, the map must not be changed while it is used
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	private void grow(int minCapacity) {
+		final int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(minCapacity, 2L * keys.length));
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	/**
+	 * Walks the mappings in the order of the map without creating an entry per mapping.
+	 */
+	public class Cursor {
+		private int index = -1;
+
+		/**
+		 * @return true if the cursor has been moved to the next mapping, false if there are no more mappings
+		 */
+		public boolean next() {
+			return ++index < size;
+		}
+
+		public long key() {
+			return keys[index];
+		}
+
+		@SuppressWarnings("unchecked")
+		public V value() {
+			return (V) values[index];
+		}
+	}
+}
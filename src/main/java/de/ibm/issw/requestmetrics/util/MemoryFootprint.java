@@ -0,0 +1,171 @@
+package de.ibm.issw.requestmetrics.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Estimate of the memory held by the structures of a dataset, on the java heap and outside of it. The structures
+ * add their bytes under the name of the structure they belong to, e.g. the columns of all stores are added as
+ * {@link #RECORDS}.<br>
+ * The heap bytes are estimated from the lengths of the arrays and the number of objects, not measured: a 64 bit
+ * JVM with compressed references is assumed, i.e. headers of 12 bytes per object and 16 bytes per array, 4 bytes
+ * per reference and sizes aligned to 8 bytes. Objects that are shared by several structures are counted with
+ * the structure that owns them, e.g. the strings with the symbol table rather than the string pool.
+ */
+public class MemoryFootprint {
+	public static final String RECORDS = "records";
+	public static final String NODES = "nodes";
+	public static final String CHILDREN = "children";
+	public static final String ROOT_CASES = "root cases";
+	public static final String CANDIDATES = "root case candidates";
+	public static final String INDEXES = "indexes";
+	public static final String STRINGS = "strings";
+	public static final String STRING_POOL = "string pool";
+	/** the order of the records of the cached logs, the records are counted with the stores of the dataset */
+	public static final String CACHE = "ingestion cache";
+	/** the pages and regions of the allocator that are not used by a structure */
+	public static final String FREE_PAGES = "free pages";
+
+	/** bytes of an object header */
+	public static final int OBJECT_HEADER = 12;
+	/** bytes of a reference */
+	public static final int REFERENCE = 4;
+	/** bytes of a byte buffer object, i.e. the view of a page, without its content */
+	public static final int BUFFER = 64;
+	private static final int ARRAY_HEADER = 16;
+	private static final int ALIGNMENT = 8;
+	private static final double MEGABYTE = 1024 * 1024;
+
+	// the heap bytes and the off-heap bytes of every structure in the order they have been added
+	private final Map<String, long[]> structures = new LinkedHashMap<String, long[]>();
+	private final long records;
+	private final long inputBytes;
+
+	/**
+	 * @param records the number of records, i.e. the lines of the input that have been parsed
+	 * @param inputBytes the size of the input the records have been parsed from
+	 */
+	public MemoryFootprint(long records, long inputBytes) {
+		this.records = records;
+		this.inputBytes = inputBytes;
+	}
+
+	/**
+	 * Adds bytes to a structure, the bytes of the same structure are summed up.
+	 */
+	public void add(String structure, long heapBytes, long offHeapBytes) {
+		long[] bytes = structures.get(structure);
+		if (bytes == null) {
+			bytes = new long[2];
+			structures.put(structure, bytes);
+		}
+		bytes[0] += heapBytes;
+		bytes[1] += offHeapBytes;
+	}
+
+	/**
+	 * @return the names of the structures in the order they have been added
+	 */
+	public List<String> getStructures() {
+		return new ArrayList<String>(structures.keySet());
+	}
+
+	public long getHeapBytes(String structure) {
+		final long[] bytes = structures.get(structure);
+		return bytes != null ? bytes[0] : 0;
+	}
+
+	public long getOffHeapBytes(String structure) {
+		final long[] bytes = structures.get(structure);
+		return bytes != null ? bytes[1] : 0;
+	}
+
+	public long getTotalHeapBytes() {
+		long total = 0;
+		for (long[] bytes : structures.values()) {
+			total += bytes[0];
+		}
+		return total;
+	}
+
+	public long getTotalOffHeapBytes() {
+		long total = 0;
+		for (long[] bytes : structures.values()) {
+			total += bytes[1];
+		}
+		return total;
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	public long getInputBytes() {
+		return inputBytes;
+	}
+
+	/**
+	 * @return the bytes held per record, i.e. per parsed line of the input, or 0 if there are no records
+	 */
+	public long getBytesPerRecord() {
+		return records > 0 ? (getTotalHeapBytes() + getTotalOffHeapBytes()) / records : 0;
+	}
+
+	/**
+	 * @return the bytes that are projected to be held per byte of input, e.g. to size the heap for a larger
+	 * input of the same kind, or 0 if the size of the input is not known
+	 */
+	public double getBytesPerInputByte() {
+		return inputBytes > 0 ? (double) (getTotalHeapBytes() + getTotalOffHeapBytes()) / inputBytes : 0;
+	}
+
+	/**
+	 * @param length the length of the array
+	 * @param elementBytes the bytes of an element, {@link #REFERENCE} for an array of objects
+	 * @return the bytes of the array without the objects it refers to
+	 */
+	public static long arrayBytes(long length, int elementBytes) {
+		return align(ARRAY_HEADER + length * elementBytes);
+	}
+
+	/**
+	 * @param fieldBytes the bytes of the fields of the object
+	 * @return the bytes of the object without the objects it refers to
+	 */
+	public static long objectBytes(int fieldBytes) {
+		return align(OBJECT_HEADER + fieldBytes);
+	}
+
+	/**
+	 * @param length the number of characters of the string
+	 * @return the bytes of the string and its characters
+	 */
+	public static long stringBytes(int length) {
+		// the hash and the reference to the characters
+		return objectBytes(4 + REFERENCE) + arrayBytes(length, 2);
+	}
+
+	private static long align(long bytes) {
+		return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * @return a table of the structures for the log
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ENGLISH, "Estimated memory footprint of %d records parsed from %.1f MB:%n", records, inputBytes / MEGABYTE));
+		sb.append(String.format(Locale.ENGLISH, "  %-22s %12s %12s%n", "structure", "heap MB", "off-heap MB"));
+		for (Map.Entry<String, long[]> structure : structures.entrySet()) {
+			final long[] bytes = structure.getValue();
+			sb.append(String.format(Locale.ENGLISH, "  %-22s %12.1f %12.1f%n", structure.getKey(), bytes[0] / MEGABYTE, bytes[1] / MEGABYTE));
+		}
+		sb.append(String.format(Locale.ENGLISH, "  %-22s %12.1f %12.1f%n", "total", getTotalHeapBytes() / MEGABYTE, getTotalOffHeapBytes() / MEGABYTE));
+		sb.append(String.format(Locale.ENGLISH, "  %d bytes per record, %.0f MB per GB of input", getBytesPerRecord(), 1024 * getBytesPerInputByte()));
+		return sb.toString();
+	}
+}
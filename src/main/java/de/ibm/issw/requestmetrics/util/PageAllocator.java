@@ -0,0 +1,143 @@
+package de.ibm.issw.requestmetrics.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allocates the buffers that keep the records and the graph of a dataset outside of the java heap, either in
+ * direct memory or in a temporary file that is mapped into memory. The buffers are carved out of large regions,
+ * so the garbage collector only sees a few region objects and the mapped regions are paged in and out by the
+ * operating system, i.e. the size of a mapped dataset is limited by the disk rather than the heap.<br>
+ * Pages of a fixed size are handed out for structures that grow and are returned for reuse once they are not
+ * needed anymore. Buffers of an exact size are handed out for structures that do not change anymore, they are
+ * only released with the whole allocator.<br>
+ * All buffers use the native byte order. The methods are thread safe.
+ */
+public class PageAllocator {
+	public static final Logger LOG = LoggerFactory.getLogger(PageAllocator.class);
+	/** size of the pages in bytes */
+	public static final int PAGE_SIZE = 256 * 1024;
+	// size of the regions the buffers are carved out of
+	private static final int REGION_SIZE = 64 * 1024 * 1024;
+
+	// null if the regions are allocated in direct memory
+	private final File file;
+	private final FileChannel channel;
+	private final Deque<ByteBuffer> freePages = new ArrayDeque<ByteBuffer>();
+	private ByteBuffer region;
+	private long reservedBytes;
+
+	private PageAllocator(File file, FileChannel channel) {
+		this.file = file;
+		this.channel = channel;
+	}
+
+	/**
+	 * @return an allocator of direct memory, the memory is freed once the buffers are garbage collected
+	 */
+	public static PageAllocator direct() {
+		return new PageAllocator(null, null);
+	}
+
+	/**
+	 * @param directory the folder of the temporary file the buffers are mapped from
+	 * @return an allocator of memory mapped buffers, the file is deleted when the allocator is released
+	 */
+	public static PageAllocator mapped(File directory) throws IOException {
+		final File file = File.createTempFile("rm-dataset-", ".bin", directory);
+		file.deleteOnExit();
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		return new PageAllocator(file, randomAccessFile.getChannel());
+	}
+
+	/**
+	 * @return a page of {@link #PAGE_SIZE} bytes, it is returned with {@link #freePage(ByteBuffer)}
+	 */
+	public synchronized ByteBuffer allocatePage() {
+		final ByteBuffer page = freePages.poll();
+		return page != null ? page : allocate(PAGE_SIZE);
+	}
+
+	/**
+	 * Returns a page for reuse. Its content must not be read anymore.
+	 * @param page a page of this allocator
+	 */
+	public synchronized void freePage(ByteBuffer page) {
+		page.clear();
+		freePages.push(page);
+	}
+
+	/**
+	 * @param bytes the size of the buffer
+	 * @return a buffer whose capacity is the given size
+	 */
+	public synchronized ByteBuffer allocate(int bytes) {
+		// buffers larger than a quarter of a region get a region of their own, so not too much of a region is lost
+		if (bytes > REGION_SIZE / 4) return newRegion(bytes);
+		if (region == null || region.remaining() < bytes) region = newRegion(REGION_SIZE);
+		final ByteBuffer buffer = region.slice();
+		buffer.limit(bytes);
+		region.position(region.position() + bytes);
+		return buffer.slice().order(ByteOrder.nativeOrder());
+	}
+
+	private ByteBuffer newRegion(int bytes) {
+		final ByteBuffer buffer;
+		if (channel == null) {
+			buffer = ByteBuffer.allocateDirect(bytes);
+		} else {
+			try {
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, reservedBytes, bytes);
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not map " + bytes + " bytes of " + file, e);
+			}
+		}
+		reservedBytes += bytes;
+		return buffer.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * @return the number of bytes of all regions allocated so far
+	 */
+	public synchronized long getReservedBytes() {
+		return reservedBytes;
+	}
+
+	/**
+	 * @return the number of bytes that are reserved but not handed out, i.e. the free pages and the rest of the
+	 * current region
+	 */
+	public synchronized long getFreeBytes() {
+		return (long) freePages.size() * PAGE_SIZE + (region != null ? region.remaining() : 0);
+	}
+
+	public boolean isMapped() {
+		return channel != null;
+	}
+
+	/**
+	 * Closes and deletes the file of a mapped allocator. The mappings stay valid until they are garbage collected,
+	 * but the buffers of the allocator should not be used anymore.
+	 */
+	public synchronized void release() {
+		freePages.clear();
+		region = null;
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOG.warn("Could not close " + file, e);
+			}
+			if (!file.delete()) LOG.debug("The file " + file + " is deleted on exit");
+		}
+	}
+}
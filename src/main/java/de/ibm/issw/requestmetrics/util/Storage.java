@@ -0,0 +1,35 @@
+package de.ibm.issw.requestmetrics.util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Where the records and the graph of a dataset are kept. The indexes of the dataset, e.g. the nodes by their
+ * request ids, and the views that are shown by the GUI are always kept on the java heap.
+ */
+public enum Storage {
+	/** in arrays on the java heap */
+	HEAP,
+	/** in direct memory outside of the java heap */
+	DIRECT,
+	/** in a temporary file that is mapped into memory, so the dataset may be larger than the memory */
+	MAPPED;
+
+	/**
+	 * @return a new allocator or null if the dataset is kept on the heap
+	 */
+	public PageAllocator createAllocator() {
+		switch (this) {
+		case DIRECT:
+			return PageAllocator.direct();
+		case MAPPED:
+			try {
+				return PageAllocator.mapped(new File(System.getProperty("java.io.tmpdir")));
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not create the file of the dataset", e);
+			}
+		default:
+			return null;
+		}
+	}
+}
@@ -1,32 +1,152 @@
 package de.ibm.issw.requestmetrics.util;
 
-import java.lang.ref.WeakReference;
-import java.util.WeakHashMap;
-
 /**
- * Naive implementation of a StringPool that uses weak references for key and value
- * 
+ * Pool for the strings that repeat in the records, e.g. thread ids, ips, events and details.
+ * The pool is split into stripes with a lock of their own, so parallel parsers rarely wait for each other.
+ * Every stripe is a set associative table: a string can only be kept in one of the few slots of its
+ * bucket, and a full bucket evicts one of its strings in turn. The size of the pool is therefore bounded,
+ * an evicted string is just created again with its next occurrence.<br>
+ * Parts of a line can be looked up without creating a string for them, a string is only created if the
+ * part is not in the pool.
+ *
  * @author skliche
  *
  */
 public class StringPool {
-	private static final WeakHashMap<String, WeakReference<String>> pool = new WeakHashMap<String, WeakReference<String>>();
-	
+	// number of stripes, a power of two
+	private static final int STRIPES = 64;
+	// the upper bits of the hash select the stripe
+	private static final int STRIPE_SHIFT = Integer.numberOfLeadingZeros(STRIPES - 1);
+	// number of buckets per stripe, a power of two
+	private static final int BUCKETS = 1024;
+	// number of strings per bucket
+	private static final int WAYS = 4;
+	/** maximum number of strings that are kept in the pool */
+	public static final int MAX_SIZE = STRIPES * BUCKETS * WAYS;
+
+	private static final Stripe[] stripes = new Stripe[STRIPES];
+	static {
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
 	/**
 	 * Performs a lookup in the string pool for the supplied string. If the string
 	 * is in the pool the reference is returned, otherwise the supplied string reference
-	 * is added to the pool and returned as well. 
+	 * is added to the pool and returned as well.
 	 * @param str string to be replaced by a reference from the pool
 	 * @return the reference from the pool
 	 */
 	public static String intern(final String str) {
-		final WeakReference<String> cached = pool.get(str);
-		if(cached != null){
-			final String value = cached.get();
-			if(value != null)
-				return value;
+		if(str == null) return null;
+		final int hash = spread(str.hashCode());
+		return stripes[hash >>> STRIPE_SHIFT].intern(str, 0, str.length(), hash, str);
+	}
+
+	/**
+	 * Performs a lookup in the string pool for a part of a line. A string is only created
+	 * if the part is not in the pool.
+	 * @param s the line
+	 * @param start the index of the first character of the part
+	 * @param end the index after the last character of the part
+	 * @return the reference from the pool
+	 */
+	public static String intern(final CharSequence s, final int start, final int end) {
+		// same as the hash code of the string of the part
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + s.charAt(i);
+		}
+		final int hash = spread(h);
+		return stripes[hash >>> STRIPE_SHIFT].intern(s, start, end, hash, null);
+	}
+
+	/**
+	 * Adds the bytes of the tables of the pool to the footprint. The pooled strings are not added, they are
+	 * counted with the symbol tables that refer to them.
+	 */
+	public static void addFootprint(MemoryFootprint footprint) {
+		final long stripeBytes = MemoryFootprint.objectBytes(3 * MemoryFootprint.REFERENCE + 2 * 8)
+				+ MemoryFootprint.arrayBytes(BUCKETS * WAYS, MemoryFootprint.REFERENCE)
+				+ MemoryFootprint.arrayBytes(BUCKETS * WAYS, 4)
+				+ MemoryFootprint.arrayBytes(BUCKETS, 1);
+		footprint.add(MemoryFootprint.STRING_POOL, STRIPES * stripeBytes, 0);
+	}
+
+	/**
+	 * @return the number of lookups that have found the string in the pool
+	 */
+	public static long getHits() {
+		long hits = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				hits += stripe.hits;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that have added the string to the pool
+	 */
+	public static long getMisses() {
+		long misses = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				misses += stripe.misses;
+			}
+		}
+		return misses;
+	}
+
+	/**
+	 * the bits of the hash codes of similar strings differ mostly in the lower bits, so they are mixed
+	 * into the upper bits that select the stripe
+	 */
+	private static int spread(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static class Stripe {
+		private final String[] strings = new String[BUCKETS * WAYS];
+		private final int[] hashes = new int[BUCKETS * WAYS];
+		// the slot of every bucket that is evicted next
+		private final byte[] victims = new byte[BUCKETS];
+		private long hits;
+		private long misses;
+
+		/**
+		 * @param str the string of the part if it exists already, otherwise it is created on a miss
+		 */
+		private synchronized String intern(CharSequence s, int start, int end, int hash, String str) {
+			final int bucket = hash & (BUCKETS - 1);
+			final int first = bucket * WAYS;
+			for (int slot = first; slot < first + WAYS; slot++) {
+				final String candidate = strings[slot];
+				if(candidate != null && hashes[slot] == hash && regionEquals(candidate, s, start, end)) {
+					hits++;
+					return candidate;
+				}
+			}
+
+			misses++;
+			final String added = str != null ? str : s.subSequence(start, end).toString();
+			final int victim = victims[bucket];
+			strings[first + victim] = added;
+			hashes[first + victim] = hash;
+			victims[bucket] = (byte) ((victim + 1) % WAYS);
+			return added;
+		}
+
+		private static boolean regionEquals(String candidate, CharSequence s, int start, int end) {
+			if(candidate == s) return true;
+			if(candidate.length() != end - start) return false;
+			for (int i = 0; i < candidate.length(); i++) {
+				if(candidate.charAt(i) != s.charAt(start + i)) return false;
+			}
+			return true;
 		}
-		pool.put(str, new WeakReference<String>(str));
-		return str;
 	}
 }
@@ -0,0 +1,102 @@
+package de.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import de.ibm.issw.requestmetrics.util.LongIntMap;
+import de.ibm.issw.requestmetrics.util.LongMap;
+
+/**
+ * Compares the LongIntMap that indexes the nodes by their request ids and the LongMap that is built on it with
+ * the HashMap that indexed the nodes before. The maps are filled with random request ids, then every id is looked
+ * up once. The numbers of keys are passed as arguments, by default 10M and 100M keys. The HashMap needs a heap of
+ * about 12 GB for 100M keys (-Xmx12g).
+ */
+public class LongMapBenchmark {
+	private static final Object VALUE = new Object();
+
+	public static void main(String[] args) {
+		final String[] sizes = args.length > 0 ? args : new String[] {"10000000", "100000000"};
+
+		// warm up the compiler before measuring
+		final long[] warmUpKeys = createKeys(1000000);
+		for (int i = 0; i < 3; i++) {
+			runLongIntMap(warmUpKeys, false, false);
+			runLongMap(warmUpKeys, false, false);
+			runHashMap(warmUpKeys, false);
+		}
+
+		for (String size : sizes) {
+			final long[] keys = createKeys(Integer.parseInt(size));
+			runLongIntMap(keys, false, true);
+			runLongIntMap(keys, true, true);
+			runLongMap(keys, false, true);
+			runLongMap(keys, true, true);
+			runHashMap(keys, true);
+		}
+	}
+
+	private static long[] createKeys(int size) {
+		final Random random = new Random(42);
+		final long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = random.nextLong() & Long.MAX_VALUE;
+		}
+		return keys;
+	}
+
+	private static void runLongIntMap(long[] keys, boolean presized, boolean print) {
+		final long start = System.nanoTime();
+		final LongIntMap map = presized ? new LongIntMap(keys.length) : new LongIntMap();
+		for (int i = 0; i < keys.length; i++) {
+			map.put(keys[i], i);
+		}
+		final long inserted = System.nanoTime();
+		int found = 0;
+		for (long key : keys) {
+			if (map.get(key) != LongIntMap.NO_VALUE) found++;
+		}
+		final long end = System.nanoTime();
+		if (print) print(presized ? "LongIntMap (presized)" : "LongIntMap", keys.length, found, inserted - start, end - inserted);
+	}
+
+	private static void runLongMap(long[] keys, boolean presized, boolean print) {
+		final long start = System.nanoTime();
+		final LongMap<Object> map = presized ? new LongMap<Object>(keys.length) : new LongMap<Object>();
+		for (long key : keys) {
+			map.put(key, VALUE);
+		}
+		final long inserted = System.nanoTime();
+		int found = 0;
+		for (long key : keys) {
+			if (map.get(key) != null) found++;
+		}
+		final long end = System.nanoTime();
+		if (print) print(presized ? "LongMap (presized)" : "LongMap", keys.length, found, inserted - start, end - inserted);
+	}
+
+	private static void runHashMap(long[] keys, boolean print) {
+		try {
+			final long start = System.nanoTime();
+			final Map<Long, Object> map = new HashMap<Long, Object>();
+			for (long key : keys) {
+				map.put(key, VALUE);
+			}
+			final long inserted = System.nanoTime();
+			int found = 0;
+			for (long key : keys) {
+				if (map.get(key) != null) found++;
+			}
+			final long end = System.nanoTime();
+			if (print) print("HashMap", keys.length, found, inserted - start, end - inserted);
+		} catch (OutOfMemoryError e) {
+			System.out.println("HashMap: " + keys.length + " keys do not fit into the heap");
+		}
+	}
+
+	private static void print(String name, int keys, int found, long insertNanos, long lookupNanos) {
+		System.out.println(String.format("%-21s %,d keys: insert %.1f M/s, lookup %.1f M/s, %,d found",
+				name, keys, 1000.0 * keys / insertNanos, 1000.0 * keys / lookupNanos, found));
+	}
+}
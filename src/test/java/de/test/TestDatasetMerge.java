@@ -0,0 +1,75 @@
+package de.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.ibm.issw.requestmetrics.engine.RmProcessor;
+import de.ibm.issw.requestmetrics.model.RMNode;
+import de.ibm.issw.requestmetrics.model.RmRootCase;
+
+/**
+ * Processes the scenarios once file by file into one dataset and once with a dataset per file that is merged,
+ * the root cases, their trees and the root case types must be the same.
+ */
+public class TestDatasetMerge {
+	public static void main(String[] args) {
+		final File[] files = new File("./src/test/resources/metricsScenarios").listFiles();
+		compare("all scenarios", files);
+		// the trees that lack their root records keep their dummies, without them all dummies are replaced
+		final List<File> rootedFiles = new ArrayList<File>();
+		final List<File> rootlessFiles = new ArrayList<File>();
+		for (File file : files) {
+			if (file.getName().contains("NoRoot")) rootlessFiles.add(file);
+			else rootedFiles.add(file);
+		}
+		compare("scenarios with root records", rootedFiles.toArray(new File[rootedFiles.size()]));
+		compare("scenarios without root records", rootlessFiles.toArray(new File[rootlessFiles.size()]));
+	}
+
+	private static void compare(String name, File[] files) {
+		final RmProcessor sequential = process(files, 1);
+		final RmProcessor merged = process(files, 4);
+
+		final List<String> sequentialTrees = getTrees(sequential);
+		final List<String> mergedTrees = getTrees(merged);
+		System.out.println(name + ", sequential: " + sequentialTrees.size() + " root cases, types " + sequential.getRootCaseTypes());
+		System.out.println(name + ", merged: " + mergedTrees.size() + " root cases, types " + merged.getRootCaseTypes());
+		if (!sequentialTrees.equals(mergedTrees)) throw new IllegalStateException("The merged root cases of " + name + " differ from the sequential ones");
+		if (!sequential.getRootCaseTypes().equals(merged.getRootCaseTypes())) throw new IllegalStateException("The merged root case types of " + name + " differ from the sequential ones");
+		System.out.println(name + ": the merged dataset equals the sequential one");
+	}
+
+	private static RmProcessor process(File[] files, int parallelism) {
+		final RmProcessor processor = new RmProcessor();
+		processor.reset();
+		processor.setParallelism(parallelism);
+		processor.processInputFiles(files);
+		return processor;
+	}
+
+	/**
+	 * @return the sorted trees of the root cases with the ids of their records
+	 */
+	private static List<String> getTrees(RmProcessor processor) {
+		final List<String> trees = new ArrayList<String>();
+		for (RmRootCase rootCase : processor.getRootCases()) {
+			final StringBuilder tree = new StringBuilder();
+			appendTree(rootCase.getRmNode(), tree);
+			trees.add(tree.toString());
+		}
+		Collections.sort(trees);
+		return trees;
+	}
+
+	private static void appendTree(RMNode node, StringBuilder tree) {
+		tree.append(node.getData().getCurrentCmp().getReqid());
+		tree.append('(');
+		for (RMNode child : node.getChildren()) {
+			appendTree(child, tree);
+			tree.append(' ');
+		}
+		tree.append(')');
+	}
+}
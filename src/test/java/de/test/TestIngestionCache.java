@@ -0,0 +1,122 @@
+package de.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
+
+import de.ibm.issw.requestmetrics.engine.RmProcessor;
+import de.ibm.issw.requestmetrics.engine.events.LogParsingTypeEvent;
+import de.ibm.issw.requestmetrics.model.RMNode;
+import de.ibm.issw.requestmetrics.model.RmRootCase;
+
+/**
+ * Loads a folder with a copy of a scenario again and again with the ingestion cache. The copy must be skipped, the
+ * logs that have been loaded before must not be parsed again and the root cases must be the same as without the cache.
+ */
+public class TestIngestionCache {
+	private static final File SCENARIOS = new File("./src/test/resources/metricsScenarios");
+
+	public static void main(String[] args) throws IOException {
+		compare(1);
+		compare(4);
+	}
+
+	private static void compare(int parallelism) throws IOException {
+		final File folder = Files.createTempDirectory("rm-cache").toFile();
+		try {
+			copy("singletree.txt", folder, "singletree.txt");
+			copy("singletree.txt", folder, "singletree_copy.txt");
+			copy("grepped_plugin_metrics.txt", folder, "grepped_plugin_metrics.txt");
+
+			final RmProcessor processor = new RmProcessor();
+			processor.setParallelism(parallelism);
+			processor.setIngestionCache(true);
+			processor.reset();
+			final Set<String> parsedFiles = new HashSet<String>();
+			processor.addObserver(new Observer() {
+				@Override
+				public void update(Observable o, Object event) {
+					if (event instanceof LogParsingTypeEvent) {
+						synchronized (parsedFiles) {
+							parsedFiles.add(((LogParsingTypeEvent) event).getFileName());
+						}
+					}
+				}
+			});
+
+			load(processor, folder, parsedFiles, parallelism);
+			if (parsedFiles.size() != 2 || !parsedFiles.contains("grepped_plugin_metrics.txt")) {
+				throw new IllegalStateException("Parsed " + parsedFiles + " instead of the plugin log and one of the copies");
+			}
+
+			load(processor, folder, parsedFiles, parallelism);
+			if (!parsedFiles.isEmpty()) throw new IllegalStateException("Parsed " + parsedFiles + " again although they have not changed");
+
+			copy("singletreeNoOrder.txt", folder, "singletreeNoOrder.txt");
+			load(processor, folder, parsedFiles, parallelism);
+			if (!parsedFiles.equals(Collections.singleton("singletreeNoOrder.txt"))) {
+				throw new IllegalStateException("Parsed " + parsedFiles + " instead of the added log only");
+			}
+			System.out.println("parallelism " + parallelism + ": the cached logs and the copy have been skipped");
+		} finally {
+			for (File file : folder.listFiles()) {
+				file.delete();
+			}
+			folder.delete();
+		}
+	}
+
+	/**
+	 * Loads the folder with the cache and compares the root cases with a load without the cache.
+	 */
+	private static void load(RmProcessor processor, File folder, Set<String> parsedFiles, int parallelism) {
+		parsedFiles.clear();
+		processor.reset();
+		processor.processInputFiles(new File[] { folder });
+
+		final RmProcessor uncached = new RmProcessor();
+		uncached.setParallelism(parallelism);
+		uncached.reset();
+		uncached.processInputFiles(new File[] { folder });
+
+		final List<String> trees = getTrees(processor);
+		System.out.println("parallelism " + parallelism + ": " + trees.size() + " root cases, parsed " + parsedFiles);
+		if (!trees.equals(getTrees(uncached))) throw new IllegalStateException("The cached root cases differ from the parsed ones");
+		if (!processor.getRootCaseTypes().equals(uncached.getRootCaseTypes())) throw new IllegalStateException("The cached root case types differ from the parsed ones");
+	}
+
+	private static void copy(String scenario, File folder, String name) throws IOException {
+		Files.copy(new File(SCENARIOS, scenario).toPath(), new File(folder, name).toPath());
+	}
+
+	/**
+	 * @return the sorted trees of the root cases with the ids of their records
+	 */
+	private static List<String> getTrees(RmProcessor processor) {
+		final List<String> trees = new ArrayList<String>();
+		for (RmRootCase rootCase : processor.getRootCases()) {
+			final StringBuilder tree = new StringBuilder();
+			appendTree(rootCase.getRmNode(), tree);
+			trees.add(tree.toString());
+		}
+		Collections.sort(trees);
+		return trees;
+	}
+
+	private static void appendTree(RMNode node, StringBuilder tree) {
+		tree.append(node.getData().getCurrentCmp().getReqid());
+		tree.append('(');
+		for (RMNode child : node.getChildren()) {
+			appendTree(child, tree);
+			tree.append(' ');
+		}
+		tree.append(')');
+	}
+}
@@ -0,0 +1,138 @@
+package de.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import de.ibm.issw.requestmetrics.engine.parser.AbstractLineParser;
+import de.ibm.issw.requestmetrics.engine.parser.GreppedLineParser;
+import de.ibm.issw.requestmetrics.engine.parser.PluginGreppedLineParser;
+import de.ibm.issw.requestmetrics.engine.parser.RawLineParser;
+import de.ibm.issw.requestmetrics.engine.parser.RmLineTokenizer;
+import de.ibm.issw.requestmetrics.model.RMRecord;
+import de.ibm.issw.requestmetrics.model.RecordStore;
+import de.ibm.issw.requestmetrics.model.SymbolTable;
+import de.ibm.issw.requestmetrics.util.DateParser;
+
+/**
+ * Tokenizes the lines of the scenarios and some hand written lines in all layouts and parses them with the regular
+ * expressions of the line parsers as well, both must reject a line or create a record with the same fields.
+ */
+public class TestRmLineTokenizer {
+	private static final String GREPPED = "SystemOut.log:[10/19/15 16:27:44:496 CEST] 0000011b PmiRmArmWrapp I   PMRM0003I:  "
+			+ "parent:ver=1,ip=14.108.96.122,time=1444516035250,pid=4836,reqid=1,event=1 - "
+			+ "current:ver=1,ip=14.108.96.122,time=1444516035250,pid=4836,reqid=2,event=1 type=JDBC detail=getConnection(Subject) elapsed=12";
+	private static final String RAW = GREPPED.substring(GREPPED.indexOf(':') + 1);
+	private static final String PLUGIN = "http_plugin.log:[06/Jan/2016:11:07:07.75481] 0000dbcc 9c9c0700 - PLUGIN:  "
+			+ "parent:ver=1,ip=10.186.35.144,time=1452073501334,pid=56268,reqid=0,event=1 - "
+			+ "current:ver=1,ip=10.186.35.144,time=1452073501334,pid=56268,reqid=7,event=1 type=HTTP detail=/TrafficGenerator/traffic elapsed=178 bytesIn=0 bytesOut=100";
+
+	private static final DateParser DATE_PARSER = new DateParser();
+	private static final RecordStore STORE = new RecordStore(new SymbolTable());
+	private static final RmLineTokenizer TOKENIZER = new RmLineTokenizer(DATE_PARSER, STORE);
+	private static final AbstractLineParser GREPPED_PARSER = new GreppedLineParser(DATE_PARSER, STORE);
+	private static final AbstractLineParser RAW_PARSER = new RawLineParser(DATE_PARSER, STORE);
+	private static final AbstractLineParser PLUGIN_PARSER = new PluginGreppedLineParser(DATE_PARSER, STORE);
+
+	public static void main(String[] args) throws IOException {
+		final File folder = new File("./src/test/resources/metricsScenarios");
+		for (File file : folder.listFiles()) {
+			int tokenized = 0;
+			final BufferedReader reader = new BufferedReader(new FileReader(file));
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				tokenized += compare(line, file.getName());
+				// the lines without the prefix of grep are lines of a raw log
+				tokenized += compare(line.substring(line.indexOf(':') + 1), file.getName());
+			}
+			reader.close();
+			System.out.println(file.getName() + ": " + tokenized + " lines tokenized like the regular expressions parse them");
+		}
+
+		// numeric fields that are not numbers are rejected, the regular expressions match them but can not parse them
+		expect(0, GREPPED.replace("time=1444516035250,pid=4836,reqid=2", "time=1444516035250,pid=4836,reqid=2x"));
+		expect(0, GREPPED.replace("pid=4836,reqid=1", "pid=48-6,reqid=1"));
+		expect(0, GREPPED.replace("current:ver=1", "current:ver=a"));
+		expect(0, GREPPED.replace("elapsed=12", "elapsed=1a"));
+		expect(0, RAW.replace("time=1444516035250,pid=4836,reqid=2", "time=1444516035250,pid=4836,reqid=99999999999999999999"));
+		expect(0, PLUGIN.replace("bytesIn=0", "bytesIn=0 0"));
+		expect(0, PLUGIN.replace("reqid=7", "reqid=7b"));
+
+		// the field names may be part of the detail, the last occurrence ends the field before it like the greedy expressions do
+		expect(1, GREPPED.replace("detail=getConnection(Subject)", "detail=select a type=b from c"));
+		expect(1, GREPPED.replace("detail=getConnection(Subject)", "detail=find detail=x elapsed=5 ms"));
+		expect(1, GREPPED.replace("type=JDBC detail=getConnection(Subject)", "type=JDBC type=URI detail=a type=b detail=c elapsed=5"));
+		expect(1, RAW.replace("detail=getConnection(Subject)", "detail=x type= detail= elapsed=3"));
+		expect(1, PLUGIN.replace("detail=/TrafficGenerator/traffic", "detail=/a?type=b detail=c elapsed=1 bytesIn=2"));
+		expect(1, GREPPED.replace("detail=getConnection(Subject)", "detail="));
+		expect(1, RAW);
+		expect(1, PLUGIN);
+
+		// a line that has been cut off is either rejected or, if the cut is within the last field, parsed like a shorter line
+		for (String line : new String[] { GREPPED, RAW, PLUGIN }) {
+			for (int length = 0; length < line.length(); length++) {
+				compare(line.substring(0, length), "SystemOut.log");
+			}
+		}
+		System.out.println("the hand written lines are tokenized like the regular expressions parse them");
+	}
+
+	/**
+	 * Compares the line in all layouts and checks the number of layouts it matches.
+	 */
+	private static void expect(int layouts, String line) {
+		final int tokenized = compare(line, "SystemOut.log");
+		if (tokenized != layouts) throw new IllegalStateException(tokenized + " layouts instead of " + layouts + " tokenized the line: " + line);
+	}
+
+	/**
+	 * Tokenizes the line in all layouts and parses it with the regular expression of each layout.
+	 * @return the number of layouts that tokenized the line
+	 */
+	private static int compare(String line, String logSource) {
+		int tokenized = 0;
+		tokenized += compare(line, "grepped", TOKENIZER.tokenizeGrepped(line), match(GREPPED_PARSER, line, logSource));
+		tokenized += compare(line, "raw", TOKENIZER.tokenizeRaw(line, logSource), match(RAW_PARSER, line, logSource));
+		tokenized += compare(line, "plugin", TOKENIZER.tokenizePluginGrepped(line), match(PLUGIN_PARSER, line, logSource));
+		return tokenized;
+	}
+
+	private static int compare(String line, String layout, RMRecord tokenized, RMRecord matched) {
+		if (tokenized == null && matched == null) return 0;
+		if (tokenized == null) throw new IllegalStateException("The tokenizer rejected the " + layout + " line: " + line);
+		if (matched == null) throw new IllegalStateException("The regular expression rejected the " + layout + " line: " + line);
+		if (!describe(tokenized).equals(describe(matched))) {
+			throw new IllegalStateException("The tokenizer parsed the " + layout + " line " + line + "\nas " + describe(tokenized) + "\ninstead of " + describe(matched));
+		}
+		return 1;
+	}
+
+	/**
+	 * @return the record the regular expression of the parser creates, or null if it does not match the line or its numbers
+	 */
+	private static RMRecord match(AbstractLineParser parser, String line, String logSource) {
+		try {
+			return parser.matchLine(line, logSource);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return all fields of the record
+	 */
+	private static String describe(RMRecord record) {
+		final SymbolTable symbols = record.getSymbols();
+		return new StringBuilder()
+			.append(record.getLogSource()).append('|')
+			.append(record.getLogTimestamp()).append('|')
+			.append(record.getThreadId()).append('|')
+			.append(record.getParentCmp().toString(symbols)).append('|')
+			.append(record.getCurrentCmp().toString(symbols)).append('|')
+			.append(record.getTypeCmp()).append('|')
+			.append(record.getDetailCmp()).append('|')
+			.append(record.getElapsedTime())
+			.toString();
+	}
+}